@@ -0,0 +1,75 @@
+package com.md5importer;
+
+import com.md5importer.interfaces.model.IMD5Anim;
+import com.md5importer.interfaces.model.IMD5Node;
+
+/**
+ * <code>MD5Hierarchy</code> defines the result of a hierarchy import.
+ * It contains the body <code>IMD5Node</code> with all its dependent
+ * parts attached, and the set of <code>IMD5Anim</code> which have all
+ * been validated against the skeleton of the body.
+ * <p>
+ * <code>MD5Hierarchy</code> is created by <code>MD5Importer</code> only.
+ */
+public class MD5Hierarchy {
+	/**
+	 * The body <code>IMD5Node</code> with dependents attached.
+	 */
+	private final IMD5Node body;
+	/**
+	 * The array of dependent <code>IMD5Node</code> in manifest order.
+	 */
+	private final IMD5Node[] dependents;
+	/**
+	 * The array of <code>IMD5Anim</code> in manifest order.
+	 */
+	private final IMD5Anim[] anims;
+
+	/**
+	 * Constructor of <code>MD5Hierarchy</code>.
+	 * @param body The body <code>IMD5Node</code> with dependents attached.
+	 * @param dependents The array of dependent <code>IMD5Node</code>.
+	 * @param anims The array of validated <code>IMD5Anim</code>.
+	 */
+	MD5Hierarchy(IMD5Node body, IMD5Node[] dependents, IMD5Anim[] anims) {
+		this.body = body;
+		this.dependents = dependents;
+		this.anims = anims;
+	}
+
+	/**
+	 * Retrieve the body node.
+	 * @return The body <code>IMD5Node</code> with dependents attached.
+	 */
+	public IMD5Node getBody() {
+		return this.body;
+	}
+
+	/**
+	 * Retrieve the dependent nodes.
+	 * @return The array of dependent <code>IMD5Node</code> in manifest order.
+	 */
+	public IMD5Node[] getDependents() {
+		return this.dependents.clone();
+	}
+
+	/**
+	 * Retrieve the animations.
+	 * @return The array of <code>IMD5Anim</code> in manifest order.
+	 */
+	public IMD5Anim[] getAnims() {
+		return this.anims.clone();
+	}
+
+	/**
+	 * Retrieve the animation with given name.
+	 * @param name The <code>String</code> name of the animation.
+	 * @return The <code>IMD5Anim</code> instance. <code>null</code> if there is none.
+	 */
+	public IMD5Anim getAnim(String name) {
+		for(IMD5Anim anim : this.anims) {
+			if(anim.getName().equals(name)) return anim;
+		}
+		return null;
+	}
+}
@@ -1,25 +1,51 @@
 package com.md5importer;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import com.jme.image.Texture;
 import com.jme.image.Texture.MagnificationFilter;
 import com.jme.image.Texture.MinificationFilter;
+import com.md5importer.enumn.EBoundingMode;
+import com.md5importer.enumn.ESkinningMode;
 import com.md5importer.interfaces.model.IMD5Anim;
 import com.md5importer.interfaces.model.IMD5Node;
+import com.md5importer.interfaces.model.mesh.IJoint;
 import com.md5importer.loader.AnimLoader;
+import com.md5importer.loader.ImportCache;
 import com.md5importer.loader.MeshLoader;
-import com.md5importer.loader.ResourceLoader;
 
 /**
  * <code>MD5Importer</code> defines a utility unit that contains
  * the logic of importing a MD5 formated skeletal animated model.
  * <p>
- * <code>MD5Importer</code> does not provide any thread safety.
- * It can be reused to repeatedly to import model files. However,
- * it requires external invocation to perform clean up before next
- * reuse.
+ * <code>MD5Importer</code> is thread safe. A single instance can be
+ * shared by multiple threads to import model files concurrently, and
+ * no clean up is required between imports. Files can also be imported
+ * asynchronously on a given <code>Executor</code>.
+ * <p>
+ * <code>MD5Importer</code> can also import a complete hierarchy from a
+ * manifest file. Each line of the manifest is a path relative to the
+ * manifest. The first md5mesh line is the body and the following ones
+ * are its dependents. Lines ending with <code>.md5anim</code> are the
+ * animations. Lines without extension are treated as md5mesh files.
+ * Empty lines and lines starting with <code>//</code> are ignored.
+ * <p>
+ * <code>MD5Importer</code> can be set to headless mode, in which the
+ * loaded nodes only contain the skeleton. This allows animated poses
+ * to be evaluated without a display, for instance on a game server.
+ * <p>
+ * The texture, skinning and bounding settings of <code>MD5Importer</code>
+ * apply to the meshes loaded afterwards by this instance only.
  * <P>
  * For details on MD5 format, please go to official MD5 wiki at
  * {@link}http://www.modwiki.net/wiki/MD5_(file_format).
@@ -29,13 +55,13 @@ import com.md5importer.loader.ResourceLoader;
  */
 public class MD5Importer {
 	/**
-	 * The mesh <code>ResourceImporter</code> instance.
+	 * The mesh <code>MeshLoader</code> instance.
 	 */
-	private final ResourceLoader<IMD5Node> meshImporter;
+	private final MeshLoader meshImporter;
 	/**
-	 * The animation <code>ResourceImporter</code> instance.
+	 * The animation <code>AnimLoader</code> instance.
 	 */
-	private final ResourceLoader<IMD5Anim> animImporter;
+	private final AnimLoader animImporter;
 
 	/**
 	 * Constructor of <code>MD5Importer</code>.
@@ -67,12 +93,157 @@ public class MD5Importer {
 		return this.animImporter.load(md5anim, name);
 	}
 
+	/**
+	 * Load the given md5mesh file asynchronously. The mesh texture states
+	 * are created on the executor thread, so the renderer should already
+	 * be initialized.
+	 * @param md5mesh The <code>URL</code> points to the md5mesh file.
+	 * @param name The <code>String</code> name of the loaded model.
+	 * @param executor The <code>Executor</code> to load the file with.
+	 * @return The <code>CompletableFuture</code> of the loaded <code>IMD5Node</code>.
+	 */
+	public CompletableFuture<IMD5Node> loadMeshAsync(final URL md5mesh, final String name, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return this.meshImporter.load(md5mesh, name);
+			} catch(IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Load the given md5anim file asynchronously.
+	 * @param md5anim The <code>URL</code> points to the md5anim file.
+	 * @param name The <code>String</code> name of the loaded animation.
+	 * @param executor The <code>Executor</code> to load the file with.
+	 * @return The <code>CompletableFuture</code> of the loaded <code>IMD5Anim</code>.
+	 */
+	public CompletableFuture<IMD5Anim> loadAnimAsync(final URL md5anim, final String name, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return this.animImporter.load(md5anim, name);
+			} catch(IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Load the hierarchy described by the given manifest. All the md5mesh
+	 * and md5anim files are loaded in parallel on the given executor. The
+	 * dependents are then attached to the body and the animations are
+	 * validated against the skeleton of the body.
+	 * @param manifest The <code>URL</code> points to the manifest file.
+	 * @param executor The <code>Executor</code> to load the files with.
+	 * @return The loaded <code>MD5Hierarchy</code> instance.
+	 * @throws IOException Thrown when errors occurred during file reading.
+	 */
+	public MD5Hierarchy loadHierarchy(URL manifest, Executor executor) throws IOException {
+		final List<String> meshes = new ArrayList<String>();
+		final List<String> anims = new ArrayList<String>();
+		this.readManifest(manifest, meshes, anims);
+		if(meshes.isEmpty()) throw new IOException("Manifest does not contain any md5mesh: " + manifest);
+		// Start loading all files.
+		final List<CompletableFuture<IMD5Node>> meshFutures = new ArrayList<CompletableFuture<IMD5Node>>(meshes.size());
+		for(String mesh : meshes) {
+			meshFutures.add(this.loadMeshAsync(new URL(manifest, mesh), this.getName(mesh), executor));
+		}
+		final List<CompletableFuture<IMD5Anim>> animFutures = new ArrayList<CompletableFuture<IMD5Anim>>(anims.size());
+		for(String anim : anims) {
+			animFutures.add(this.loadAnimAsync(new URL(manifest, anim), this.getName(anim), executor));
+		}
+		final IMD5Node[] nodes = new IMD5Node[meshFutures.size()];
+		final IMD5Anim[] animations = new IMD5Anim[animFutures.size()];
+		try {
+			for(int i = 0; i < nodes.length; i++) nodes[i] = meshFutures.get(i).join();
+			for(int i = 0; i < animations.length; i++) animations[i] = animFutures.get(i).join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException)e.getCause();
+			else if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+			else throw e;
+		}
+		// Validate and wire the hierarchy.
+		final IMD5Node body = nodes[0];
+		final IMD5Node[] dependents = new IMD5Node[nodes.length - 1];
+		for(int i = 1; i < nodes.length; i++) {
+			this.validate(body, this.getJointIDs(nodes[i]), nodes[i].getName());
+			dependents[i - 1] = nodes[i];
+			body.attachDependent(nodes[i]);
+		}
+		for(IMD5Anim anim : animations) {
+			this.validate(body, anim.getJointIDs(), anim.getName());
+		}
+		return new MD5Hierarchy(body, dependents, animations);
+	}
+
+	/**
+	 * Read the given manifest file.
+	 * @param manifest The <code>URL</code> points to the manifest file.
+	 * @param meshes The <code>List</code> of md5mesh paths to add to.
+	 * @param anims The <code>List</code> of md5anim paths to add to.
+	 * @throws IOException Thrown when errors occurred during file reading.
+	 */
+	private void readManifest(URL manifest, List<String> meshes, List<String> anims) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(manifest.openStream(), "UTF-8"));
+		try {
+			String line = null;
+			while((line = reader.readLine()) != null) {
+				line = line.trim();
+				if(line.length() <= 0 || line.startsWith("//")) continue;
+				else if(line.endsWith(".md5anim")) anims.add(line);
+				else if(line.endsWith(".md5mesh")) meshes.add(line);
+				else meshes.add(line + ".md5mesh");
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Retrieve the resource name of the given path.
+	 * @param path The <code>String</code> path in the manifest.
+	 * @return The <code>String</code> name without directory and extension.
+	 */
+	private String getName(String path) {
+		final String name = path.substring(path.lastIndexOf('/') + 1);
+		final int extension = name.lastIndexOf('.');
+		return (extension > 0) ? name.substring(0, extension) : name;
+	}
+
+	/**
+	 * Retrieve the joint IDs of the given node.
+	 * @param node The <code>IMD5Node</code> instance.
+	 * @return The <code>String</code> array of joint IDs.
+	 */
+	private String[] getJointIDs(IMD5Node node) {
+		final IJoint[] joints = node.getJoints();
+		final String[] ids = new String[joints.length];
+		for(int i = 0; i < ids.length; i++) ids[i] = joints[i].getName();
+		return ids;
+	}
+
+	/**
+	 * Validate the given joint IDs against the skeleton of the given body.
+	 * @param body The body <code>IMD5Node</code>.
+	 * @param ids The <code>String</code> array of joint IDs to be validated.
+	 * @param name The <code>String</code> name of the validated resource.
+	 */
+	private void validate(IMD5Node body, String[] ids, String name) {
+		final IJoint[] joints = body.getJoints();
+		boolean result = (joints.length == ids.length);
+		for(int i = 0; i < joints.length && result; i++) {
+			result = joints[i].getName().equals(ids[i]);
+		}
+		if(!result) throw new IllegalArgumentException("Skeleton mismatch between " + body.getName() + " and " + name);
+	}
+
 	/**
 	 * Set the minification (MM) <code>Texture</code> filter.
 	 * @param filter The minification (MM) <code>Texture</code> filter.
 	 */
 	public void setMiniFilter(Texture.MinificationFilter filter) {
-		((MeshLoader)this.meshImporter).setMiniFilter(filter);
+		this.meshImporter.setMiniFilter(filter);
 	}
 
 	/**
@@ -80,7 +251,7 @@ public class MD5Importer {
 	 * @param filter The magnification (FM) <code>Texture</code> filter.
 	 */
 	public void setMagFilter(Texture.MagnificationFilter filter) {
-		((MeshLoader)this.meshImporter).setMagFilter(filter);
+		this.meshImporter.setMagFilter(filter);
 	}
 
 	/**
@@ -88,7 +259,7 @@ public class MD5Importer {
 	 * @param aniso The <code>Integer</code> anisotropic level value.
 	 */
 	public void setAnisotropic(int aniso) {
-		((MeshLoader)this.meshImporter).setAnisotropic(aniso);
+		this.meshImporter.setAnisotropic(aniso);
 	}
 
 	/**
@@ -96,7 +267,7 @@ public class MD5Importer {
 	 * @param value The <code>Boolean</code> oriented bounding flag.
 	 */
 	public void setOrientedBounding(boolean value) {
-		((MeshLoader)this.meshImporter).setOrientedBounding(value);
+		this.meshImporter.setOrientedBounding(value);
 	}
 
 	/**
@@ -104,7 +275,7 @@ public class MD5Importer {
 	 * @return The <code>MinificationFilter</code> enumeration.
 	 */
 	public MinificationFilter getMiniFilter() {
-		return ((MeshLoader)this.meshImporter).getMiniFilter();
+		return this.meshImporter.getMiniFilter();
 	}
 
 	/**
@@ -112,7 +283,7 @@ public class MD5Importer {
 	 * @return The <code>MagnificationFilter</code> enumeration.
 	 */
 	public MagnificationFilter getMagFilter() {
-		return ((MeshLoader)this.meshImporter).getMagFilter();
+		return this.meshImporter.getMagFilter();
 	}
 
 	/**
@@ -120,7 +291,90 @@ public class MD5Importer {
 	 * @return The <code>Integer</code> anisotropic level.
 	 */
 	public int getAnisotropic() {
-		return ((MeshLoader)this.meshImporter).getAnisotropic();
+		return this.meshImporter.getAnisotropic();
+	}
+
+	/**
+	 * Set if the loaders should parse file sections in parallel.
+	 * @param parallel True if parsing should be parallel. False otherwise.
+	 */
+	public void setParallel(boolean parallel) {
+		this.meshImporter.setParallel(parallel);
+		this.animImporter.setParallel(parallel);
+	}
+
+	/**
+	 * Set if the loaded nodes should only contain the skeleton. Headless
+	 * nodes do not create any meshes, textures, render states or vertex
+	 * buffers, and can therefore be loaded and animated without a display.
+	 * @param headless True if only the skeleton should be loaded. False otherwise.
+	 */
+	public void setHeadless(boolean headless) {
+		this.meshImporter.setHeadless(headless);
+	}
+
+	/**
+	 * Set the skinning mode of the meshes loaded afterwards.
+	 * @param mode The <code>ESkinningMode</code> enumeration.
+	 */
+	public void setSkinningMode(ESkinningMode mode) {
+		this.meshImporter.setSkinningMode(mode);
+	}
+
+	/**
+	 * Set if the meshes loaded afterwards skin their normals from the
+	 * bind space weight normals instead of recalculating them from the
+	 * triangles on every update.
+	 * @param skinned True to skin the normals. False to recalculate them.
+	 */
+	public void setSkinnedNormals(boolean skinned) {
+		this.meshImporter.setSkinnedNormals(skinned);
+	}
+
+	/**
+	 * Set the position tolerance within which the vertices of the meshes
+	 * loaded afterwards share an averaged normal.
+	 * @param epsilon The <code>Float</code> tolerance. Zero for exact positions.
+	 */
+	public void setWeldEpsilon(float epsilon) {
+		this.meshImporter.setWeldEpsilon(epsilon);
+	}
+
+	/**
+	 * Set the bounding mode of the meshes loaded afterwards. The
+	 * conservative mode always uses an axis aligned bounding box.
+	 * @param mode The <code>EBoundingMode</code> enumeration.
+	 */
+	public void setBoundingMode(EBoundingMode mode) {
+		this.meshImporter.setBoundingMode(mode);
+	}
+
+	/**
+	 * Set the pool used by the loaders for parallel parsing.
+	 * @param pool The <code>ForkJoinPool</code> instance.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.meshImporter.setPool(pool);
+		this.animImporter.setPool(pool);
+	}
+
+	/**
+	 * Set the directory to cache compiled md5mesh and md5anim files in.
+	 * Unchanged files are then loaded from the cache without parsing.
+	 * @param directory The cache directory <code>File</code>. <code>null</code> to disable caching.
+	 */
+	public void setCacheDirectory(File directory) {
+		final ImportCache cache = (directory != null) ? new ImportCache(directory) : null;
+		this.meshImporter.setCache(cache);
+		this.animImporter.setCache(cache);
+	}
+
+	/**
+	 * Check if the loaders parse file sections in parallel.
+	 * @return True if parsing is parallel. False otherwise.
+	 */
+	public boolean isParallel() {
+		return this.animImporter.isParallel();
 	}
 
 	/**
@@ -128,11 +382,51 @@ public class MD5Importer {
 	 * @return The <code>Boolean</code> oriented bounding flag.
 	 */
 	public boolean isOriented() {
-		return ((MeshLoader)this.meshImporter).isOriented();
+		return this.meshImporter.isOriented();
+	}
+
+	/**
+	 * Check if the loaded nodes only contain the skeleton.
+	 * @return True if only the skeleton is loaded. False otherwise.
+	 */
+	public boolean isHeadless() {
+		return this.meshImporter.isHeadless();
+	}
+
+	/**
+	 * Retrieve the skinning mode of the loaded meshes.
+	 * @return The <code>ESkinningMode</code> enumeration.
+	 */
+	public ESkinningMode getSkinningMode() {
+		return this.meshImporter.getSkinningMode();
+	}
+
+	/**
+	 * Check if the loaded meshes skin their normals.
+	 * @return True if the normals are skinned. False otherwise.
+	 */
+	public boolean isSkinnedNormals() {
+		return this.meshImporter.isSkinnedNormals();
+	}
+
+	/**
+	 * Retrieve the position tolerance within which vertices share a normal.
+	 * @return The <code>Float</code> tolerance. Zero for exact positions.
+	 */
+	public float getWeldEpsilon() {
+		return this.meshImporter.getWeldEpsilon();
+	}
+
+	/**
+	 * Retrieve the bounding mode of the loaded meshes.
+	 * @return The <code>EBoundingMode</code> enumeration.
+	 */
+	public EBoundingMode getBoundingMode() {
+		return this.meshImporter.getBoundingMode();
 	}
 
 	/**
-	 * Cleanup the importer.
+	 * Cleanup the importer. This is no longer required between imports.
 	 */
 	public void cleanup() {
 		this.meshImporter.cleanup();
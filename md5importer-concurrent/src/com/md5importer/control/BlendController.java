@@ -11,6 +11,7 @@ import com.md5importer.interfaces.model.IMD5Anim;
 import com.md5importer.interfaces.model.IMD5Node;
 import com.md5importer.interfaces.model.anim.IFrame;
 import com.md5importer.interfaces.model.mesh.IJoint;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
 
 /**
  * <code>BlendController</code> defines the concrete implementation
@@ -55,6 +56,14 @@ public class BlendController extends AbstractController implements IBlendControl
 	 * The <code>Quaternion</code> temporary orientation.
 	 */
 	private final Quaternion orientation;
+	/**
+	 * The <code>Vector3f</code> temporary target translation.
+	 */
+	private final Vector3f targetTranslation;
+	/**
+	 * The <code>Quaternion</code> temporary target orientation.
+	 */
+	private final Quaternion targetOrientation;
 	/**
 	 * The target <code>IFrame</code>.
 	 */
@@ -92,6 +101,8 @@ public class BlendController extends AbstractController implements IBlendControl
 		for(int i = 0; i < this.recordOriens.length; i++) this.recordOriens[i] = new Quaternion();
 		this.translation = new Vector3f();
 		this.orientation = new Quaternion();
+		this.targetTranslation = new Vector3f();
+		this.targetOrientation = new Quaternion();
 		// Default to be completed.
 		this.completed = true;
 	}
@@ -123,12 +134,14 @@ public class BlendController extends AbstractController implements IBlendControl
 	 * @param interpolation The <code>Float</code> interpolation.
 	 */
 	private void updateJoints(float interpolation) {
+		// The node replaces its skeleton when it is detached from a parent.
+		final ISkeleton skeleton = this.node.getSkeleton();
 		for(int i = 0; i < this.joints.length; i++) {
-			this.translation.interpolate(this.recordTrans[i], this.frame.getTranslation(i), interpolation);
-			this.orientation.slerp(this.recordOriens[i], this.frame.getOrientation(i), interpolation);
-			this.joints[i].updateTransform(this.translation, this.orientation);
-			this.joints[i].processRelative();
+			this.translation.interpolate(this.recordTrans[i], this.frame.getTranslation(i, this.targetTranslation), interpolation);
+			this.orientation.slerp(this.recordOriens[i], this.frame.getOrientation(i, this.targetOrientation), interpolation);
+			skeleton.updateLocal(i, this.translation, this.orientation);
 		}
+		skeleton.process();
 	}
 	
 	@Override
@@ -3,11 +3,18 @@ package com.md5importer.control;
 import com.md5importer.enumn.ERepeatType;
 import com.md5importer.interfaces.control.IMD5AnimController;
 import com.md5importer.interfaces.model.IMD5Anim;
+import com.md5importer.interfaces.model.IMD5Clip;
+import com.md5importer.interfaces.model.anim.IPlaybackState;
 
 /**
  * <code>MD5AnimController</code> defines the concrete implementation
  * of a logic controller unit that is responsible for updating the
  * <code>IMD5Anim</code> instance given at construction time.
+ * <p>
+ * <code>MD5AnimController</code> reads the playback state of the
+ * animation as a single snapshot, and locates the new frames directly
+ * from the elapsed time, so every update takes constant time regardless
+ * of how many frames are passed.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 03-23-2009 18:14 EST
@@ -60,8 +67,7 @@ public class MD5AnimController extends AbstractController implements IMD5AnimCon
 		if(this.complete && this.repeat != ERepeatType.Clamp) this.complete = false;
 		if(this.complete) return;
 		// Record last frame.
-		final int lastPrev = this.anim.getPreviousIndex();
-		final int lastNext = this.anim.getNextIndex();
+		final IPlaybackState last = this.anim.getState();
 		// Update frames.
 		switch(this.repeat) {
 		case Clamp: this.updateClamp(interpolation); break;
@@ -69,7 +75,8 @@ public class MD5AnimController extends AbstractController implements IMD5AnimCon
 		case Wrap: this.updateWrap(interpolation); break;
 		}
 		// Notify update if frame changed.
-		if(lastPrev != this.anim.getPreviousIndex() || lastNext != this.anim.getNextIndex()) this.anim.notifyUpdate();
+		final IPlaybackState current = this.anim.getState();
+		if(last.getPreviousIndex() != current.getPreviousIndex() || last.getNextIndex() != current.getNextIndex()) this.anim.notifyUpdate();
 	}
 
 	/**
@@ -78,14 +85,16 @@ public class MD5AnimController extends AbstractController implements IMD5AnimCon
 	 */
 	private void updateClamp(float interpolation) {
 		this.time = this.time + (interpolation * this.speed);
-		while(this.time >= this.anim.getNextTime()) {
-			this.anim.setIndices(this.anim.getPreviousIndex()+1, this.anim.getNextIndex()+1, this.time);
-			if(this.anim.getNextIndex() == this.anim.getFrameCount() - 1) {
-				this.anim.setIndices(this.anim.getFrameCount()-2, this.anim.getFrameCount()-1, this.time);
-				this.complete = true;
-				this.time = 0.0f;
-				break;
-			}
+		final IMD5Clip clip = this.anim.getClip();
+		final int last = clip.getFrameCount() - 1;
+		final int next = this.forward(clip, this.anim.getState());
+		if(next < 0) return;
+		if(next == last) {
+			this.anim.setIndices(last-1, last, this.time);
+			this.complete = true;
+			this.time = 0.0f;
+		} else {
+			this.anim.setIndices(next-1, next, this.time);
 		}
 	}
 
@@ -94,29 +103,34 @@ public class MD5AnimController extends AbstractController implements IMD5AnimCon
 	 * @param interpolation The <code>Float</code> time interpolation.
 	 */
 	private void updateCycle(float interpolation) {
+		final IMD5Clip clip = this.anim.getClip();
+		final int last = clip.getFrameCount() - 1;
 		if(!this.backward) {
 			this.time = this.time + (interpolation * this.speed);
-			while(this.time >= this.anim.getNextTime()) {
-				this.anim.setIndices(this.anim.getPreviousIndex()+1, this.anim.getNextIndex()+1, this.time);
-				if(this.anim.getNextIndex() == this.anim.getFrameCount() - 1) {
-					this.backward = true;
-					this.anim.setIndices(this.anim.getFrameCount()-1, this.anim.getFrameCount()-2, this.time);
-					this.complete = true;
-					this.time = this.anim.getPreviousTime();
-					break;
-				}
+			final int next = this.forward(clip, this.anim.getState());
+			if(next < 0) return;
+			if(next == last) {
+				this.backward = true;
+				this.anim.setIndices(last, last-1, this.time);
+				this.complete = true;
+				this.time = clip.getFrameTime(last);
+			} else {
+				this.anim.setIndices(next-1, next, this.time);
 			}
 		} else {
 			this.time = this.time - (interpolation * this.speed);
-			while(this.time <= this.anim.getNextTime()) {
-				this.anim.setIndices(this.anim.getNextIndex(), this.anim.getNextIndex()-1, this.time);
-				if(this.anim.getNextIndex() == 0) {
-					this.backward = false;
-					this.anim.setIndices(0, 1, this.time);
-					this.complete = true;
-					this.time = 0.0f;
-					break;
-				}
+			final IPlaybackState state = this.anim.getState();
+			if(this.time > clip.getFrameTime(state.getNextIndex())) return;
+			// Find the last frame that starts strictly before the current time.
+			int next = clip.getFrameIndex(this.time);
+			if(clip.getFrameTime(next) >= this.time) next--;
+			if(next <= 0) {
+				this.backward = false;
+				this.anim.setIndices(0, 1, this.time);
+				this.complete = true;
+				this.time = 0.0f;
+			} else {
+				this.anim.setIndices(next+1, next, this.time);
 			}
 		}
 	}
@@ -127,17 +141,33 @@ public class MD5AnimController extends AbstractController implements IMD5AnimCon
 	 */
 	private void updateWrap(float interpolation) {
 		this.time = this.time + (interpolation * this.speed);
-		while(this.time >= this.anim.getNextTime()) {
-			this.anim.setIndices(this.anim.getPreviousIndex()+1, this.anim.getNextIndex()+1, this.time);
-			if(this.anim.getNextIndex() == this.anim.getFrameCount() - 1) {
-				this.anim.setIndices(0, 1, this.time);
-				this.complete = true;
-				this.time = 0.0f;
-				break;
-			}
+		final IMD5Clip clip = this.anim.getClip();
+		final int last = clip.getFrameCount() - 1;
+		final int next = this.forward(clip, this.anim.getState());
+		if(next < 0) return;
+		if(next == last) {
+			this.anim.setIndices(0, 1, this.time);
+			this.complete = true;
+			this.time = 0.0f;
+		} else {
+			this.anim.setIndices(next-1, next, this.time);
 		}
 	}
 
+	/**
+	 * Retrieve the next frame index when playing forward to the current
+	 * time. The index is located directly from the time, so large time
+	 * steps do not require stepping through every frame in between.
+	 * @param clip The <code>IMD5Clip</code> of the animation.
+	 * @param state The current <code>IPlaybackState</code>.
+	 * @return The <code>Integer</code> next frame index clamped to the last
+	 * frame index. -1 if the current next frame has not yet been reached.
+	 */
+	private int forward(IMD5Clip clip, IPlaybackState state) {
+		if(this.time < clip.getFrameTime(state.getNextIndex())) return -1;
+		return Math.min(clip.getFrameIndex(this.time) + 1, clip.getFrameCount() - 1);
+	}
+
 	@Override
 	public void setRepeatType(ERepeatType type) {
 		this.repeat = type;
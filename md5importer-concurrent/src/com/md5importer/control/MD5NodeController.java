@@ -7,9 +7,12 @@ import com.jme.math.Vector3f;
 import com.md5importer.interfaces.IObservable;
 import com.md5importer.interfaces.control.IMD5NodeController;
 import com.md5importer.interfaces.model.IMD5Anim;
+import com.md5importer.interfaces.model.IMD5Clip;
 import com.md5importer.interfaces.model.IMD5Node;
-import com.md5importer.interfaces.model.anim.IFrame;
+import com.md5importer.interfaces.model.anim.IPlaybackState;
 import com.md5importer.interfaces.model.mesh.IJoint;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
+import com.md5importer.model.anim.Frame;
 
 /**
  * <code>MD5NodeController</code> defines the concrete implementation
@@ -20,6 +23,14 @@ import com.md5importer.interfaces.model.mesh.IJoint;
  * <code>MD5NodeController</code> uses lazy initialization on the
  * temporary blending records since the blending utility may never
  * be used.
+ * <p>
+ * <code>MD5NodeController</code> reconstructs the previous and next
+ * frames of the active <code>IMD5Anim</code> into reused packed arrays,
+ * and reads them sequentially without accessing any frame objects.
+ * The frame indices and time are read from a single playback state
+ * snapshot so that both frames belong to the same update. The
+ * interpolated local transforms are written into the skeleton of the
+ * node, which then evaluates all joints in a single batched pass.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 03-23-2009 15:13 EST
@@ -42,6 +53,30 @@ public class MD5NodeController extends AbstractController implements IMD5NodeCon
 	 * The <code>Quaternion</code> temporary orientation.
 	 */
 	private final Quaternion orientation;
+	/**
+	 * The temporary packed <code>Float</code> array of the previous frame.
+	 */
+	private final float[] prevTransforms;
+	/**
+	 * The temporary packed <code>Float</code> array of the next frame.
+	 */
+	private final float[] nextTransforms;
+	/**
+	 * The <code>Vector3f</code> temporary previous frame translation.
+	 */
+	private final Vector3f prevTranslation;
+	/**
+	 * The <code>Vector3f</code> temporary next frame translation.
+	 */
+	private final Vector3f nextTranslation;
+	/**
+	 * The <code>Quaternion</code> temporary previous frame orientation.
+	 */
+	private final Quaternion prevOrientation;
+	/**
+	 * The <code>Quaternion</code> temporary next frame orientation.
+	 */
+	private final Quaternion nextOrientation;
 	/**
 	 * The update <code>ReentrantLock</code>.
 	 */
@@ -60,6 +95,12 @@ public class MD5NodeController extends AbstractController implements IMD5NodeCon
 		this.joints = node.getJoints();
 		this.translation = new Vector3f();
 		this.orientation = new Quaternion();
+		this.prevTransforms = new float[this.joints.length * Frame.stride];
+		this.nextTransforms = new float[this.joints.length * Frame.stride];
+		this.prevTranslation = new Vector3f();
+		this.nextTranslation = new Vector3f();
+		this.prevOrientation = new Quaternion();
+		this.nextOrientation = new Quaternion();
 		this.lock = new ReentrantLock();
 	}
 
@@ -73,7 +114,10 @@ public class MD5NodeController extends AbstractController implements IMD5NodeCon
 		this.lock.lock();
 		try {
 			final IMD5Anim anim = (IMD5Anim)observable;
-			this.updateJoints(this.interpolation(anim), anim.getPreviousFrame(), anim.getNextFrame());
+			final IPlaybackState state = anim.getState();
+			anim.getTransforms(state.getPreviousIndex(), this.prevTransforms);
+			anim.getTransforms(state.getNextIndex(), this.nextTransforms);
+			this.updateJoints(this.interpolation(anim.getClip(), state), this.prevTransforms, this.nextTransforms);
 			this.node.updateMeshes();
 		} finally {
 			this.lock.unlock();
@@ -81,34 +125,41 @@ public class MD5NodeController extends AbstractController implements IMD5NodeCon
 	}
 
 	/**
-	 * Update the joints based on given interpolation and frame.
+	 * Update the joints based on given interpolation and frames.
 	 * @param interpolation The <code>Float</code> update interpolation.
-	 * @param prev The previous <code>IFrame</code> in the active animation.
-	 * @param next The next <code>IFrame</code> in the active animation.
-	 */
-	private void updateJoints(final float interpolation, final IFrame prev, final IFrame next) {
-		for(int i = 0; i < this.joints.length; i++) {
-			this.translation.interpolate(prev.getTranslation(i), next.getTranslation(i), interpolation);
-			this.orientation.slerp(prev.getOrientation(i), next.getOrientation(i), interpolation);
-			this.joints[i].updateTransform(this.translation, this.orientation);
-			this.joints[i].processRelative();
+	 * @param prevs The packed <code>Float</code> array of the previous frame.
+	 * @param nexts The packed <code>Float</code> array of the next frame.
+	 */
+	private void updateJoints(final float interpolation, final float[] prevs, final float[] nexts) {
+		// The node replaces its skeleton when it is detached from a parent.
+		final ISkeleton skeleton = this.node.getSkeleton();
+		for(int i = 0, base = 0; i < this.joints.length; i++, base += Frame.stride) {
+			this.prevTranslation.set(prevs[base], prevs[base + 1], prevs[base + 2]);
+			this.nextTranslation.set(nexts[base], nexts[base + 1], nexts[base + 2]);
+			this.prevOrientation.set(prevs[base + 3], prevs[base + 4], prevs[base + 5], prevs[base + 6]);
+			this.nextOrientation.set(nexts[base + 3], nexts[base + 4], nexts[base + 5], nexts[base + 6]);
+			this.translation.interpolate(this.prevTranslation, this.nextTranslation, interpolation);
+			this.orientation.slerp(this.prevOrientation, this.nextOrientation, interpolation);
+			skeleton.updateLocal(i, this.translation, this.orientation);
 		}
+		skeleton.process();
 	}
 
 	/**
 	 * Retrieve the update frame interpolation value based on the
-	 * time value of given active animation.
-	 * @param anim The active <code>IMD5Anim</code>.
+	 * given playback state of the active animation.
+	 * @param clip The <code>IMD5Clip</code> of the active animation.
+	 * @param state The <code>IPlaybackState</code> snapshot.
 	 * @return The <code>Float</code> interpolation value.
 	 */
-	private float interpolation(IMD5Anim anim) {
+	private float interpolation(IMD5Clip clip, IPlaybackState state) {
 		// Calculate interpolation value.
-		final float prev = anim.getPreviousTime();
-		final float next = anim.getNextTime();
+		final float prev = clip.getFrameTime(state.getPreviousIndex());
+		final float next = clip.getFrameTime(state.getNextIndex());
 		if(prev == next) return 0.0f;
-		float interpolation = (anim.getTime() - prev) / (next - prev);
+		float interpolation = (state.getTime() - prev) / (next - prev);
 		// Add 1 if it is playing backwards.
-		if(anim.getNextIndex() < anim.getPreviousIndex()) interpolation = 1 + interpolation;
+		if(state.getNextIndex() < state.getPreviousIndex()) interpolation = 1 + interpolation;
 		// Return clamped result.
 		if(interpolation < 0.0f) return 0.0f;
 		else if (interpolation > 1.0f) return 1.0f;
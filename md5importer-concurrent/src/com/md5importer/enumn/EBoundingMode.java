@@ -0,0 +1,18 @@
+package com.md5importer.enumn;
+
+/**
+ * <code>EBoundingMode</code> defines the enumeration values of all
+ * possible mesh bounding volume update modes.
+ */
+public enum EBoundingMode {
+	/**
+	 * The tight mode that recalculates the bounding volume from all the
+	 * skinned vertices on every update.
+	 */
+	Tight,
+	/**
+	 * The conservative mode that builds an axis aligned bounding box
+	 * from the transformed bounds of the joints on every update.
+	 */
+	Conservative
+}
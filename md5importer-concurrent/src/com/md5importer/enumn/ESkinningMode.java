@@ -0,0 +1,17 @@
+package com.md5importer.enumn;
+
+/**
+ * <code>ESkinningMode</code> defines the enumeration values of all
+ * possible mesh skinning kernels.
+ */
+public enum ESkinningMode {
+	/**
+	 * The automatic mode that selects the vector kernel whenever the
+	 * platform supports it and the scalar kernel otherwise.
+	 */
+	Auto,
+	/**
+	 * The scalar mode that skins each vertex from its own weights.
+	 */
+	Scalar
+}
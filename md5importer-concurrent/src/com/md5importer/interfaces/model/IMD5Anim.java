@@ -3,6 +3,7 @@ package com.md5importer.interfaces.model;
 import com.jme.util.export.Savable;
 import com.md5importer.interfaces.IObservable;
 import com.md5importer.interfaces.model.anim.IFrame;
+import com.md5importer.interfaces.model.anim.IPlaybackState;
 
 /**
  * <code>IMD5Anim</code> defines the interface of a data structure
@@ -10,6 +11,11 @@ import com.md5importer.interfaces.model.anim.IFrame;
  * internally utilizes <code>IFrame</code> instances to actually
  * maintain the joint position data.
  * <p>
+ * <code>IMD5Anim</code> is a playback cursor over an immutable
+ * <code>IMD5Clip</code>. The clip data is shared by all the clones
+ * of an animation, while each clone maintains its own frame indices
+ * and elapsed time.
+ * <p>
  * <code>IMD5Anim</code> operates on the previous and next frame
  * indices set by external controller unit. It provide various
  * retrieval methods related to frames based on current set indices.
@@ -22,10 +28,12 @@ import com.md5importer.interfaces.model.anim.IFrame;
  * invoked after the indices have been set completely in an update
  * cycle.
  * <p>
- * <code>IMD5Anim</code> uses <code>ReentrantLock</code> to guard
- * <code>setIndices</code> and all the frame related retrieval
- * methods to guarantees the compound action for setting the next
- * and previous frame indices is performed atomically.
+ * <code>IMD5Anim</code> publishes the frame indices and elapsed time
+ * set by <code>setIndices</code> atomically as a single immutable
+ * <code>IPlaybackState</code>. The individual retrieval methods each
+ * read the latest snapshot, so readers that require several values
+ * of the same update should retrieve the snapshot once through the
+ * <code>getState</code> method instead.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 03-23-2009 16:17 EST
@@ -96,6 +104,29 @@ public interface IMD5Anim extends IObservable, Savable {
 	 */
 	public float getNextTime();
 	
+	/**
+	 * Reconstruct the packed transforms of the frame with given index.
+	 * The array is laid out joint after joint, with seven values per
+	 * joint in the order of translation x, y, z and orientation x, y,
+	 * z, w.
+	 * @param index The <code>Integer</code> index of the frame.
+	 * @param store The <code>Float</code> array to store the transforms in.
+	 * @return The given store array.
+	 */
+	public float[] getTransforms(int index, float[] store);
+	
+	/**
+	 * Retrieve the current playback state snapshot.
+	 * @return The immutable <code>IPlaybackState</code>.
+	 */
+	public IPlaybackState getState();
+	
+	/**
+	 * Retrieve the shared clip data of this animation.
+	 * @return The <code>IMD5Clip</code> instance.
+	 */
+	public IMD5Clip getClip();
+	
 	/**
 	 * Retrieve the IDs of joints of this animation.
 	 * @return The array of <code>String</code> IDs.
@@ -115,7 +146,8 @@ public interface IMD5Anim extends IObservable, Savable {
 	public float getTime();
 	
 	/**
-	 * Clone this animation.
+	 * Clone this animation. The clone shares the clip data with this
+	 * animation, and starts its playback from the first frame.
 	 * @return The cloned <code>IMD5Anim</code> instance.
 	 */
 	public IMD5Anim clone();
@@ -0,0 +1,85 @@
+package com.md5importer.interfaces.model;
+
+import com.jme.util.export.Savable;
+import com.md5importer.interfaces.model.anim.IFrame;
+
+/**
+ * <code>IMD5Clip</code> defines the interface of the immutable data of
+ * a completely loaded MD5 animation, which includes the joint IDs, the
+ * transforms of all frames and the timing of each frame.
+ * <p>
+ * <code>IMD5Clip</code> does not maintain any playback state. A single
+ * <code>IMD5Clip</code> instance can therefore be shared by any number
+ * of <code>IMD5Anim</code> cursors, each of which maintains its own
+ * frame indices.
+ * <p>
+ * <code>IMD5Clip</code> is never modified after construction, and can
+ * be sampled by multiple threads concurrently without locking.
+ */
+public interface IMD5Clip extends Savable {
+
+	/**
+	 * Retrieve the total time of a complete cycle of this clip.
+	 * @return The <code>Float</code> complete cycle time.
+	 */
+	public float getAnimationTime();
+
+	/**
+	 * Retrieve the total number of frames.
+	 * @return The <code>Integer</code> number of frames.
+	 */
+	public int getFrameCount();
+
+	/**
+	 * Retrieve the frame rate.
+	 * @return The <code>Float</code> frame rate.
+	 */
+	public float getFrameRate();
+
+	/**
+	 * Retrieve the starting time of the frame with given index.
+	 * @param index The <code>Integer</code> index of the frame.
+	 * @return The <code>Float</code> starting time.
+	 */
+	public float getFrameTime(int index);
+
+	/**
+	 * Retrieve the index of the last frame that starts at or before the
+	 * given time. The result is clamped between 0 and the last frame
+	 * index. The lookup takes constant time for clips with a uniform
+	 * frame rate.
+	 * @param time The <code>Float</code> time in the clip.
+	 * @return The <code>Integer</code> frame index.
+	 */
+	public int getFrameIndex(float time);
+
+	/**
+	 * Reconstruct the frame with given index.
+	 * @param index The <code>Integer</code> index of the frame.
+	 * @return The new <code>IFrame</code> instance.
+	 */
+	public IFrame getFrame(int index);
+
+	/**
+	 * Reconstruct the packed transforms of the frame with given index.
+	 * The array is laid out joint after joint, with seven values per
+	 * joint in the order of translation x, y, z and orientation x, y,
+	 * z, w.
+	 * @param index The <code>Integer</code> index of the frame.
+	 * @param store The <code>Float</code> array to store the transforms in.
+	 * @return The given store array.
+	 */
+	public float[] getTransforms(int index, float[] store);
+
+	/**
+	 * Retrieve the IDs of joints of this clip.
+	 * @return The array of <code>String</code> IDs.
+	 */
+	public String[] getJointIDs();
+
+	/**
+	 * Retrieve the name of this clip.
+	 * @return The <code>String</code> name.
+	 */
+	public String getName();
+}
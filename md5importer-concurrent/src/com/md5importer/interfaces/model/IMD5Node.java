@@ -3,12 +3,17 @@ package com.md5importer.interfaces.model;
 import com.jme.util.export.Savable;
 import com.md5importer.interfaces.model.mesh.IJoint;
 import com.md5importer.interfaces.model.mesh.IMesh;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
 
 /**
  * <code>IMD5Node</code> defines the interface of a completed loaded
  * MD5 model node. It can be maintained by other MD5 nodes as their
  * dependent child, which will force the dependent child to follow
  * the joints of its parent.
+ * <p>
+ * The model space transforms of the joints are evaluated by a single
+ * flattened <code>ISkeleton</code>, which is shared with all dependent
+ * children.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 11-17-2008 22:27 EST
@@ -26,7 +31,16 @@ public interface IMD5Node extends Savable {
 	 * meshes maintained by dependent children.
 	 * <p>
 	 * For performance and scalability issues, this method should
-	 * be invoked outside the rendering thread.
+	 * be invoked outside the rendering thread. It never blocks, and
+	 * every completed update becomes available to the next swap. It
+	 * should only be invoked by a single thread at a time.
+	 * <p>
+	 * In parallel mode, the meshes of this node and all its dependent
+	 * children are updated concurrently on worker threads, and this
+	 * method returns after all of them are completed.
+	 * <p>
+	 * The update is skipped if the pose of the skeleton has not changed
+	 * since the latest update.
 	 * <p>
 	 * This method is internally invoked by the node controller
 	 * unit. User should not need to directly invoke this method.
@@ -39,7 +53,8 @@ public interface IMD5Node extends Savable {
 	 * <p>
 	 * In order for the updated meshes to be rendered properly, this
 	 * method should be invoked within the rendering thread in a single
-	 * rendering cycle.
+	 * rendering cycle. It never blocks, and presents the latest completed
+	 * update. The current buffers are kept if there is no newer update.
 	 * <p>
 	 * This method should be invoked by the user application. There is
 	 * no internal invocation.
@@ -91,6 +106,13 @@ public interface IMD5Node extends Savable {
 	 */
 	public IJoint[] getJoints();
 	
+	/**
+	 * Retrieve the flattened skeleton that evaluates the joints of this
+	 * MD5 node. Dependent nodes return the skeleton of their parent.
+	 * @return The <code>ISkeleton</code> instance.
+	 */
+	public ISkeleton getSkeleton();
+	
 	/**
 	 * Retrieve the joint with given index.
 	 * @param index The <code>Integer</code> index number.
@@ -128,6 +150,20 @@ public interface IMD5Node extends Savable {
 	 * @return True if this MD5 node is dependent. False otherwise.
 	 */
 	public boolean isDependent();
+
+	/**
+	 * Set if the meshes of this node and its dependent children should
+	 * be updated concurrently. The default value is true.
+	 * @param parallel True if the meshes should be updated in parallel. False otherwise.
+	 */
+	public void setParallel(boolean parallel);
+
+	/**
+	 * Check if the meshes of this node and its dependent children are
+	 * updated concurrently.
+	 * @return True if the meshes are updated in parallel. False otherwise.
+	 */
+	public boolean isParallel();
 	
 	/**
 	 * Clone this MD5 node.
@@ -8,6 +8,9 @@ import com.jme.util.export.Savable;
  * <code>IFrame</code> defines the interface of a single frame of a
  * skeletal animation. It maintains the translation and orientation
  * of the entire skeleton at a particular frame in the animation.
+ * <p>
+ * The transform values of a joint are indexed in the order of
+ * translation x, y, z followed by orientation x, y, z, w.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 11-17-2008 22:02 EST
@@ -26,17 +29,33 @@ public interface IFrame extends Savable {
 	/**
 	 * Retrieve the translation of the <code>Joint</code> with given index.
 	 * @param jointIndex The <code>Joint</code> index number.
-	 * @return The <code>Vector3f</code> translation value.
+	 * @return The new <code>Vector3f</code> translation value.
 	 */
 	public Vector3f getTranslation(int jointIndex);
+	
+	/**
+	 * Retrieve the translation of the joint with given index.
+	 * @param jointIndex The <code>Integer</code> joint index.
+	 * @param store The <code>Vector3f</code> to store the result in.
+	 * @return The given <code>Vector3f</code> store.
+	 */
+	public Vector3f getTranslation(int jointIndex, Vector3f store);
 
 	/**
 	 * Retrieve the orientation of the <code>Joint</code> with given index.
 	 * @param jointIndex The <code>Joint</code> number.
-	 * @return The <code>Quaternion</code> orientation value.
+	 * @return The new <code>Quaternion</code> orientation value.
 	 */
 	public Quaternion getOrientation(int jointIndex);
 	
+	/**
+	 * Retrieve the orientation of the joint with given index.
+	 * @param jointIndex The <code>Integer</code> joint index.
+	 * @param store The <code>Quaternion</code> to store the result in.
+	 * @return The given <code>Quaternion</code> store.
+	 */
+	public Quaternion getOrientation(int jointIndex, Quaternion store);
+	
 	/**
 	 * Retrieve the transform value with given indices.
 	 * @param jointIndex The <code>Integer</code> joint index.
@@ -44,6 +63,12 @@ public interface IFrame extends Savable {
 	 * @return The <code>Float</code> transform value.
 	 */
 	public float getTransformValue(int jointIndex, int transIndex);
+	
+	/**
+	 * Retrieve the number of joints in this frame.
+	 * @return The <code>Integer</code> number of joints.
+	 */
+	public int getJointCount();
 
 	/**
 	 * Clone this frame.
@@ -0,0 +1,31 @@
+package com.md5importer.interfaces.model.anim;
+
+/**
+ * <code>IPlaybackState</code> defines the interface of an immutable
+ * snapshot of the playback state of an animation, which consists of
+ * the previous and next frame indices and the elapsed time.
+ * <p>
+ * <code>IPlaybackState</code> instances are never modified after
+ * construction. Readers that retrieve a single snapshot are therefore
+ * guaranteed to observe values that were set together.
+ */
+public interface IPlaybackState {
+
+	/**
+	 * Retrieve the previous frame index number.
+	 * @return The <code>Integer</code> index number.
+	 */
+	public int getPreviousIndex();
+
+	/**
+	 * Retrieve the next frame index number.
+	 * @return The <code>Integer</code> index number.
+	 */
+	public int getNextIndex();
+
+	/**
+	 * Retrieve the elapsed time since last frame change.
+	 * @return The <code>Float</code> time value.
+	 */
+	public float getTime();
+}
@@ -22,14 +22,17 @@ public interface IMesh extends Savable {
 	public void initialize(String name);
 
 	/**
-	 * Update this mesh and its geometric data.
+	 * Update the geometric data of this mesh into the buffer set with
+	 * given index.
+	 * @param buffer The <code>Integer</code> index of the buffer set.
 	 */
-	public void updateMesh();
+	public void updateMesh(int buffer);
 	
 	/**
-	 * Swap the vertex information buffers.
+	 * Present the vertex information in the buffer set with given index.
+	 * @param buffer The <code>Integer</code> index of the buffer set.
 	 */
-	public void swapBuffer();
+	public void swapBuffer(int buffer);
 	
 	/**
 	 * Set this mesh to use the given joints.
@@ -38,21 +41,33 @@ public interface IMesh extends Savable {
 	public void setJoints(IJoint[] joints);
 
 	/**
-	 * Retrieve the vertex with given index number.
+	 * Set this mesh to be skinned with the packed joint matrices of the
+	 * given skeleton. This also sets the mesh to use the joints of the
+	 * skeleton.
+	 * @param skeleton The <code>ISkeleton</code> to be used.
+	 */
+	public void setSkeleton(ISkeleton skeleton);
+
+	/**
+	 * Retrieve the vertex with given index number. The returned
+	 * instance is a new copy of the shared model data and does not
+	 * reflect the skinned position.
 	 * @param index The <code>Integer</code> index number of the <code>IVertex</code>.
 	 * @return The <code>IVertex</code> instance with given index number.
 	 */
 	public IVertex getVertex(int index);
 
 	/**
-	 * Retrieve the weight with given index number.
+	 * Retrieve the weight with given index number. The returned
+	 * instance is a new copy of the shared model data.
 	 * @param index The <code>Integer</code> index number of the <code>Weight</code>.
 	 * @return The <code>Weight</code> instance with given index number.
 	 */
 	public IWeight getWeight(int index);
 
 	/**
-	 * Clone this mesh.
+	 * Clone this mesh. The clone shares all the immutable model data
+	 * with this mesh and only allocates its own per instance state.
 	 * @param clonedJoints The array of cloned <code>IJoint</code>.
 	 * @return The cloned copy of this <code>IMesh</code>
 	 */
@@ -0,0 +1,93 @@
+package com.md5importer.interfaces.model.mesh;
+
+import com.jme.math.Quaternion;
+import com.jme.math.Vector3f;
+
+/**
+ * <code>ISkeleton</code> defines the interface of a flattened skeleton
+ * that evaluates the model space transforms of all the joints of a
+ * model in a single batched pass.
+ * <p>
+ * <code>ISkeleton</code> maintains the local transform of every joint
+ * as packed arrays with seven values per joint in the order of
+ * translation x, y, z and orientation x, y, z, w. The model space
+ * transforms are maintained as packed 3x4 matrices with twelve values
+ * per joint in row major order, where the last value of each row is
+ * the translation.
+ * <p>
+ * The evaluated transforms are also stored into the transform of each
+ * <code>IJoint</code>, so the joints always reflect the latest pass.
+ * <p>
+ * The pose version of <code>ISkeleton</code> changes whenever a pass
+ * changes any model space transform, which allows the users of the
+ * skeleton to skip any work for an unchanged pose.
+ */
+public interface ISkeleton {
+
+	/**
+	 * Update the local transform of the joint with given index.
+	 * @param index The <code>Integer</code> index of the joint.
+	 * @param translation The <code>Vector3f</code> local translation.
+	 * @param orientation The <code>Quaternion</code> local orientation.
+	 */
+	public void updateLocal(int index, Vector3f translation, Quaternion orientation);
+
+	/**
+	 * Reload the packed local transforms from the local transforms of
+	 * the joints. This is only required if the joints are modified
+	 * directly instead of through <code>updateLocal</code>.
+	 */
+	public void processLocals();
+
+	/**
+	 * Evaluate the model space transforms of all joints in a single pass.
+	 */
+	public void process();
+
+	/**
+	 * Retrieve the version of the pose evaluated by the latest pass.
+	 * @return The <code>Integer</code> version that changes whenever a pass changes any joint.
+	 */
+	public int getVersion();
+
+	/**
+	 * Retrieve the number of joints.
+	 * @return The <code>Integer</code> number of joints.
+	 */
+	public int getJointCount();
+
+	/**
+	 * Retrieve the parent joint index of each joint, indexed by joint
+	 * index. The evaluation order is retrieved by <code>getOrder</code>.
+	 * The returned array should not be modified.
+	 * @return The <code>Integer</code> array of parent indices. -1 for root joints.
+	 */
+	public int[] getParents();
+
+	/**
+	 * Retrieve the joint evaluation order. The returned array should not
+	 * be modified.
+	 * @return The <code>Integer</code> array of joint indices.
+	 */
+	public int[] getOrder();
+
+	/**
+	 * Retrieve the packed local transforms. The returned array should not
+	 * be modified.
+	 * @return The <code>Float</code> array with seven values per joint.
+	 */
+	public float[] getLocals();
+
+	/**
+	 * Retrieve the packed model space matrices evaluated by the latest
+	 * pass. The returned array should not be modified.
+	 * @return The <code>Float</code> array with twelve values per joint.
+	 */
+	public float[] getMatrices();
+
+	/**
+	 * Retrieve the joints of this skeleton.
+	 * @return The array of <code>IJoint</code>.
+	 */
+	public IJoint[] getJoints();
+}
@@ -0,0 +1,55 @@
+package com.md5importer.interfaces.model.mesh;
+
+/**
+ * <code>ISkinningKernel</code> defines the interface of a kernel that
+ * transforms joint major weight batches with the packed joint matrices
+ * of an <code>ISkeleton</code>.
+ * <p>
+ * <code>ISkinningKernel</code> only operates on arrays, so that an
+ * implementation depending on an optional platform module can be loaded
+ * reflectively without referencing any other class of the importer. The
+ * weights of joint i occupy the slots from element i inclusive to
+ * element i + 1 exclusive of the batch boundaries, and each transformed
+ * weight is stored into the same slot of the given store arrays.
+ * <p>
+ * Implementations must be stateless, so that any number of threads may
+ * transform disjoint joint ranges concurrently.
+ */
+public interface ISkinningKernel {
+
+	/**
+	 * Transform the weighted positions of the joints within the given range
+	 * by the full joint matrices.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices.
+	 * @param batches The <code>Integer</code> array of batch boundaries indexed by joint.
+	 * @param xs The <code>Float</code> array of x positions in batch order.
+	 * @param ys The <code>Float</code> array of y positions in batch order.
+	 * @param zs The <code>Float</code> array of z positions in batch order.
+	 * @param values The <code>Float</code> array of weight values in batch order.
+	 * @param storeX The <code>Float</code> array to store the weighted x positions in.
+	 * @param storeY The <code>Float</code> array to store the weighted y positions in.
+	 * @param storeZ The <code>Float</code> array to store the weighted z positions in.
+	 * @param from The <code>Integer</code> index of the first joint, inclusive.
+	 * @param to The <code>Integer</code> index of the last joint, exclusive.
+	 */
+	public void transformPositions(float[] matrices, int[] batches, float[] xs, float[] ys, float[] zs, float[] values,
+			float[] storeX, float[] storeY, float[] storeZ, int from, int to);
+
+	/**
+	 * Transform the weighted normals of the joints within the given range
+	 * by the joint rotations only.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices.
+	 * @param batches The <code>Integer</code> array of batch boundaries indexed by joint.
+	 * @param xs The <code>Float</code> array of x normals in batch order.
+	 * @param ys The <code>Float</code> array of y normals in batch order.
+	 * @param zs The <code>Float</code> array of z normals in batch order.
+	 * @param values The <code>Float</code> array of weight values in batch order.
+	 * @param storeX The <code>Float</code> array to store the weighted x normals in.
+	 * @param storeY The <code>Float</code> array to store the weighted y normals in.
+	 * @param storeZ The <code>Float</code> array to store the weighted z normals in.
+	 * @param from The <code>Integer</code> index of the first joint, inclusive.
+	 * @param to The <code>Integer</code> index of the last joint, exclusive.
+	 */
+	public void transformNormals(float[] matrices, int[] batches, float[] xs, float[] ys, float[] zs, float[] values,
+			float[] storeX, float[] storeY, float[] storeZ, int from, int to);
+}
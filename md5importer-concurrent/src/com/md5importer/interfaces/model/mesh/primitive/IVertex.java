@@ -71,6 +71,12 @@ public interface IVertex extends Savable {
 	 */
 	public int getUsedTimes();
 
+	/**
+	 * Retrieve the weights that affect this vertex.
+	 * @return The array of <code>IWeight</code> instances.
+	 */
+	public IWeight[] getWeights();
+
 	/**
 	 * Retrieve the position of this vertex.
 	 * @return The <code>Vector3f</code> position.
@@ -1,53 +1,55 @@
 package com.md5importer.loader;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.StreamTokenizer;
 import java.util.BitSet;
+import java.util.concurrent.RecursiveAction;
 
 import com.md5importer.interfaces.model.IMD5Anim;
-import com.md5importer.interfaces.model.anim.IFrame;
 import com.md5importer.model.MD5Anim;
+import com.md5importer.model.MD5Clip;
 import com.md5importer.model.anim.BaseFrame;
 import com.md5importer.model.anim.Frame;
+import com.md5importer.model.anim.FrameChannels;
 
 /**
  * <code>AnimLoader</code> is responsible for importing MD5Anim
  * resources and constructing the final <code>IMD5Anim</code>
  * instance.
  * <p>
+ * <code>AnimLoader</code> decodes frame blocks in parallel when the
+ * parallel mode is set. Every frame block only depends on the flags,
+ * base frame and hierarchy, which are all read before the first frame.
+ * The first pass therefore only tokenizes to the end of each frame block
+ * to record its byte range, and the blocks are then decoded concurrently
+ * after the file is scanned. Both modes reject frame indices out of range
+ * and files missing any of the declared frames.
+ * <p>
+ * <code>AnimLoader</code> maintains all parsing states in a context
+ * created for every load, so a single instance can load multiple files
+ * concurrently from different threads.
+ * <p>
+ * <code>AnimLoader</code> only stores the channels flagged as animated
+ * in the hierarchy for each frame. All other values are stored once in
+ * a pose constructed from the base frame, which is shared by all frames
+ * of the constructed animation.
+ * <p>
+ * <code>AnimLoader</code> stores the pose and the animated channels in
+ * the <code>ImportCache</code>.
+ * <p>
  * <code>AnimLoader</code> is used by <code>MD5Importer</code>
  * internally only.
  *
  * @author Yi Wang (Neakor)
  * @version Modified date: 03-24-2009 14:54 EST
  */
-public class AnimLoader extends ResourceLoader<IMD5Anim> {
-	/**
-	 * The frame rate of the animation.
-	 */
-	private float frameRate;
-	/**
-	 * The <code>String</code> array of joint name IDs.
-	 */
-	private String[] idHierarchy;
-	/**
-	 * The <code>Integer</code> array of parent index.
-	 */
-	private int[] parentHierarchy;
-	/**
-	 * The <code>BitSet</code> flags indicates if a frame contains
-	 * its own translation and orientation data or uses the base
-	 * frame data.
-	 */
-	private BitSet frameflags;
-	/**
-	 * The base <code>BaseFrame</code> of the animation.
-	 */
-	private BaseFrame baseframe;
+public class AnimLoader extends ResourceLoader<IMD5Anim, AnimLoader.AnimContext> {
 	/**
-	 * The array of <code>IFrame</code> for the animation.
+	 * The <code>Integer</code> array of pose indices of the values of
+	 * root joints, which are stored in reversed order in the file.
 	 */
-	private IFrame[] frames;
+	private static final int[] swizzle = {2, 1, 0, 5, 4, 3};
 
 	/**
 	 * Constructor of <code>AnimLoader</code>.
@@ -57,163 +59,353 @@ public class AnimLoader extends ResourceLoader<IMD5Anim> {
 	}
 
 	@Override
-	protected IMD5Anim load(String name) throws IOException {
-		this.processAnim();
-		return this.constructAnimation(name);
+	protected AnimContext parse(MD5Tokenizer reader) {
+		final AnimContext context = new AnimContext(reader);
+		context.processAnim();
+		return context;
+	}
+
+	@Override
+	protected IMD5Anim construct(AnimContext context, String name) {
+		return context.constructAnimation(name);
+	}
+
+	@Override
+	protected void write(AnimContext context, DataOutput out) throws IOException {
+		context.write(out);
+	}
+
+	@Override
+	protected AnimContext read(DataInput in) throws IOException {
+		final AnimContext context = new AnimContext(null);
+		context.read(in);
+		return context;
+	}
+
+	@Override
+	protected String getType() {
+		return "md5anim";
 	}
 
 	/**
-	 * Process the information in md5anim file.
-	 * @throws IOException If errors occurred during file reading.
+	 * <code>AnimContext</code> maintains the parsing states of a single
+	 * load invocation.
 	 */
-	private void processAnim() throws IOException {
-		String sval = null;
-		while(this.reader.nextToken() != StreamTokenizer.TT_EOF) {
-			sval = this.reader.sval;
-			if(sval != null) {
-				if(sval.equals("MD5Version")) {
-					this.reader.nextToken();
-					if(this.reader.nval != AnimLoader.version) {
-						throw new IllegalArgumentException("Invalid MD5 format version: " + this.reader.nval);
+	class AnimContext {
+		/**
+		 * The <code>MD5Tokenizer</code> of the file. <code>null</code> if read from cache.
+		 */
+		private final MD5Tokenizer reader;
+		/**
+		 * The <code>Boolean</code> parallel mode flag of the load.
+		 */
+		private final boolean parallel;
+		/**
+		 * The frame rate of the animation.
+		 */
+		private float frameRate;
+		/**
+		 * The <code>String</code> array of joint name IDs.
+		 */
+		private String[] idHierarchy;
+		/**
+		 * The <code>Integer</code> array of parent index.
+		 */
+		private int[] parentHierarchy;
+		/**
+		 * The <code>BitSet</code> flags indicates if a frame contains
+		 * its own translation and orientation data or uses the base
+		 * frame data.
+		 */
+		private BitSet frameflags;
+		/**
+		 * The base <code>BaseFrame</code> of the animation.
+		 */
+		private BaseFrame baseframe;
+		/**
+		 * The <code>Integer</code> number of frames.
+		 */
+		private int numFrames;
+		/**
+		 * The shared pose <code>Float</code> array with seven values per joint.
+		 */
+		private float[] pose;
+		/**
+		 * The <code>Integer</code> array of pose indices of animated channels.
+		 */
+		private int[] channels;
+		/**
+		 * The <code>Integer</code> array of pose indices of derived orientations.
+		 */
+		private int[] derived;
+		/**
+		 * The <code>Float</code> array of channel values of all frames.
+		 */
+		private float[] samples;
+		/**
+		 * The <code>BitSet</code> of frame indices read from the file.
+		 */
+		private BitSet frames;
+		/**
+		 * The <code>Integer</code> array of frame block start indices in parallel mode.
+		 */
+		private int[] frameStarts;
+		/**
+		 * The <code>Integer</code> array of frame block end indices in parallel mode.
+		 */
+		private int[] frameEnds;
+
+		/**
+		 * Constructor of <code>AnimContext</code>.
+		 * @param reader The <code>MD5Tokenizer</code> of the file. <code>null</code> if read from cache.
+		 */
+		private AnimContext(MD5Tokenizer reader) {
+			this.reader = reader;
+			this.parallel = AnimLoader.this.parallel;
+		}
+
+		/**
+		 * Process the information in md5anim file.
+		 */
+		private void processAnim() {
+			while(this.reader.nextToken() != MD5Tokenizer.TT_EOF) {
+				if(this.reader.getType() != MD5Tokenizer.TT_WORD) continue;
+				if(this.reader.isWord("MD5Version")) {
+					final float version = this.reader.nextNumber();
+					if(version != AnimLoader.version) {
+						throw new IllegalArgumentException("Invalid MD5 format version: " + version);
 					}
-				} else if(sval.equals("numFrames")) {
-					this.reader.nextToken();
-					this.frames = new Frame[(int)this.reader.nval];
-				} else if(sval.equals("numJoints")) {
-					this.reader.nextToken();
-					int numJoints = (int)this.reader.nval;
+				} else if(this.reader.isWord("numFrames")) {
+					this.numFrames = (int)this.reader.nextNumber();
+				} else if(this.reader.isWord("numJoints")) {
+					final int numJoints = (int)this.reader.nextNumber();
 					this.idHierarchy = new String[numJoints];
 					this.parentHierarchy = new int[numJoints];
-				} else if(sval.equals("frameRate")) {
-					this.reader.nextToken();
-					this.frameRate = (int)this.reader.nval;
-				} else if(sval.equals("hierarchy")) {
-					this.reader.nextToken();
+				} else if(this.reader.isWord("frameRate")) {
+					this.frameRate = (int)this.reader.nextNumber();
+				} else if(this.reader.isWord("hierarchy")) {
 					this.processHierarchy();
-				} else if(sval.equals("baseframe")) {
-					this.reader.nextToken();
+				} else if(this.reader.isWord("baseframe")) {
 					this.processBaseframe();
-				} else if(sval.equals("frame")) {
-					this.reader.nextToken();
-					this.processFrame((int)this.reader.nval);
+				} else if(this.reader.isWord("frame")) {
+					final int index = (int)this.reader.nextNumber();
+					if(index < 0 || index >= this.numFrames) throw new IllegalStateException("Invalid frame: " + index);
+					if(this.frames == null) this.frames = new BitSet(this.numFrames);
+					this.frames.set(index);
+					if(this.parallel) this.scanFrame(index);
+					else this.processFrame(this.reader, index);
 				}
 			}
+			final int missing = (this.frames != null) ? this.frames.nextClearBit(0) : 0;
+			if(missing < this.numFrames) throw new IllegalStateException("Missing frame: " + missing);
+			if(this.parallel && this.frameStarts != null) AnimLoader.this.pool.invoke(new FrameTask(0, this.numFrames));
 		}
-	}
 
-	/**
-	 * Process the hierarchy section to obtain the bit-set flags.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processHierarchy() throws IOException {
-		this.frameflags = new BitSet();
-		int pointer = -1;
-		int joint = -1;
-		int flag = -1;
-		while(this.reader.nextToken() != '}') {
-			pointer++;
-			switch(this.reader.ttype) {
-			case '"':
-				this.idHierarchy[joint] = this.reader.sval;
-				break;
-			case StreamTokenizer.TT_NUMBER:
-				switch(pointer) {
-				case 2:
-					this.parentHierarchy[joint] = (int)this.reader.nval;
-					break;
-				case 3:
-					flag = (int)this.reader.nval;
-					for(int i = 0; i < 6; i++) {
-						this.frameflags.set(joint * 6 + i, (flag & (1 << i)) != 0);
-					}
-					break;
-				}
-				break;
-			case StreamTokenizer.TT_EOL:
-				pointer = 0;
+		/**
+		 * Process the hierarchy section to obtain the bit-set flags.
+		 */
+		private void processHierarchy() {
+			this.frameflags = new BitSet();
+			int joint = -1;
+			while(this.reader.nextToken() != '}') {
+				if(this.reader.getType() == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of hierarchy.");
+				if(this.reader.getType() != MD5Tokenizer.TT_QUOTE) continue;
 				joint++;
-				break;
+				this.idHierarchy[joint] = this.reader.getString();
+				this.parentHierarchy[joint] = (int)this.reader.nextNumber();
+				final int flag = (int)this.reader.nextNumber();
+				for(int i = 0; i < 6; i++) {
+					this.frameflags.set(joint * 6 + i, (flag & (1 << i)) != 0);
+				}
 			}
+			this.processChannels();
 		}
-	}
 
-	/**
-	 * Process information to construct the base frame.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processBaseframe() throws IOException {
-		this.baseframe = new BaseFrame(this.idHierarchy.length, this.parentHierarchy);
-		int pointer = -1;
-		int jointIndex = -1;
-		while(this.reader.nextToken() != '}') {
-			switch(this.reader.ttype) {
-			case '(':
-				while(this.reader.nextToken() != ')') {
-					this.baseframe.setTransform(jointIndex, pointer, (float)this.reader.nval);
-					pointer++;
+		/**
+		 * Process the bit-set flags to obtain the pose indices of animated
+		 * channels in the order they are stored in each frame.
+		 */
+		private void processChannels() {
+			this.channels = new int[this.frameflags.cardinality()];
+			final int[] rotated = new int[this.parentHierarchy.length];
+			int count = 0;
+			int index = 0;
+			for(int i = 0; i < this.parentHierarchy.length; i++) {
+				boolean animated = false;
+				for(int j = 0; j < 6; j++) {
+					if(!this.frameflags.get(i * 6 + j)) continue;
+					final int value = (this.parentHierarchy[i] < 0) ? AnimLoader.swizzle[j] : j;
+					this.channels[index++] = i * Frame.stride + value;
+					if(value >= 3) animated = true;
 				}
-				break;
-			case StreamTokenizer.TT_EOL:
-				pointer = 0;
-				jointIndex++;
-				break;
+				if(animated) rotated[count++] = i * Frame.stride;
 			}
+			this.derived = new int[count];
+			System.arraycopy(rotated, 0, this.derived, 0, count);
 		}
-		for(int i = 0 ; i < this.parentHierarchy.length; i++) {
-			if(this.baseframe.getParent(i) < 0) {
-				this.baseframe.getOrientation(i).set(AnimLoader.base.mult(this.baseframe.getOrientation(i)));
+
+		/**
+		 * Process information to construct the base frame and the shared
+		 * pose of all frames.
+		 */
+		private void processBaseframe() {
+			this.samples = new float[this.numFrames * this.channels.length];
+			this.baseframe = new BaseFrame(this.idHierarchy.length, this.parentHierarchy);
+			for(int i = 0; i < this.parentHierarchy.length; i++) {
+				for(int j = 0; j < 6; j++) {
+					this.baseframe.setTransform(i, j, this.reader.nextNumber());
+				}
 			}
+			this.reader.skipTo('}');
+			for(int i = 0 ; i < this.parentHierarchy.length; i++) {
+				if(this.baseframe.getParent(i) < 0) {
+					this.baseframe.setOrientation(i, AnimLoader.base.mult(this.baseframe.getOrientation(i)));
+				}
+			}
+			this.processPose();
 		}
-	}
 
-	/**
-	 * Process information to construct in a single frame.
-	 * @param index The <code>Integer</code> index of the frame.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processFrame(int index) throws IOException {
-		this.frames[index] = new Frame(this.idHierarchy.length);
-		float[] values = new float[6];
-		for(int i = 0; i < this.parentHierarchy.length; i++) {
-			for(int j = 0; j < values.length; j++) {
-				if(this.frameflags.get(i * 6 + j)) {
-					while(this.reader.nextToken() != StreamTokenizer.TT_NUMBER);
-					values[j] = (float)this.reader.nval;
-				} else {
-					values[j] = this.baseframe.getTransformValue(i, j);
+		/**
+		 * Process the base frame to construct the shared pose.
+		 */
+		private void processPose() {
+			this.pose = new float[this.idHierarchy.length * Frame.stride];
+			for(int i = 0; i < this.parentHierarchy.length; i++) {
+				final int offset = i * Frame.stride;
+				for(int j = 0; j < 6; j++) {
+					final int value = (this.parentHierarchy[i] < 0) ? AnimLoader.swizzle[j] : j;
+					this.pose[offset + value] = this.baseframe.getTransformValue(i, j);
 				}
+				Frame.processOrientation(this.pose, offset);
+			}
+		}
+
+		/**
+		 * Record the byte range of a single frame block without decoding it.
+		 * @param index The <code>Integer</code> index of the frame.
+		 */
+		private void scanFrame(int index) {
+			if(this.frameStarts == null) {
+				this.frameStarts = new int[this.numFrames];
+				this.frameEnds = new int[this.numFrames];
+			}
+			this.frameStarts[index] = this.reader.getPosition();
+			while(this.reader.nextToken() != '}') {
+				if(this.reader.getType() == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of frame: " + index);
 			}
-			if(this.parentHierarchy[i] < 0) {
-				this.frames[index].setTransform(i, 0, values[2]);
-				this.frames[index].setTransform(i, 1, values[1]);
-				this.frames[index].setTransform(i, 2, values[0]);
-				this.frames[index].setTransform(i, 3, values[5]);
-				this.frames[index].setTransform(i, 4, values[4]);
-				this.frames[index].setTransform(i, 5, values[3]);
-			} else {
-				for(int t = 0; t < values.length; t++) {
-					this.frames[index].setTransform(i, t, values[t]);
+			this.frameEnds[index] = this.reader.getPosition();
+		}
+
+		/**
+		 * Process information to read the animated channels of a single frame.
+		 * @param reader The <code>MD5Tokenizer</code> positioned before the frame data.
+		 * @param index The <code>Integer</code> index of the frame.
+		 */
+		private void processFrame(MD5Tokenizer reader, int index) {
+			final int start = index * this.channels.length;
+			for(int i = 0; i < this.channels.length; i++) {
+				this.samples[start + i] = reader.nextNumber();
+			}
+		}
+
+		/**
+		 * <code>FrameTask</code> decodes a range of recorded frame blocks,
+		 * splitting the range until it is small enough to decode directly.
+		 */
+		private class FrameTask extends RecursiveAction {
+			/**
+			 * Serial version.
+			 */
+			private static final long serialVersionUID = 2417385903472718571L;
+			/**
+			 * The <code>Integer</code> number of frames decoded without splitting.
+			 */
+			private static final int threshold = 16;
+			/**
+			 * The <code>Integer</code> first frame index.
+			 */
+			private final int start;
+			/**
+			 * The <code>Integer</code> exclusive last frame index.
+			 */
+			private final int end;
+
+			/**
+			 * Constructor of <code>FrameTask</code>.
+			 * @param start The <code>Integer</code> first frame index.
+			 * @param end The <code>Integer</code> exclusive last frame index.
+			 */
+			private FrameTask(int start, int end) {
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+				if(this.end - this.start <= FrameTask.threshold) {
+					for(int i = this.start; i < this.end; i++) {
+						processFrame(reader.range(frameStarts[i], frameEnds[i]), i);
+					}
+				} else {
+					final int middle = (this.start + this.end) >>> 1;
+					RecursiveAction.invokeAll(new FrameTask(this.start, middle), new FrameTask(middle, this.end));
 				}
 			}
 		}
-	}
 
-	/**
-	 * Construct animation based on information read in.
-	 * @param name The <code>String</code> animation name.
-	 * @return The <code>IMD5Anim</code> instance.
-	 */
-	private IMD5Anim constructAnimation(String name) {
-		return new MD5Anim(name, this.idHierarchy, this.frames, this.frameRate);
-	}
-	
-	@Override
-	public void cleanup() {
-		this.frameRate = 0;
-		this.idHierarchy = null;
-		this.parentHierarchy = null;
-		this.frameflags = null;
-		this.baseframe = null;
-		this.frames = null;
+		/**
+		 * Write the decoded information in compact binary form.
+		 * @param out The <code>DataOutput</code> to write to.
+		 * @throws IOException If writing is interrupted.
+		 */
+		private void write(DataOutput out) throws IOException {
+			out.writeFloat(this.frameRate);
+			out.writeInt(this.idHierarchy.length);
+			for(String id : this.idHierarchy) out.writeUTF(id);
+			out.writeInt(this.numFrames);
+			for(float value : this.pose) out.writeFloat(value);
+			out.writeInt(this.channels.length);
+			for(int channel : this.channels) out.writeInt(channel);
+			out.writeInt(this.derived.length);
+			for(int index : this.derived) out.writeInt(index);
+			for(float value : this.samples) out.writeFloat(value);
+		}
+
+		/**
+		 * Read and validate the decoded information from compact binary form.
+		 * @param in The <code>DataInput</code> to read from.
+		 * @throws IOException If reading is interrupted.
+		 * @throws InvalidCacheException If the read information is inconsistent.
+		 */
+		private void read(DataInput in) throws IOException {
+			this.frameRate = in.readFloat();
+			this.idHierarchy = new String[ResourceLoader.readCount(in)];
+			for(int i = 0; i < this.idHierarchy.length; i++) this.idHierarchy[i] = in.readUTF();
+			this.numFrames = ResourceLoader.readCount(in);
+			final int poseSize = this.idHierarchy.length * Frame.stride;
+			this.pose = new float[poseSize];
+			for(int i = 0; i < this.pose.length; i++) this.pose[i] = in.readFloat();
+			this.channels = new int[ResourceLoader.readCount(in)];
+			for(int i = 0; i < this.channels.length; i++) this.channels[i] = ResourceLoader.readIndex(in, 0, poseSize);
+			this.derived = new int[ResourceLoader.readCount(in)];
+			for(int i = 0; i < this.derived.length; i++) {
+				this.derived[i] = ResourceLoader.readIndex(in, 0, poseSize);
+				if(this.derived[i] % Frame.stride != 0) throw new InvalidCacheException("Invalid derived orientation: " + this.derived[i]);
+			}
+			final long numSamples = (long)this.numFrames * (long)this.channels.length;
+			if(numSamples > Integer.MAX_VALUE) throw new InvalidCacheException("Invalid number of samples: " + numSamples);
+			this.samples = new float[(int)numSamples];
+			for(int i = 0; i < this.samples.length; i++) this.samples[i] = in.readFloat();
+		}
+
+		/**
+		 * Construct animation based on information read in.
+		 * @param name The <code>String</code> animation name.
+		 * @return The <code>IMD5Anim</code> instance.
+		 */
+		private IMD5Anim constructAnimation(String name) {
+			final FrameChannels frames = new FrameChannels(this.idHierarchy.length, this.numFrames, this.pose, this.channels, this.derived, this.samples);
+			return new MD5Anim(new MD5Clip(name, this.idHierarchy, frames, this.frameRate));
+		}
 	}
 }
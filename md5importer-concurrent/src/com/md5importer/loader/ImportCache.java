@@ -0,0 +1,166 @@
+package com.md5importer.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * <code>ImportCache</code> defines a directory of compiled MD5 resources.
+ * Each entry contains the parsed data of a single md5mesh or md5anim
+ * file in compact binary form, keyed by the SHA-1 hash of the source
+ * content. Modified sources therefore never hit stale entries.
+ * <p>
+ * The header of each entry stores the length and the CRC-32 checksum
+ * of the entry data. Truncated or otherwise corrupted entries are
+ * detected when they are opened and reported as missing.
+ * <p>
+ * Entries are written to a temporary file first and then renamed, so
+ * a single cache directory can be shared by multiple loaders and
+ * processes concurrently.
+ */
+public class ImportCache {
+	/**
+	 * The <code>Integer</code> magic number of an entry.
+	 */
+	private static final int magic = 0x4D443543;
+	/**
+	 * The <code>Integer</code> version of the entry layout.
+	 */
+	private static final int version = 3;
+	/**
+	 * The <code>Integer</code> number of header bytes of an entry.
+	 */
+	private static final int header = 16;
+	/**
+	 * The hexadecimal digit characters.
+	 */
+	private static final char[] digits = "0123456789abcdef".toCharArray();
+	/**
+	 * The cache directory <code>File</code>.
+	 */
+	private final File directory;
+
+	/**
+	 * Constructor of <code>ImportCache</code>.
+	 * @param directory The cache directory <code>File</code>.
+	 */
+	public ImportCache(File directory) {
+		if(directory == null) throw new IllegalArgumentException("Cache directory cannot be null.");
+		this.directory = directory;
+		this.directory.mkdirs();
+	}
+
+	/**
+	 * Retrieve the key of the given source content.
+	 * @param data The <code>ByteBuffer</code> of the source content.
+	 * @param type The <code>String</code> type of the resource.
+	 * @return The <code>String</code> key of the entry.
+	 */
+	public String getKey(ByteBuffer data, String type) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(data.duplicate());
+		final byte[] hash = digest.digest();
+		final StringBuilder builder = new StringBuilder(hash.length * 2 + type.length() + 1);
+		for(byte b : hash) {
+			builder.append(ImportCache.digits[(b >> 4) & 0xF]);
+			builder.append(ImportCache.digits[b & 0xF]);
+		}
+		return builder.append('.').append(type).toString();
+	}
+
+	/**
+	 * Open the entry with given key for reading.
+	 * @param key The <code>String</code> key of the entry.
+	 * @return The <code>DataInputStream</code> positioned after the header.
+	 * <code>null</code> if there is no valid entry.
+	 * @throws IOException If errors occurred during file reading.
+	 */
+	public DataInputStream open(String key) throws IOException {
+		final File file = new File(this.directory, key);
+		if(!file.isFile()) return null;
+		final long length = file.length();
+		if(length < ImportCache.header || length > Integer.MAX_VALUE) return null;
+		final byte[] bytes = new byte[(int)length];
+		final DataInputStream stream = new DataInputStream(new FileInputStream(file));
+		try {
+			stream.readFully(bytes);
+		} finally {
+			stream.close();
+		}
+		// Validate the header against the entry data.
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if(buffer.getInt() != ImportCache.magic || buffer.getInt() != ImportCache.version) return null;
+		final int size = buffer.getInt();
+		final int checksum = buffer.getInt();
+		if(size != bytes.length - ImportCache.header || checksum != ImportCache.checksum(bytes, ImportCache.header, size)) return null;
+		return new DataInputStream(new ByteArrayInputStream(bytes, ImportCache.header, size));
+	}
+
+	/**
+	 * Calculate the CRC-32 checksum of the given range of data.
+	 * @param data The <code>Byte</code> array of data.
+	 * @param offset The <code>Integer</code> index of the first byte.
+	 * @param length The <code>Integer</code> number of bytes.
+	 * @return The <code>Integer</code> checksum value.
+	 */
+	private static int checksum(byte[] data, int offset, int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * Store the given entry data with given key.
+	 * @param key The <code>String</code> key of the entry.
+	 * @param data The <code>Byte</code> array of the entry data.
+	 * @throws IOException If errors occurred during file writing.
+	 */
+	public void store(String key, byte[] data) throws IOException {
+		final File temp = File.createTempFile(key, ".tmp", this.directory);
+		try {
+			final DataOutputStream stream = new DataOutputStream(new FileOutputStream(temp));
+			try {
+				stream.writeInt(ImportCache.magic);
+				stream.writeInt(ImportCache.version);
+				stream.writeInt(data.length);
+				stream.writeInt(ImportCache.checksum(data, 0, data.length));
+				stream.write(data);
+			} finally {
+				stream.close();
+			}
+			final File file = new File(this.directory, key);
+			if(!temp.renameTo(file) && !file.isFile()) throw new IOException("Unable to store cache entry: " + file);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Remove the entry with given key.
+	 * @param key The <code>String</code> key of the entry.
+	 */
+	public void remove(String key) {
+		new File(this.directory, key).delete();
+	}
+
+	/**
+	 * Retrieve the cache directory.
+	 * @return The cache directory <code>File</code>.
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+}
@@ -0,0 +1,28 @@
+package com.md5importer.loader;
+
+import java.io.IOException;
+
+/**
+ * <code>InvalidCacheException</code> defines the exception thrown when
+ * a context read from an <code>ImportCache</code> entry is inconsistent.
+ * <p>
+ * <code>InvalidCacheException</code> is only thrown while a cached
+ * context is read, before anything is constructed from it. The entry
+ * is then removed and the source is parsed instead.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class InvalidCacheException extends IOException {
+	/**
+	 * Serial version.
+	 */
+	private static final long serialVersionUID = 4175032281654378962L;
+
+	/**
+	 * Constructor of <code>InvalidCacheException</code>.
+	 * @param message The <code>String</code> detail message.
+	 */
+	public InvalidCacheException(String message) {
+		super(message);
+	}
+}
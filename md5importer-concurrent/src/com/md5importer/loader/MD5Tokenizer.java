@@ -0,0 +1,410 @@
+package com.md5importer.loader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * <code>MD5Tokenizer</code> defines a lexical unit that breaks the
+ * raw bytes of a MD5 formated file into tokens.
+ * <p>
+ * <code>MD5Tokenizer</code> is purpose-built for MD5 files. It scans
+ * the given <code>ByteBuffer</code> directly and parses numbers and
+ * matches keywords in place without creating any intermediate objects.
+ * A <code>String</code> is only created when <code>getString</code> is
+ * explicitly invoked for names and paths.
+ * <p>
+ * <code>MD5Tokenizer</code> mirrors the token types of the previously
+ * used <code>StreamTokenizer</code>. Numbers, words, quoted strings and
+ * end of line are reported as token types, while braces, parentheses
+ * and any other ordinary character are reported as the character value
+ * itself. Line comments starting with '/' are skipped.
+ * <p>
+ * <code>MD5Tokenizer</code> only reads the given buffer with absolute
+ * indices. Multiple instances can therefore scan different ranges of
+ * the same buffer concurrently. However, a single instance does not
+ * provide any thread safety.
+ */
+public class MD5Tokenizer {
+	/**
+	 * The token type indicates the end of the range has been reached.
+	 */
+	public static final int TT_EOF = -1;
+	/**
+	 * The token type indicates the end of a line has been read.
+	 */
+	public static final int TT_EOL = '\n';
+	/**
+	 * The token type indicates a number has been read.
+	 */
+	public static final int TT_NUMBER = -2;
+	/**
+	 * The token type indicates a word has been read.
+	 */
+	public static final int TT_WORD = -3;
+	/**
+	 * The token type indicates a quoted string has been read.
+	 */
+	public static final int TT_QUOTE = '"';
+	/**
+	 * The <code>Charset</code> used to decode strings.
+	 */
+	private static final Charset charset = Charset.forName("UTF-8");
+	/**
+	 * The <code>Double</code> powers of ten that can be represented exactly.
+	 */
+	private static final double[] powers = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	/**
+	 * The maximum number of significant digits accumulated for a number.
+	 */
+	private static final int digits = 18;
+	/**
+	 * The source <code>ByteBuffer</code>.
+	 */
+	private final ByteBuffer buffer;
+	/**
+	 * The <code>Integer</code> exclusive end index of the scanned range.
+	 */
+	private final int end;
+	/**
+	 * The <code>Integer</code> index of the next byte to be scanned.
+	 */
+	private int position;
+	/**
+	 * The <code>Integer</code> type of the current token.
+	 */
+	private int type;
+	/**
+	 * The <code>Integer</code> start index of the current token.
+	 */
+	private int tokenStart;
+	/**
+	 * The <code>Integer</code> exclusive end index of the current token.
+	 */
+	private int tokenEnd;
+	/**
+	 * The <code>Float</code> value of the current number token.
+	 */
+	private float number;
+
+	/**
+	 * Constructor of <code>MD5Tokenizer</code>.
+	 * @param buffer The <code>ByteBuffer</code> to scan from its position to its limit.
+	 */
+	public MD5Tokenizer(ByteBuffer buffer) {
+		this(buffer, buffer.position(), buffer.limit());
+	}
+
+	/**
+	 * Constructor of <code>MD5Tokenizer</code>.
+	 * @param buffer The source <code>ByteBuffer</code>.
+	 * @param start The <code>Integer</code> start index of the range to scan.
+	 * @param end The <code>Integer</code> exclusive end index of the range to scan.
+	 */
+	public MD5Tokenizer(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.position = start;
+		this.end = end;
+		this.type = MD5Tokenizer.TT_EOF;
+	}
+
+	/**
+	 * Scan the next token.
+	 * @return The <code>Integer</code> type of the scanned token.
+	 */
+	public int nextToken() {
+		while(this.position < this.end) {
+			final int c = this.buffer.get(this.position);
+			if(c == '\n') {
+				this.position++;
+				return this.setType(MD5Tokenizer.TT_EOL);
+			} else if(c == '\r') {
+				this.position++;
+				if(this.position < this.end && this.buffer.get(this.position) == '\n') this.position++;
+				return this.setType(MD5Tokenizer.TT_EOL);
+			} else if(c >= 0 && c <= ' ') {
+				this.position++;
+			} else if(c == '/') {
+				this.skipLine();
+			} else if(c == '"') {
+				return this.scanQuote();
+			} else if(MD5Tokenizer.isDigit(c) || c == '.' || c == '-') {
+				return this.scanNumber();
+			} else if(MD5Tokenizer.isWordStart(c)) {
+				return this.scanWord();
+			} else {
+				this.tokenStart = this.position;
+				this.position++;
+				this.tokenEnd = this.position;
+				return this.setType(c);
+			}
+		}
+		this.tokenStart = this.end;
+		this.tokenEnd = this.end;
+		return this.setType(MD5Tokenizer.TT_EOF);
+	}
+
+	/**
+	 * Create a new tokenizer that scans the given range of the same buffer.
+	 * @param start The <code>Integer</code> start index of the range to scan.
+	 * @param end The <code>Integer</code> exclusive end index of the range to scan.
+	 * @return The new <code>MD5Tokenizer</code> instance.
+	 */
+	public MD5Tokenizer range(int start, int end) {
+		return new MD5Tokenizer(this.buffer, start, end);
+	}
+
+	/**
+	 * Scan forward to the next number token and retrieve its value.
+	 * @return The <code>Float</code> value of the number.
+	 * @throws IllegalStateException If the end of the range is reached first.
+	 */
+	public float nextNumber() {
+		while(this.nextToken() != MD5Tokenizer.TT_NUMBER) {
+			if(this.type == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of file while reading number.");
+		}
+		return this.number;
+	}
+
+	/**
+	 * Scan forward past the next occurrence of the given character.
+	 * This is a raw byte scan that does not parse the skipped tokens.
+	 * @param c The <code>Character</code> to skip to.
+	 * @return True if the character was found. False if the end was reached.
+	 */
+	public boolean skipTo(char c) {
+		while(this.position < this.end) {
+			if(this.buffer.get(this.position++) == c) {
+				this.tokenStart = this.position - 1;
+				this.tokenEnd = this.position;
+				this.setType(c);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if the current token is the given keyword. This check does
+	 * not create any objects.
+	 * @param keyword The <code>String</code> keyword to check.
+	 * @return True if the current token is a word equal to the keyword.
+	 */
+	public boolean isWord(String keyword) {
+		if(this.type != MD5Tokenizer.TT_WORD) return false;
+		final int length = this.tokenEnd - this.tokenStart;
+		if(length != keyword.length()) return false;
+		for(int i = 0; i < length; i++) {
+			if(this.buffer.get(this.tokenStart + i) != keyword.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Retrieve the type of the current token.
+	 * @return The <code>Integer</code> token type.
+	 */
+	public int getType() {
+		return this.type;
+	}
+
+	/**
+	 * Retrieve the value of the current number token.
+	 * @return The <code>Float</code> number value.
+	 */
+	public float getNumber() {
+		return this.number;
+	}
+
+	/**
+	 * Retrieve the text of the current word or quoted string token.
+	 * This is the only scanning method that creates a new object.
+	 * @return The <code>String</code> text without the quotes.
+	 */
+	public String getString() {
+		final byte[] bytes = new byte[this.tokenEnd - this.tokenStart];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.buffer.get(this.tokenStart + i);
+		}
+		return new String(bytes, MD5Tokenizer.charset);
+	}
+
+	/**
+	 * Retrieve the index of the next byte to be scanned.
+	 * @return The <code>Integer</code> buffer index.
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+
+	/**
+	 * Retrieve the start index of the current token.
+	 * @return The <code>Integer</code> buffer index.
+	 */
+	public int getTokenStart() {
+		return this.tokenStart;
+	}
+
+	/**
+	 * Set the type of the current token.
+	 * @param type The <code>Integer</code> token type.
+	 * @return The given type.
+	 */
+	private int setType(int type) {
+		this.type = type;
+		return type;
+	}
+
+	/**
+	 * Skip the rest of the current line excluding the line terminator.
+	 */
+	private void skipLine() {
+		while(this.position < this.end) {
+			final byte c = this.buffer.get(this.position);
+			if(c == '\n' || c == '\r') return;
+			this.position++;
+		}
+	}
+
+	/**
+	 * Scan a quoted string that is terminated by a quote or the end of line.
+	 * @return The quote token type.
+	 */
+	private int scanQuote() {
+		this.position++;
+		this.tokenStart = this.position;
+		while(this.position < this.end) {
+			final byte c = this.buffer.get(this.position);
+			if(c == '"') {
+				this.tokenEnd = this.position;
+				this.position++;
+				return this.setType(MD5Tokenizer.TT_QUOTE);
+			} else if(c == '\n' || c == '\r') {
+				break;
+			}
+			this.position++;
+		}
+		this.tokenEnd = this.position;
+		return this.setType(MD5Tokenizer.TT_QUOTE);
+	}
+
+	/**
+	 * Scan a word token.
+	 * @return The word token type.
+	 */
+	private int scanWord() {
+		this.tokenStart = this.position;
+		this.position++;
+		while(this.position < this.end) {
+			final int c = this.buffer.get(this.position);
+			if(!MD5Tokenizer.isWordStart(c) && !MD5Tokenizer.isDigit(c) && c != '.' && c != '-') break;
+			this.position++;
+		}
+		this.tokenEnd = this.position;
+		return this.setType(MD5Tokenizer.TT_WORD);
+	}
+
+	/**
+	 * Scan a number token with an optional sign, fraction and exponent.
+	 * A lone sign or decimal point is returned as an ordinary character.
+	 * @return The number token type.
+	 */
+	private int scanNumber() {
+		this.tokenStart = this.position;
+		boolean negative = false;
+		if(this.buffer.get(this.position) == '-') {
+			negative = true;
+			this.position++;
+		}
+		long mantissa = 0;
+		int significant = 0;
+		int exponent = 0;
+		boolean any = false;
+		boolean fraction = false;
+		while(this.position < this.end) {
+			final int c = this.buffer.get(this.position);
+			if(MD5Tokenizer.isDigit(c)) {
+				any = true;
+				if(significant < MD5Tokenizer.digits) {
+					mantissa = mantissa * 10 + (c - '0');
+					if(mantissa != 0) significant++;
+					if(fraction) exponent--;
+				} else if(!fraction) {
+					exponent++;
+				}
+			} else if(c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+			this.position++;
+		}
+		if(!any) {
+			this.position = this.tokenStart + 1;
+			this.tokenEnd = this.position;
+			return this.setType(this.buffer.get(this.tokenStart));
+		}
+		if(this.position < this.end) {
+			final int c = this.buffer.get(this.position);
+			if(c == 'e' || c == 'E') exponent += this.scanExponent();
+		}
+		this.tokenEnd = this.position;
+		double value = mantissa;
+		if(exponent < 0) {
+			value = (-exponent < MD5Tokenizer.powers.length) ? value / MD5Tokenizer.powers[-exponent] : value / Math.pow(10, -exponent);
+		} else if(exponent > 0) {
+			value = (exponent < MD5Tokenizer.powers.length) ? value * MD5Tokenizer.powers[exponent] : value * Math.pow(10, exponent);
+		}
+		this.number = (float)(negative ? -value : value);
+		return this.setType(MD5Tokenizer.TT_NUMBER);
+	}
+
+	/**
+	 * Scan the exponent part of a number starting at the exponent marker.
+	 * The position is left unchanged if the marker is not followed by digits.
+	 * @return The <code>Integer</code> exponent value.
+	 */
+	private int scanExponent() {
+		int index = this.position + 1;
+		boolean negative = false;
+		if(index < this.end) {
+			final int sign = this.buffer.get(index);
+			if(sign == '-' || sign == '+') {
+				negative = (sign == '-');
+				index++;
+			}
+		}
+		int exponent = 0;
+		boolean any = false;
+		while(index < this.end) {
+			final int c = this.buffer.get(index);
+			if(!MD5Tokenizer.isDigit(c)) break;
+			if(exponent < 1000) exponent = exponent * 10 + (c - '0');
+			any = true;
+			index++;
+		}
+		if(!any) return 0;
+		this.position = index;
+		return negative ? -exponent : exponent;
+	}
+
+	/**
+	 * Check if the given character is a decimal digit.
+	 * @param c The <code>Integer</code> character value.
+	 * @return True if the character is a digit.
+	 */
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Check if the given character can start a word.
+	 * @param c The <code>Integer</code> character value.
+	 * @return True if the character can start a word.
+	 */
+	private static boolean isWordStart(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c < 0;
+	}
+}
@@ -1,332 +1,138 @@
 package com.md5importer.loader;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.StreamTokenizer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.RecursiveAction;
 
 import com.jme.image.Texture;
 import com.jme.image.Texture.MagnificationFilter;
 import com.jme.image.Texture.MinificationFilter;
 import com.jme.math.Vector3f;
+import com.md5importer.enumn.EBoundingMode;
+import com.md5importer.enumn.ESkinningMode;
 import com.md5importer.interfaces.model.IMD5Node;
 import com.md5importer.interfaces.model.mesh.IJoint;
 import com.md5importer.interfaces.model.mesh.IMesh;
-import com.md5importer.interfaces.model.mesh.primitive.ITriangle;
-import com.md5importer.interfaces.model.mesh.primitive.IVertex;
-import com.md5importer.interfaces.model.mesh.primitive.IWeight;
 import com.md5importer.model.MD5Node;
 import com.md5importer.model.mesh.Joint;
 import com.md5importer.model.mesh.Mesh;
-import com.md5importer.model.mesh.primitive.Triangle;
-import com.md5importer.model.mesh.primitive.Vertex;
-import com.md5importer.model.mesh.primitive.Weight;
+import com.md5importer.model.mesh.MeshData;
 
 /**
  * <code>MeshLoader</code> is responsible for importing MD5Mesh
  * resources and constructing the final <code>IMD5Node</code>
  * instance.
  * <p>
+ * <code>MeshLoader</code> parses and constructs meshes in parallel
+ * when the parallel mode is set. Mesh blocks only depend on the joints,
+ * which are read before the first mesh. The first pass therefore only
+ * tokenizes to the end of each mesh block to record its byte range,
+ * and the blocks are then parsed, weight resolved and constructed
+ * concurrently. Mesh initialization remains on the invoking thread.
+ * <p>
+ * <code>MeshLoader</code> maintains all parsing states in a context
+ * created for every load, so a single instance can load multiple files
+ * concurrently from different threads. The texture, skinning and
+ * bounding settings are read once at the beginning of each load.
+ * <p>
+ * <code>MeshLoader</code> parses the file into flat arrays of joint,
+ * vertex, triangle and weight data, which are also the compact form
+ * stored in the <code>ImportCache</code>. The arrays of each mesh are
+ * handed to a shared <code>MeshData</code> without creating any vertex,
+ * triangle or weight objects.
+ * <p>
+ * <code>MeshLoader</code> constructs skeleton only nodes when the headless
+ * mode is set. Headless nodes do not contain any meshes, so no textures,
+ * render states or vertex buffers are created and no display is required.
+ * The joints are still updated by the node controllers, which allows the
+ * poses to be evaluated on a server. The cached data of a file is the same
+ * in both modes.
+ * <p>
  * <code>MeshLoader</code> is used by <code>MD5Importer</code>
  * internally only.
  *
  * @author Yi Wang (Neakor)
  * @version Modified date: 02-19-2009 23:06 EST
  */
-public class MeshLoader extends ResourceLoader<IMD5Node> {
+public class MeshLoader extends ResourceLoader<IMD5Node, MeshLoader.MeshContext> {
 	/**
 	 * The <code>Integer</code> anisotropic level value.
 	 */
-	private int anisotropic;
+	private volatile int anisotropic;
 	/**
 	 * The <code>MinificationFilter</code> enumeration.
 	 */
-	private MinificationFilter miniFilter;
+	private volatile MinificationFilter miniFilter;
 	/**
 	 * The <code>MagnificationFilter</code> enumeration.
 	 */
-	private MagnificationFilter magFilter;
+	private volatile MagnificationFilter magFilter;
 	/**
 	 * The <code>Boolean</code> oriented bounding flag.
 	 */
-	private boolean orientedBounding;
-	/**
-	 * The array of <code>IJoint</code> that form the skeleton.
-	 */
-	private IJoint[] joints;
+	private volatile boolean orientedBounding;
 	/**
-	 * The array of <code>IMesh</code> which represents the actual geometry.
+	 * The <code>Boolean</code> headless mode flag.
 	 */
-	private IMesh[] meshes;
+	private volatile boolean headless;
 	/**
-	 * The <code>String</code> texture file for a single mesh.
+	 * The <code>ESkinningMode</code> enumeration.
 	 */
-	private String texture;
+	private volatile ESkinningMode skinningMode;
 	/**
-	 * The array of <code>IVertex</code> for a single mesh.
+	 * The <code>Boolean</code> skinned normals flag.
 	 */
-	private IVertex[] vertices;
+	private volatile boolean skinnedNormals;
 	/**
-	 * The array of <code>ITriangle</code> for a single mesh.
+	 * The <code>Float</code> position tolerance to group vertices with.
 	 */
-	private ITriangle[] triangles;
+	private volatile float weldEpsilon;
 	/**
-	 * The array of <code>IWeight</code> for a single mesh.
+	 * The <code>EBoundingMode</code> enumeration.
 	 */
-	private IWeight[] weights;
-	/**
-	 * The <code>List</code> of weight <code>Integer</code> indices array.
-	 */
-	private List<int[]> weightIndices;
-	
+	private volatile EBoundingMode boundingMode;
 	/**
 	 * Constructor of <code>MeshLoader</code>.
 	 */
 	public MeshLoader() {
 		super();
-		this.weightIndices = new ArrayList<int[]>();
 		this.miniFilter = MinificationFilter.Trilinear;
 		this.magFilter = MagnificationFilter.Bilinear;
 		this.anisotropic = 16;
+		this.skinningMode = ESkinningMode.Auto;
+		this.boundingMode = EBoundingMode.Tight;
 	}
 
 	@Override
-	protected IMD5Node load(String name) throws IOException {
-		this.processSkin();
-		return this.constructSkin(name);
-	}
-
-	/**
-	 * Process the information in md5mesh file.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processSkin() throws IOException {
-		String sval = null;
-		int meshIndex = 0;
-		while(this.reader.nextToken() != StreamTokenizer.TT_EOF) {
-			sval = this.reader.sval;
-			if(sval != null) {
-				if(sval.equals("MD5Version")) {
-					this.reader.nextToken();
-					if(this.reader.nval != MeshLoader.version) {
-						throw new IllegalArgumentException("Invalid MD5 format version: " + this.reader.nval);
-					}
-				} else if(sval.equals("numJoints")) {
-					this.reader.nextToken();
-					this.joints = new IJoint[(int)this.reader.nval];
-				} else if(sval.equals("numMeshes")) {
-					this.reader.nextToken();
-					this.meshes = new IMesh[(int)this.reader.nval];
-				} else if(sval.equals("joints")) {
-					this.reader.nextToken();
-					this.processJoints();
-				} else if(sval.equals("mesh")) {
-					this.reader.nextToken();
-					this.processMesh(meshIndex);
-					meshIndex++;
-				}
-			}
-		}
-	}
-
-	/**
-	 * Process the information to construct all joints.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processJoints() throws IOException {
-		int jointIndex = -1;
-		String id = null;
-		Vector3f translation = null;
-		Vector3f orientation = null;
-		IJoint parent = null;
-		while(this.reader.nextToken() != '}' && jointIndex < this.joints.length) {
-			switch(this.reader.ttype) {
-			case '"':
-				id = this.reader.sval;
-				break;
-			case StreamTokenizer.TT_NUMBER:
-				int index = (int)this.reader.nval;
-				if(index >= 0) parent = this.joints[index];
-				break;
-			case '(':
-				translation = this.readVector();
-				orientation = this.readVector();
-				break;
-			case StreamTokenizer.TT_EOL:
-				if(jointIndex >= 0) {
-					this.joints[jointIndex] = new Joint(jointIndex, id, translation, orientation);
-					this.joints[jointIndex].setParent(parent);
-				}
-				jointIndex++;
-				break;
-			}
-		}
+	protected MeshContext parse(MD5Tokenizer reader) {
+		final MeshContext context = new MeshContext();
+		context.processSkin(reader);
+		return context;
 	}
 
-	/**
-	 * Process the information to construct a single mesh.
-	 * @param meshIndex The <code>Integer</code> index of the mesh.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processMesh(int meshIndex) throws IOException {
-		// Make sure we clear the weight indices list since meshes are separated.
-		this.weightIndices.clear();
-		// Load in the mesh.
-		while(this.reader.nextToken() != '}') {
-			if(this.reader.ttype == StreamTokenizer.TT_WORD) {
-				if(this.reader.sval.equals("shader")) {
-					this.reader.nextToken();
-					this.texture = this.reader.sval;
-				} else if(this.reader.sval.equals("numverts")) {
-					this.reader.nextToken();
-					this.vertices = new IVertex[(int)this.reader.nval];
-				} else if(this.reader.sval.equals("vert")) {
-					this.processVertex();
-				} else if(this.reader.sval.equals("numtris")) {
-					this.reader.nextToken();
-					this.triangles = new ITriangle[(int)this.reader.nval];
-				} else if(this.reader.sval.equals("tri")) {
-					this.processTriangle();
-				} else if(this.reader.sval.equals("numweights")) {
-					this.reader.nextToken();
-					this.weights = new IWeight[(int)this.reader.nval];
-				} else if(this.reader.sval.equals("weight")) {
-					this.processWeight();
-				}
-			}
-		}
-		// Set the weights for the vertices in this mesh.
-		for(IVertex vertex : this.vertices) {
-			int[] indices = this.weightIndices.get(vertex.getIndex());
-			IWeight[] weights = new IWeight[indices.length];
-			for(int i = 0; i < weights.length; i++) {
-				weights[i] = this.weights[indices[i]];
-			}
-			vertex.setWeights(weights);
-		}
-		// Construct the mesh.
-		this.meshes[meshIndex] = new Mesh(this.texture, this.vertices, this.triangles, this.weights, this.anisotropic,
-				this.miniFilter, this.magFilter, this.orientedBounding);
+	@Override
+	protected IMD5Node construct(MeshContext context, String name) {
+		return context.constructSkin(name);
 	}
 
-	/**
-	 * Process the information to construct a single vertex.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processVertex() throws IOException {
-		int pointer = 0;
-		IVertex vertex = null;
-		while(this.reader.nextToken() != StreamTokenizer.TT_EOL) {
-			if(this.reader.ttype == StreamTokenizer.TT_NUMBER) {
-				if(pointer == 0) {
-					int index = (int)this.reader.nval;
-					vertex = new Vertex(index);
-					this.vertices[index] = vertex;
-					pointer++;
-				} else if(pointer == 1) {
-					float u = (float)this.reader.nval;
-					pointer++;
-					this.reader.nextToken();
-					float v = (float)this.reader.nval;				
-					vertex.setTextureCoords(u, v);
-					pointer++;
-				} else if(pointer == 3) {
-					int start = (int)this.reader.nval;
-					pointer++;
-					this.reader.nextToken();
-					int length = (int)this.reader.nval;
-					int[] indices = new int[length];
-					for(int i = 0; i < length; i++) indices[i] = start + i;
-					this.weightIndices.add(vertex.getIndex(), indices);
-					pointer++;
-					break;
-				}
-			}
-		}
+	@Override
+	protected void write(MeshContext context, DataOutput out) throws IOException {
+		context.write(out);
 	}
 
-	/**
-	 * Process the information to construct in a single triangle.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processTriangle() throws IOException {
-		int pointer = 0;
-		int index = -1;
-		IVertex[] vertices = new IVertex[3];
-		while(this.reader.nextToken() != StreamTokenizer.TT_EOL) {
-			if(this.reader.ttype == StreamTokenizer.TT_NUMBER) {
-				if(pointer == 0) {
-					index = (int)this.reader.nval;
-					pointer++;
-				} else if(pointer >= 1 && pointer <= 3) {
-					IVertex vertex = this.vertices[(int)this.reader.nval];
-					// This is an important trick to make sure the triangles are winded correctly.
-					switch(pointer) {
-					case 1: vertices[0] = vertex; break;
-					case 2: vertices[2] = vertex; break;
-					case 3: vertices[1] = vertex; break;
-					}
-					vertex.incrementUsedTimes();
-					pointer++;
-				}
-			}
-		}
-		this.triangles[index] = new Triangle(index, vertices);
+	@Override
+	protected MeshContext read(DataInput in) throws IOException {
+		final MeshContext context = new MeshContext();
+		context.read(in);
+		return context;
 	}
 
-	/**
-	 * Process the information to construct in a single weight.
-	 * @throws IOException If errors occurred during file reading.
-	 */
-	private void processWeight() throws IOException {
-		int pointer = 0;
-		int index = -1;
-		IJoint joint = null;
-		float value = 0;
-		Vector3f position = null;
-		while(this.reader.nextToken() != StreamTokenizer.TT_EOL) {
-			if(this.reader.ttype == StreamTokenizer.TT_NUMBER) {
-				if(pointer == 0) {
-					index = (int)this.reader.nval;
-					pointer++;
-				} else if(pointer == 1) {
-					joint = this.joints[(int)this.reader.nval];
-					pointer++;
-				} else if(pointer == 2) {
-					value = (float)this.reader.nval;
-					pointer++;
-				} else if(pointer ==3) {
-					position = this.readVector();
-					pointer++;
-					break;
-				}
-			}
-		}
-		this.weights[index] = new Weight(index, value, position);
-		this.weights[index].setJoint(joint);
+	@Override
+	protected String getType() {
+		return "md5mesh";
 	}
 
-	/**
-	 * Construct the skin based on information read in.
-	 * @param The <code>String</code> name for the node.
-	 * @return The <code>IMD5Node</code> instance.
-	 */
-	private IMD5Node constructSkin(String name) {
-		// Process the joints.
-		for(int i = this.joints.length - 1; i >= 0; i--) {
-			this.joints[i].processTransform();
-		}
-		for(int i = 0; i < this.joints.length; i++) {
-			if(this.joints[i].getParent() == null) {
-				this.joints[i].getOrientation().set(MeshLoader.base.mult(this.joints[i].getOrientation()));
-			}
-		}
-		// Construct the node.
-		MD5Node node = new MD5Node(name, this.joints, this.meshes);
-		node.initialize();
-		return node;
-	}
-	
 	/**
 	 * Set the texture anisotropic level.
 	 * @param value The <code>Integer</code> anisotropic level value.
@@ -359,6 +165,48 @@ public class MeshLoader extends ResourceLoader<IMD5Node> {
 		this.orientedBounding = value;
 	}
 	
+	/**
+	 * Set if only the skeleton should be constructed without any meshes.
+	 * @param headless The <code>Boolean</code> headless mode flag.
+	 */
+	public void setHeadless(boolean headless) {
+		this.headless = headless;
+	}
+
+	/**
+	 * Set the skinning mode of the meshes.
+	 * @param mode The <code>ESkinningMode</code> enumeration.
+	 */
+	public void setSkinningMode(ESkinningMode mode) {
+		if(mode != null) this.skinningMode = mode;
+	}
+
+	/**
+	 * Set if the normals of the meshes should be skinned from the bind
+	 * space weight normals instead of being recalculated from the triangles.
+	 * @param skinned The <code>Boolean</code> skinned normals flag.
+	 */
+	public void setSkinnedNormals(boolean skinned) {
+		this.skinnedNormals = skinned;
+	}
+
+	/**
+	 * Set the position tolerance within which the vertices of the meshes
+	 * share an averaged normal.
+	 * @param epsilon The <code>Float</code> tolerance. Zero for exact positions.
+	 */
+	public void setWeldEpsilon(float epsilon) {
+		if(epsilon >= 0) this.weldEpsilon = epsilon;
+	}
+
+	/**
+	 * Set the bounding mode of the meshes.
+	 * @param mode The <code>EBoundingMode</code> enumeration.
+	 */
+	public void setBoundingMode(EBoundingMode mode) {
+		if(mode != null) this.boundingMode = mode;
+	}
+	
 	/**
 	 * Retrieve the anisotropic level.
 	 * @return The <code>Integer</code> anisotropic level.
@@ -391,14 +239,502 @@ public class MeshLoader extends ResourceLoader<IMD5Node> {
 		return this.orientedBounding;
 	}
 
-	@Override
-	public void cleanup() {
-		this.joints = null;
-		this.meshes = null;
-		this.texture = null;
-		this.vertices = null;
-		this.triangles = null;
-		this.weights = null;
-		this.weightIndices.clear();
+	/**
+	 * Check if only the skeleton is constructed without any meshes.
+	 * @return The <code>Boolean</code> headless mode flag.
+	 */
+	public boolean isHeadless() {
+		return this.headless;
+	}
+
+	/**
+	 * Retrieve the skinning mode of the meshes.
+	 * @return The <code>ESkinningMode</code> enumeration.
+	 */
+	public ESkinningMode getSkinningMode() {
+		return this.skinningMode;
+	}
+
+	/**
+	 * Check if the normals of the meshes are skinned.
+	 * @return The <code>Boolean</code> skinned normals flag.
+	 */
+	public boolean isSkinnedNormals() {
+		return this.skinnedNormals;
+	}
+
+	/**
+	 * Retrieve the position tolerance to group vertices with.
+	 * @return The <code>Float</code> tolerance. Zero for exact positions.
+	 */
+	public float getWeldEpsilon() {
+		return this.weldEpsilon;
+	}
+
+	/**
+	 * Retrieve the bounding mode of the meshes.
+	 * @return The <code>EBoundingMode</code> enumeration.
+	 */
+	public EBoundingMode getBoundingMode() {
+		return this.boundingMode;
+	}
+
+	/**
+	 * <code>MeshContext</code> maintains the parsing states of a single
+	 * load invocation.
+	 */
+	class MeshContext {
+		/**
+		 * The <code>Boolean</code> parallel mode flag of the load.
+		 */
+		private final boolean parallel;
+		/**
+		 * The <code>Integer</code> anisotropic level value of the load.
+		 */
+		private final int anisotropic;
+		/**
+		 * The <code>MinificationFilter</code> enumeration of the load.
+		 */
+		private final MinificationFilter miniFilter;
+		/**
+		 * The <code>MagnificationFilter</code> enumeration of the load.
+		 */
+		private final MagnificationFilter magFilter;
+		/**
+		 * The <code>Boolean</code> oriented bounding flag of the load.
+		 */
+		private final boolean orientedBounding;
+		/**
+		 * The <code>Boolean</code> headless mode flag of the load.
+		 */
+		private final boolean headless;
+		/**
+		 * The <code>ESkinningMode</code> enumeration of the load.
+		 */
+		private final ESkinningMode skinningMode;
+		/**
+		 * The <code>Boolean</code> skinned normals flag of the load.
+		 */
+		private final boolean skinnedNormals;
+		/**
+		 * The <code>Float</code> position tolerance of the load.
+		 */
+		private final float weldEpsilon;
+		/**
+		 * The <code>EBoundingMode</code> enumeration of the load.
+		 */
+		private final EBoundingMode boundingMode;
+		/**
+		 * The <code>String</code> array of joint names.
+		 */
+		private String[] jointNames;
+		/**
+		 * The <code>Integer</code> array of joint parent indices.
+		 */
+		private int[] jointParents;
+		/**
+		 * The <code>Float</code> array of joint translations and orientations,
+		 * six values per joint.
+		 */
+		private float[] jointValues;
+		/**
+		 * The array of <code>MeshSection</code> of all meshes.
+		 */
+		private MeshSection[] sections;
+		/**
+		 * The <code>Integer</code> array of mesh block start indices in parallel mode.
+		 */
+		private int[] meshStarts;
+		/**
+		 * The <code>Integer</code> array of mesh block end indices in parallel mode.
+		 */
+		private int[] meshEnds;
+		/**
+		 * The array of <code>IJoint</code> that form the skeleton.
+		 */
+		private IJoint[] joints;
+		/**
+		 * The array of <code>IMesh</code> which represents the actual geometry.
+		 */
+		private IMesh[] meshes;
+
+		/**
+		 * Constructor of <code>MeshContext</code>.
+		 */
+		private MeshContext() {
+			this.parallel = MeshLoader.this.parallel;
+			this.anisotropic = MeshLoader.this.anisotropic;
+			this.miniFilter = MeshLoader.this.miniFilter;
+			this.magFilter = MeshLoader.this.magFilter;
+			this.orientedBounding = MeshLoader.this.orientedBounding;
+			this.headless = MeshLoader.this.headless;
+			this.skinningMode = MeshLoader.this.skinningMode;
+			this.skinnedNormals = MeshLoader.this.skinnedNormals;
+			this.weldEpsilon = MeshLoader.this.weldEpsilon;
+			this.boundingMode = MeshLoader.this.boundingMode;
+		}
+
+		/**
+		 * Process the information in md5mesh file.
+		 * @param reader The <code>MD5Tokenizer</code> of the file.
+		 */
+		private void processSkin(MD5Tokenizer reader) {
+			int meshIndex = 0;
+			while(reader.nextToken() != MD5Tokenizer.TT_EOF) {
+				if(reader.getType() != MD5Tokenizer.TT_WORD) continue;
+				if(reader.isWord("MD5Version")) {
+					final float version = reader.nextNumber();
+					if(version != MeshLoader.version) {
+						throw new IllegalArgumentException("Invalid MD5 format version: " + version);
+					}
+				} else if(reader.isWord("numJoints")) {
+					final int numJoints = (int)reader.nextNumber();
+					this.jointNames = new String[numJoints];
+					this.jointParents = new int[numJoints];
+					this.jointValues = new float[numJoints * 6];
+				} else if(reader.isWord("numMeshes")) {
+					this.sections = new MeshSection[(int)reader.nextNumber()];
+				} else if(reader.isWord("joints")) {
+					this.processJoints(reader);
+				} else if(reader.isWord("mesh")) {
+					if(this.parallel) {
+						this.scanMesh(reader, meshIndex);
+					} else {
+						this.sections[meshIndex] = new MeshSection();
+						this.sections[meshIndex].process(reader);
+					}
+					meshIndex++;
+				}
+			}
+			if(this.parallel && this.sections != null) MeshLoader.this.pool.invoke(new MeshTask(reader, 0, meshIndex));
+		}
+
+		/**
+		 * Process the information of all joints.
+		 * @param reader The <code>MD5Tokenizer</code> of the file.
+		 */
+		private void processJoints(MD5Tokenizer reader) {
+			int jointIndex = 0;
+			while(reader.nextToken() != '}' && jointIndex < this.jointNames.length) {
+				if(reader.getType() == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of joints.");
+				if(reader.getType() != MD5Tokenizer.TT_QUOTE) continue;
+				this.jointNames[jointIndex] = reader.getString();
+				this.jointParents[jointIndex] = (int)reader.nextNumber();
+				for(int i = 0; i < 6; i++) {
+					this.jointValues[jointIndex * 6 + i] = reader.nextNumber();
+				}
+				jointIndex++;
+			}
+		}
+
+		/**
+		 * Record the byte range of a single mesh block by tokenizing to its
+		 * closing brace without decoding it.
+		 * @param reader The <code>MD5Tokenizer</code> of the file.
+		 * @param meshIndex The <code>Integer</code> index of the mesh.
+		 */
+		private void scanMesh(MD5Tokenizer reader, int meshIndex) {
+			if(this.meshStarts == null) {
+				this.meshStarts = new int[this.sections.length];
+				this.meshEnds = new int[this.sections.length];
+			}
+			this.meshStarts[meshIndex] = reader.getPosition();
+			while(reader.nextToken() != '}') {
+				if(reader.getType() == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of mesh: " + meshIndex);
+			}
+			this.meshEnds[meshIndex] = reader.getPosition();
+		}
+
+		/**
+		 * Construct the skin based on information read in.
+		 * @param name The <code>String</code> name for the node.
+		 * @return The <code>IMD5Node</code> instance.
+		 */
+		private IMD5Node constructSkin(String name) {
+			// Construct the joints.
+			this.joints = new IJoint[this.jointNames.length];
+			for(int i = 0; i < this.joints.length; i++) {
+				final int offset = i * 6;
+				final Vector3f translation = new Vector3f(this.jointValues[offset], this.jointValues[offset + 1], this.jointValues[offset + 2]);
+				final Vector3f orientation = new Vector3f(this.jointValues[offset + 3], this.jointValues[offset + 4], this.jointValues[offset + 5]);
+				this.joints[i] = new Joint(i, this.jointNames[i], translation, orientation);
+				if(this.jointParents[i] >= 0) this.joints[i].setParent(this.joints[this.jointParents[i]]);
+			}
+			// Construct the meshes unless only the skeleton is required.
+			this.meshes = new IMesh[this.headless ? 0 : this.sections.length];
+			if(this.parallel && !this.headless) {
+				MeshLoader.this.pool.invoke(new MeshTask(null, 0, this.meshes.length));
+			} else {
+				for(int i = 0; i < this.meshes.length; i++) {
+					this.meshes[i] = this.sections[i].build();
+				}
+			}
+			// Process the joints.
+			for(int i = this.joints.length - 1; i >= 0; i--) {
+				this.joints[i].processTransform();
+			}
+			for(int i = 0; i < this.joints.length; i++) {
+				if(this.joints[i].getParent() == null) {
+					this.joints[i].getOrientation().set(MeshLoader.base.mult(this.joints[i].getOrientation()));
+				}
+			}
+			// Construct the node.
+			MD5Node node = new MD5Node(name, this.joints, this.meshes);
+			node.initialize();
+			return node;
+		}
+
+		/**
+		 * Write the parsed information in compact binary form.
+		 * @param out The <code>DataOutput</code> to write to.
+		 * @throws IOException If writing is interrupted.
+		 */
+		private void write(DataOutput out) throws IOException {
+			out.writeInt(this.jointNames.length);
+			for(int i = 0; i < this.jointNames.length; i++) {
+				out.writeUTF(this.jointNames[i]);
+				out.writeInt(this.jointParents[i]);
+			}
+			for(float value : this.jointValues) out.writeFloat(value);
+			out.writeInt(this.sections.length);
+			for(MeshSection section : this.sections) section.write(out);
+		}
+
+		/**
+		 * Read and validate the parsed information from compact binary form.
+		 * @param in The <code>DataInput</code> to read from.
+		 * @throws IOException If reading is interrupted.
+		 * @throws InvalidCacheException If the read information is inconsistent.
+		 */
+		private void read(DataInput in) throws IOException {
+			final int numJoints = ResourceLoader.readCount(in);
+			this.jointNames = new String[numJoints];
+			this.jointParents = new int[numJoints];
+			this.jointValues = new float[numJoints * 6];
+			for(int i = 0; i < numJoints; i++) {
+				this.jointNames[i] = in.readUTF();
+				this.jointParents[i] = ResourceLoader.readIndex(in, -1, numJoints);
+			}
+			for(int i = 0; i < this.jointValues.length; i++) this.jointValues[i] = in.readFloat();
+			this.sections = new MeshSection[ResourceLoader.readCount(in)];
+			for(int i = 0; i < this.sections.length; i++) {
+				this.sections[i] = new MeshSection();
+				this.sections[i].read(in);
+			}
+		}
+
+		/**
+		 * <code>MeshSection</code> maintains the parsed information of a
+		 * single mesh block in flat arrays, so mesh blocks can be parsed
+		 * and constructed independently.
+		 */
+		private class MeshSection {
+			/**
+			 * The <code>String</code> texture file for the mesh.
+			 */
+			private String texture;
+			/**
+			 * The <code>Float</code> array of vertex texture coordinates, two values per vertex.
+			 */
+			private float[] coords;
+			/**
+			 * The <code>Integer</code> array of vertex first weight indices.
+			 */
+			private int[] weightStarts;
+			/**
+			 * The <code>Integer</code> array of vertex weight counts.
+			 */
+			private int[] weightCounts;
+			/**
+			 * The <code>Integer</code> array of triangle vertex indices in file order.
+			 */
+			private int[] indices;
+			/**
+			 * The <code>Integer</code> array of weight joint indices.
+			 */
+			private int[] weightJoints;
+			/**
+			 * The <code>Float</code> array of weight values.
+			 */
+			private float[] weightValues;
+			/**
+			 * The <code>Float</code> array of weight positions, three values per weight.
+			 */
+			private float[] weightPositions;
+
+			/**
+			 * Process the information of a single mesh block.
+			 * @param reader The <code>MD5Tokenizer</code> positioned before the mesh block.
+			 */
+			private void process(MD5Tokenizer reader) {
+				while(reader.nextToken() != '}') {
+					if(reader.getType() == MD5Tokenizer.TT_EOF) throw new IllegalStateException("Unexpected end of mesh.");
+					if(reader.getType() != MD5Tokenizer.TT_WORD) continue;
+					if(reader.isWord("shader")) {
+						reader.nextToken();
+						this.texture = reader.getString();
+					} else if(reader.isWord("numverts")) {
+						final int numVerts = (int)reader.nextNumber();
+						this.coords = new float[numVerts * 2];
+						this.weightStarts = new int[numVerts];
+						this.weightCounts = new int[numVerts];
+					} else if(reader.isWord("vert")) {
+						final int index = (int)reader.nextNumber();
+						this.coords[index * 2] = reader.nextNumber();
+						this.coords[index * 2 + 1] = reader.nextNumber();
+						this.weightStarts[index] = (int)reader.nextNumber();
+						this.weightCounts[index] = (int)reader.nextNumber();
+					} else if(reader.isWord("numtris")) {
+						this.indices = new int[(int)reader.nextNumber() * 3];
+					} else if(reader.isWord("tri")) {
+						final int index = (int)reader.nextNumber();
+						for(int i = 0; i < 3; i++) {
+							this.indices[index * 3 + i] = (int)reader.nextNumber();
+						}
+					} else if(reader.isWord("numweights")) {
+						final int numWeights = (int)reader.nextNumber();
+						this.weightJoints = new int[numWeights];
+						this.weightValues = new float[numWeights];
+						this.weightPositions = new float[numWeights * 3];
+					} else if(reader.isWord("weight")) {
+						final int index = (int)reader.nextNumber();
+						this.weightJoints[index] = (int)reader.nextNumber();
+						this.weightValues[index] = reader.nextNumber();
+						for(int i = 0; i < 3; i++) {
+							this.weightPositions[index * 3 + i] = reader.nextNumber();
+						}
+					}
+				}
+			}
+
+			/**
+			 * Construct the mesh based on information read in.
+			 * @return The constructed <code>IMesh</code> instance.
+			 */
+			private IMesh build() {
+				// Invert the v value of the texture coordinates.
+				final float[] textureCoords = new float[this.coords.length];
+				for(int i = 0; i < textureCoords.length; i += 2) {
+					textureCoords[i] = this.coords[i];
+					textureCoords[i + 1] = 1.0f - this.coords[i + 1];
+				}
+				// This is an important trick to make sure the triangles are winded correctly.
+				final int[] windings = new int[this.indices.length];
+				final int[] usedTimes = new int[this.weightStarts.length];
+				for(int i = 0; i < windings.length; i += 3) {
+					windings[i] = this.indices[i];
+					windings[i + 1] = this.indices[i + 2];
+					windings[i + 2] = this.indices[i + 1];
+					for(int j = 0; j < 3; j++) usedTimes[windings[i + j]]++;
+				}
+				final MeshData data = new MeshData(this.texture, null, null, textureCoords, usedTimes, this.weightStarts, this.weightCounts,
+						windings, this.weightJoints, this.weightValues, this.weightPositions, anisotropic, miniFilter, magFilter, orientedBounding,
+						skinningMode, skinnedNormals, weldEpsilon, boundingMode);
+				return new Mesh(data, joints);
+			}
+
+			/**
+			 * Write the parsed information in compact binary form.
+			 * @param out The <code>DataOutput</code> to write to.
+			 * @throws IOException If writing is interrupted.
+			 */
+			private void write(DataOutput out) throws IOException {
+				out.writeBoolean(this.texture != null);
+				if(this.texture != null) out.writeUTF(this.texture);
+				out.writeInt(this.weightStarts.length);
+				for(float value : this.coords) out.writeFloat(value);
+				for(int value : this.weightStarts) out.writeInt(value);
+				for(int value : this.weightCounts) out.writeInt(value);
+				out.writeInt(this.indices.length);
+				for(int value : this.indices) out.writeInt(value);
+				out.writeInt(this.weightJoints.length);
+				for(int value : this.weightJoints) out.writeInt(value);
+				for(float value : this.weightValues) out.writeFloat(value);
+				for(float value : this.weightPositions) out.writeFloat(value);
+			}
+
+			/**
+			 * Read and validate the parsed information from compact binary form.
+			 * @param in The <code>DataInput</code> to read from.
+			 * @throws IOException If reading is interrupted.
+			 * @throws InvalidCacheException If the read information is inconsistent.
+			 */
+			private void read(DataInput in) throws IOException {
+				if(in.readBoolean()) this.texture = in.readUTF();
+				final int numVerts = ResourceLoader.readCount(in);
+				this.coords = new float[numVerts * 2];
+				this.weightStarts = new int[numVerts];
+				this.weightCounts = new int[numVerts];
+				for(int i = 0; i < this.coords.length; i++) this.coords[i] = in.readFloat();
+				for(int i = 0; i < numVerts; i++) this.weightStarts[i] = ResourceLoader.readCount(in);
+				for(int i = 0; i < numVerts; i++) this.weightCounts[i] = ResourceLoader.readCount(in);
+				this.indices = new int[ResourceLoader.readCount(in)];
+				if(this.indices.length % 3 != 0) throw new InvalidCacheException("Invalid number of indices: " + this.indices.length);
+				for(int i = 0; i < this.indices.length; i++) this.indices[i] = ResourceLoader.readIndex(in, 0, numVerts);
+				final int numWeights = ResourceLoader.readCount(in);
+				for(int i = 0; i < numVerts; i++) {
+					if((long)this.weightStarts[i] + this.weightCounts[i] > numWeights) throw new InvalidCacheException("Invalid weights of vertex: " + i);
+				}
+				this.weightJoints = new int[numWeights];
+				this.weightValues = new float[numWeights];
+				this.weightPositions = new float[numWeights * 3];
+				for(int i = 0; i < numWeights; i++) this.weightJoints[i] = ResourceLoader.readIndex(in, 0, jointNames.length);
+				for(int i = 0; i < numWeights; i++) this.weightValues[i] = in.readFloat();
+				for(int i = 0; i < this.weightPositions.length; i++) this.weightPositions[i] = in.readFloat();
+			}
+		}
+
+		/**
+		 * <code>MeshTask</code> parses or constructs a range of meshes,
+		 * splitting the range down to single meshes.
+		 */
+		private class MeshTask extends RecursiveAction {
+			/**
+			 * Serial version.
+			 */
+			private static final long serialVersionUID = -3807361204729583411L;
+			/**
+			 * The <code>MD5Tokenizer</code> of the file to parse the recorded
+			 * mesh blocks from. <code>null</code> to construct the meshes.
+			 */
+			private final MD5Tokenizer reader;
+			/**
+			 * The <code>Integer</code> first mesh index.
+			 */
+			private final int start;
+			/**
+			 * The <code>Integer</code> exclusive last mesh index.
+			 */
+			private final int end;
+
+			/**
+			 * Constructor of <code>MeshTask</code>.
+			 * @param reader The <code>MD5Tokenizer</code> of the file. <code>null</code> to construct the meshes.
+			 * @param start The <code>Integer</code> first mesh index.
+			 * @param end The <code>Integer</code> exclusive last mesh index.
+			 */
+			private MeshTask(MD5Tokenizer reader, int start, int end) {
+				this.reader = reader;
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+				if(this.end - this.start <= 1) {
+					for(int i = this.start; i < this.end; i++) {
+						if(this.reader != null) {
+							sections[i] = new MeshSection();
+							sections[i].process(this.reader.range(meshStarts[i], meshEnds[i]));
+						} else {
+							meshes[i] = sections[i].build();
+						}
+					}
+				} else {
+					final int middle = (this.start + this.end) >>> 1;
+					RecursiveAction.invokeAll(new MeshTask(this.reader, this.start, middle), new MeshTask(this.reader, middle, this.end));
+				}
+			}
+		}
 	}
 }
@@ -1,23 +1,50 @@
 package com.md5importer.loader;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.StreamTokenizer;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
 
 import com.jme.math.Quaternion;
-import com.jme.math.Vector3f;
 
 /**
  * <code>ResourceLoader</code> defines the abstraction of an
  * loader unit that provides the common importing functionalities.
+ * <p>
+ * <code>ResourceLoader</code> can be set to parallel mode, in which
+ * subclasses decode independent sections of a file as separate tasks
+ * on the set <code>ForkJoinPool</code>. The result is identical to
+ * the sequential mode.
+ * <p>
+ * <code>ResourceLoader</code> does not maintain any parsing states
+ * between loads. A single instance may be shared by multiple threads.
+ * <p>
+ * Every load is split into parsing the file into a context of type
+ * <code>C</code> and constructing the result from the context. When
+ * an <code>ImportCache</code> is set, the context is stored in compact
+ * binary form after the first parse, and later loads of the same
+ * content read the context from the cache without tokenizing. Every
+ * cached context is validated while it is read. A cache entry that
+ * cannot be read or is inconsistent is removed and the source is
+ * parsed instead, so a corrupted cache never fails a valid load.
+ * Failures to construct the result from a valid context are not
+ * caused by the cache and are thrown unchanged.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 11-18-2008 12:29 EST
  * @version Modified date: 06-26-2009 14:02 PST
  */
-public abstract class ResourceLoader<T> {
+public abstract class ResourceLoader<T, C> {
 	/**
 	 * The base orientation value used for translating coordinate systems.
 	 */
@@ -27,14 +54,28 @@ public abstract class ResourceLoader<T> {
 	 */
 	protected static final int version = 10;
 	/**
-	 * The <code>StreamTokenizer</code> instance.
+	 * The <code>Integer</code> initial size of the read buffer for non-file resources.
 	 */
-	protected StreamTokenizer reader;
+	private static final int bufferSize = 64 * 1024;
+	/**
+	 * The <code>ForkJoinPool</code> used in parallel mode.
+	 */
+	protected volatile ForkJoinPool pool;
+	/**
+	 * The <code>Boolean</code> parallel mode flag.
+	 */
+	protected volatile boolean parallel;
+	/**
+	 * The <code>ImportCache</code> instance.
+	 */
+	protected volatile ImportCache cache;
 	
 	/**
 	 * Constructor of <code>ResourceLoader</code>.
 	 */
-	protected ResourceLoader() {}
+	protected ResourceLoader() {
+		this.pool = ForkJoinPool.commonPool();
+	}
 	
 	/**
 	 * Load the resource.
@@ -44,61 +85,212 @@ public abstract class ResourceLoader<T> {
 	 * @throws IOException If reading is interrupted.
 	 */
 	public T load(URL url, String name) throws IOException {
-		final Reader reader = this.setupReader(url);
+		final ByteBuffer data = this.read(url);
+		final ImportCache cache = this.cache;
+		final String key = (cache != null) ? cache.getKey(data, this.getType()) : null;
+		C context = (cache != null) ? this.readCache(cache, key) : null;
+		if(context != null) return this.construct(context, name);
 		try {
-			return this.load(name);
-		} finally {
-			reader.close();
+			context = this.parse(new MD5Tokenizer(data));
+		} catch(IllegalStateException e) {
+			throw new IOException("Malformed MD5 file: " + url, e);
 		}
+		if(cache != null) this.writeCache(cache, key, context);
+		return this.construct(context, name);
 	}
-	
+
+	/**
+	 * Read the context of the given key from the given cache.
+	 * @param cache The <code>ImportCache</code> to read from.
+	 * @param key The <code>String</code> key of the entry.
+	 * @return The <code>C</code> context. <code>null</code> if there is no valid entry.
+	 */
+	private C readCache(ImportCache cache, String key) {
+		try {
+			final DataInputStream stream = cache.open(key);
+			if(stream == null) return null;
+			try {
+				return this.read(stream);
+			} finally {
+				stream.close();
+			}
+		} catch(IOException e) {
+			// Corrupted or inconsistent entry, parse the source instead.
+			cache.remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Write the given context with given key to the given cache.
+	 * @param cache The <code>ImportCache</code> to write to.
+	 * @param key The <code>String</code> key of the entry.
+	 * @param context The <code>C</code> context to be written.
+	 */
+	private void writeCache(ImportCache cache, String key, C context) {
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream stream = new DataOutputStream(bytes);
+			this.write(context, stream);
+			stream.flush();
+			cache.store(key, bytes.toByteArray());
+		} catch(IOException e) {
+			// The cache is an optimization only, the load is still valid.
+		}
+	}
+
 	/**
-	 * Load the data with given name.
+	 * Parse the file of the given tokenizer into a context.
+	 * @param reader The <code>MD5Tokenizer</code> of the file.
+	 * @return The parsed <code>C</code> context.
+	 */
+	protected abstract C parse(MD5Tokenizer reader);
+
+	/**
+	 * Construct the result from the given context.
+	 * @param context The parsed <code>C</code> context.
 	 * @param name The <code>String</code> to set the result to.
 	 * @return The <code>T</code> loaded data structure.
+	 */
+	protected abstract T construct(C context, String name);
+
+	/**
+	 * Write the given context in compact binary form.
+	 * @param context The parsed <code>C</code> context.
+	 * @param out The <code>DataOutput</code> to write to.
+	 * @throws IOException If writing is interrupted.
+	 */
+	protected abstract void write(C context, DataOutput out) throws IOException;
+
+	/**
+	 * Read a context written by <code>write</code>. The read context must
+	 * be validated, so an inconsistent entry is rejected before construction.
+	 * @param in The <code>DataInput</code> to read from.
+	 * @return The read <code>C</code> context.
 	 * @throws IOException If reading is interrupted.
+	 * @throws InvalidCacheException If the read context is inconsistent.
 	 */
-	protected abstract T load(String name) throws IOException;
-	
+	protected abstract C read(DataInput in) throws IOException;
+
 	/**
-	 * Setup the reader for reading.
-	 * @param url The <code>URL</code> of the file.
-	 * @return The <code>Reader</code> instance.
+	 * Read a count of a cached context.
+	 * @param in The <code>DataInput</code> to read from.
+	 * @return The <code>Integer</code> non-negative count.
 	 * @throws IOException If reading is interrupted.
+	 * @throws InvalidCacheException If the count is negative.
 	 */
-	private Reader setupReader(URL url) throws IOException {
-		InputStreamReader streamReader = new InputStreamReader(url.openStream());
-		this.reader = new StreamTokenizer(streamReader);
-		this.reader.quoteChar('"');
-		this.reader.ordinaryChar('{');
-		this.reader.ordinaryChar('}');
-		this.reader.ordinaryChar('(');
-		this.reader.ordinaryChar(')');
-		this.reader.parseNumbers();
-		this.reader.slashSlashComments(true);
-		this.reader.eolIsSignificant(true);
-		return streamReader;
+	protected static int readCount(DataInput in) throws IOException {
+		final int count = in.readInt();
+		if(count < 0) throw new InvalidCacheException("Negative count: " + count);
+		return count;
 	}
 
 	/**
-	 * Read in a three-dimensional vector.
-	 * @return The read in <code>Vector3f</code> instance.
-	 * @throws IOException If errors occurred during file reading.
+	 * Read an index of a cached context.
+	 * @param in The <code>DataInput</code> to read from.
+	 * @param min The <code>Integer</code> minimum valid index, inclusive.
+	 * @param max The <code>Integer</code> maximum valid index, exclusive.
+	 * @return The <code>Integer</code> index within the valid range.
+	 * @throws IOException If reading is interrupted.
+	 * @throws InvalidCacheException If the index is out of range.
 	 */
-	protected Vector3f readVector() throws IOException {
-		float[] values = new float[3];
-		for(int i = 0; i < 3; i++) {
-			while(this.reader.ttype != StreamTokenizer.TT_NUMBER) {
-				this.reader.nextToken();
+	protected static int readIndex(DataInput in, int min, int max) throws IOException {
+		final int index = in.readInt();
+		if(index < min || index >= max) throw new InvalidCacheException("Index out of range: " + index);
+		return index;
+	}
+
+	/**
+	 * Retrieve the type of the resources this loader imports.
+	 * @return The <code>String</code> resource type.
+	 */
+	protected abstract String getType();
+	
+	/**
+	 * Read the entire content of the given resource. Local files are
+	 * memory mapped, other resources are read into a heap buffer.
+	 * @param url The <code>URL</code> of the file.
+	 * @return The <code>ByteBuffer</code> containing the file content.
+	 * @throws IOException If reading is interrupted.
+	 */
+	private ByteBuffer read(URL url) throws IOException {
+		if("file".equals(url.getProtocol())) {
+			try {
+				final FileInputStream stream = new FileInputStream(new File(url.toURI()));
+				try {
+					final FileChannel channel = stream.getChannel();
+					return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				} finally {
+					stream.close();
+				}
+			} catch(URISyntaxException e) {
+				// Fall back to stream reading.
+			} catch(IllegalArgumentException e) {
+				// Fall back to stream reading.
 			}
-			values[i] = (float)this.reader.nval;
-			this.reader.nextToken();
 		}
-		return new Vector3f(values[0], values[1], values[2]);
+		final InputStream stream = url.openStream();
+		try {
+			byte[] data = new byte[ResourceLoader.bufferSize];
+			int size = 0;
+			int count = 0;
+			while((count = stream.read(data, size, data.length - size)) >= 0) {
+				size += count;
+				if(size == data.length) {
+					final byte[] grown = new byte[data.length * 2];
+					System.arraycopy(data, 0, grown, 0, size);
+					data = grown;
+				}
+			}
+			return ByteBuffer.wrap(data, 0, size);
+		} finally {
+			stream.close();
+		}
 	}
-	
+
+	/**
+	 * Set if independent sections of a file should be decoded in parallel.
+	 * @param parallel The <code>Boolean</code> parallel mode flag.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Set the pool used to decode sections in parallel mode.
+	 * @param pool The <code>ForkJoinPool</code> instance.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		if(pool != null) this.pool = pool;
+	}
+
+	/**
+	 * Set the cache of compiled resources.
+	 * @param cache The <code>ImportCache</code> instance. <code>null</code> to disable caching.
+	 */
+	public void setCache(ImportCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Retrieve the cache of compiled resources.
+	 * @return The <code>ImportCache</code> instance. <code>null</code> if caching is disabled.
+	 */
+	public ImportCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Check if independent sections of a file are decoded in parallel.
+	 * @return The <code>Boolean</code> parallel mode flag.
+	 */
+	public boolean isParallel() {
+		return this.parallel;
+	}
+
 	/**
-	 * Clean up the loader.
+	 * Clean up the loader. Parsing states are maintained per load, so
+	 * this is no longer required between loads.
 	 */
-	public abstract void cleanup();
+	public void cleanup() {}
 }
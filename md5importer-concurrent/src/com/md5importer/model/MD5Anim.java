@@ -2,7 +2,6 @@ package com.md5importer.model;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.jme.util.export.InputCapsule;
 import com.jme.util.export.JMEExporter;
@@ -10,7 +9,11 @@ import com.jme.util.export.JMEImporter;
 import com.jme.util.export.OutputCapsule;
 import com.jme.util.export.Savable;
 import com.md5importer.interfaces.model.IMD5Anim;
+import com.md5importer.interfaces.model.IMD5Clip;
 import com.md5importer.interfaces.model.anim.IFrame;
+import com.md5importer.interfaces.model.anim.IPlaybackState;
+import com.md5importer.model.anim.FrameChannels;
+import com.md5importer.model.anim.PlaybackState;
 
 /**
  * <code>MD5Anim</code> defines the concrete implementation of
@@ -20,6 +23,17 @@ import com.md5importer.interfaces.model.anim.IFrame;
  * be the hash code of the <code>String</code> name. Two instances
  * of <code>MD5Anim</code> are considered as equal if both of
  * them have the same name.
+ * <p>
+ * <code>MD5Anim</code> is a playback cursor that only maintains the
+ * frame indices and the elapsed time. All the frame data is kept by
+ * the immutable <code>IMD5Clip</code>, which is shared by the clones
+ * of the animation. Cloning an animation therefore only allocates a
+ * new cursor.
+ * <p>
+ * <code>MD5Anim</code> publishes the frame indices and elapsed time as
+ * a single immutable <code>IPlaybackState</code> through a volatile
+ * reference. Readers never lock, and always observe a set of values
+ * that were set together.
  *
  * @author Yi Wang (Neakor)
  * @version Creation date: 03-23-2009 17:36 EST
@@ -31,55 +45,24 @@ public class MD5Anim extends AbstractObservable implements Serializable, IMD5Ani
 	 */
 	private static final long serialVersionUID = 3116414498115764623L;
 	/**
-	 * The <code>ReentrantLock</code> for setting indices.
-	 */
-	private final ReentrantLock lock;
-	/**
-	 * The <code>String</code> name of this animation.
+	 * The <code>Integer</code> version of the export layout.
 	 */
-	private String name;
+	private static final int version = 1;
 	/**
-	 * The <code>String</code> joint IDs.
+	 * The shared <code>IMD5Clip</code> data.
 	 */
-	private String[] jointIDs;
+	private IMD5Clip clip;
 	/**
-	 * The array of key <code>IFrame</code>.
+	 * The current <code>IPlaybackState</code> snapshot.
 	 */
-	private IFrame[] frames;
-	/**
-	 * The <code>Float</code> frame rate.
-	 */
-	private float frameRate;
-	/**
-	 * The array of <code>Float</code> starting time of each frame.
-	 */
-	private float[] frameTimes;
-	/**
-	 * The <code>Float</code> total animation time.
-	 */
-	private float animationTime;
-	/**
-	 * The time elapsed since last change in key frame.
-	 */
-	private float time;
-	/**
-	 * The index of the previous frame.
-	 */
-	private int prev;
-	/**
-	 * The index of the next frame.
-	 */
-	private int next;
+	private volatile IPlaybackState state;
 	
 	/**
 	 * Constructor of <code>MD5Anim</code>.
 	 */
 	public MD5Anim() {
-		this.lock = new ReentrantLock();
 		// Default values.
-		this.time = 0;
-		this.prev = 0;
-		this.next = 1;
+		this.state = new PlaybackState(0, 1, 0);
 	}
 
 	/**
@@ -90,141 +73,113 @@ public class MD5Anim extends AbstractObservable implements Serializable, IMD5Ani
 	 * @param framerate The <code>Float</code> frame rate.
 	 */
 	public MD5Anim(String name, String[] IDs, IFrame[] frames, float framerate) {
-		this.lock = new ReentrantLock();
-		this.name = name;
-		this.jointIDs = IDs;
-		this.frames = frames;
-		this.frameRate = framerate;
-		final float timeperframe = 1.0f/this.frameRate;
-		this.frameTimes = new float[this.frames.length];
-		for(int i = 0; i < this.frameTimes.length; i++) {
-			this.frameTimes[i] = (float)i * timeperframe;
-		}
-		this.animationTime = (1.0f/this.frameRate)*(float)this.frames.length;
-		// Default values.
-		this.time = 0;
-		this.prev = 0;
-		this.next = 1;
+		this(name, IDs, FrameChannels.dense(frames, IDs.length), framerate);
+	}
+
+	/**
+	 * Constructor of <code>MD5Anim</code>.
+	 * @param name The <code>String</code> name of this animation.
+	 * @param IDs The <code>String</code> joint IDs.
+	 * @param channels The <code>FrameChannels</code> of all frames.
+	 * @param framerate The <code>Float</code> frame rate.
+	 */
+	public MD5Anim(String name, String[] IDs, FrameChannels channels, float framerate) {
+		this(new MD5Clip(name, IDs, channels, framerate));
+	}
+
+	/**
+	 * Constructor of <code>MD5Anim</code>.
+	 * @param clip The shared <code>IMD5Clip</code> data.
+	 */
+	public MD5Anim(IMD5Clip clip) {
+		this();
+		this.clip = clip;
 	}
 
 	@Override
 	public void setIndices(int prev, int next, float time) {
-		this.lock.lock();
-		try {
-			this.prev = prev;
-			this.next = next;
-			this.time = time;
-			// Clamp.
-			if(this.prev < 0) this.prev = 0;
-			else if(this.prev >= this.getFrameCount()) this.prev = this.getFrameCount() - 1;
-			if(this.next < 0) this.next = 0;
-			else if(this.next >= this.getFrameCount()) this.next = this.getFrameCount() - 1;
-		} finally {
-			// Release lock before invoke external method for notification.
-			this.lock.unlock();
-		}
+		// Clamp.
+		final int last = this.getFrameCount() - 1;
+		if(prev < 0) prev = 0;
+		else if(prev > last) prev = last;
+		if(next < 0) next = 0;
+		else if(next > last) next = last;
+		this.state = new PlaybackState(prev, next, time);
 	}
 
 	@Override
 	public float getAnimationTime() {
-		return this.animationTime;
+		return this.clip.getAnimationTime();
 	}
 
 	@Override
 	public int getFrameCount() {
-		return this.frames.length;
+		return this.clip.getFrameCount();
 	}
 
 	@Override
 	public float getPercentage() {
-		this.lock.lock();
-		try {
-			return (float)this.next / (float)this.getFrameCount();
-		} finally {
-			this.lock.unlock();
-		}
+		return (float)this.state.getNextIndex() / (float)this.getFrameCount();
 	}
 
 	@Override
 	public IFrame getPreviousFrame() {
-		this.lock.lock();
-		try {
-			return this.frames[this.prev];
-		} finally {
-			this.lock.unlock();
-		}
+		return this.clip.getFrame(this.state.getPreviousIndex());
 	}
 
 	@Override
 	public int getPreviousIndex() {
-		this.lock.lock();
-		try {
-			return this.prev;
-		} finally  {
-			this.lock.unlock();
-		}
+		return this.state.getPreviousIndex();
 	}
 
 	@Override
 	public float getPreviousTime() {
-		this.lock.lock();
-		try {
-			if(this.frameTimes != null) return this.frameTimes[this.prev];
-			return ((float)this.prev) * (1.0f/this.frameRate);
-		} finally {
-			this.lock.unlock();
-		}
+		return this.clip.getFrameTime(this.state.getPreviousIndex());
 	}
 
 	@Override
 	public IFrame getNextFrame() {
-		this.lock.lock();
-		try {
-			return this.frames[this.next];
-		} finally {
-			this.lock.unlock();
-		}
+		return this.clip.getFrame(this.state.getNextIndex());
 	}
 
 	@Override
 	public int getNextIndex() {
-		this.lock.lock();
-		try {
-			return this.next;
-		} finally {
-			this.lock.unlock();
-		}
+		return this.state.getNextIndex();
 	}
 
 	@Override
 	public float getNextTime() {
-		this.lock.lock();
-		try {
-			if(this.frameTimes != null) return this.frameTimes[this.next];
-			return ((float)this.next) * (1.0f/this.frameRate);
-		} finally {
-			this.lock.unlock();
-		}
+		return this.clip.getFrameTime(this.state.getNextIndex());
+	}
+
+	@Override
+	public float[] getTransforms(int index, float[] store) {
+		return this.clip.getTransforms(index, store);
+	}
+
+	@Override
+	public IPlaybackState getState() {
+		return this.state;
+	}
+
+	@Override
+	public IMD5Clip getClip() {
+		return this.clip;
 	}
 
 	@Override
 	public String[] getJointIDs() {
-		return this.jointIDs;
+		return this.clip.getJointIDs();
 	}
 
 	@Override
 	public String getName() {
-		return this.name;
+		return this.clip.getName();
 	}
 
 	@Override
 	public float getTime() {
-		this.lock.lock();
-		try {
-			return this.time;
-		} finally {
-			this.lock.unlock();
-		}
+		return this.state.getTime();
 	}
 
 	@Override
@@ -235,37 +190,40 @@ public class MD5Anim extends AbstractObservable implements Serializable, IMD5Ani
 	@Override
 	public void write(JMEExporter ex) throws IOException {
 		OutputCapsule oc = ex.getCapsule(this);
-		oc.write(this.name, "Name", null);
-		oc.write(this.jointIDs, "JointIDs", null);
-		oc.write(this.frames, "Frames", null);
-		oc.write(this.frameRate, "FrameRate", 0);
-		oc.write(this.frameTimes, "FrameTimes", null);
-		oc.write(this.animationTime, "AnimationTime", 0);
+		oc.write(MD5Anim.version, "Version", 0);
+		oc.write(this.clip, "Clip", null);
 	}
 
 	@Override
 	public void read(JMEImporter im) throws IOException {
 		InputCapsule ic = im.getCapsule(this);
-		this.name = ic.readString("Name", null);
-		this.jointIDs = ic.readStringArray("JointIDs", null);
+		final int version = ic.readInt("Version", 0);
+		if(version >= MD5Anim.version) {
+			this.clip = (IMD5Clip)ic.readSavable("Clip", null);
+			return;
+		}
+		final String name = ic.readString("Name", null);
+		final String[] jointIDs = ic.readStringArray("JointIDs", null);
 		Savable[] temp = ic.readSavableArray("Frames", null);
-		this.frames = new IFrame[temp.length];
+		IFrame[] frames = new IFrame[temp.length];
 		for(int i = 0; i < temp.length; i++) {
-			this.frames[i] = (IFrame)temp[i];
+			frames[i] = (IFrame)temp[i];
 		}
-		this.frameRate = ic.readFloat("FrameRate", 0);
-		this.frameTimes = ic.readFloatArray("FrameTimes", null);
-		this.animationTime = ic.readFloat("AnimationTime", 0);
+		final FrameChannels channels = FrameChannels.dense(frames, jointIDs.length);
+		final float frameRate = ic.readFloat("FrameRate", 0);
+		final float[] frameTimes = ic.readFloatArray("FrameTimes", null);
+		final float animationTime = ic.readFloat("AnimationTime", 0);
+		this.clip = new MD5Clip(name, jointIDs, channels, frameRate, frameTimes, animationTime);
 	}
 
 	@Override
 	public String toString() {
-		return this.name;
+		return this.getName();
 	}
 
 	@Override
 	public int hashCode() {
-		return this.name.hashCode();
+		return this.getName().hashCode();
 	}
 
 	@Override
@@ -273,18 +231,13 @@ public class MD5Anim extends AbstractObservable implements Serializable, IMD5Ani
 		if(object == this) return true;
 		if(object instanceof MD5Anim) {
 			MD5Anim given = (MD5Anim)object;
-			return given.name.equals(this.name);
+			return given.getName().equals(this.getName());
 		}
 		return false;
 	}
 
 	@Override
 	public IMD5Anim clone() {
-		String[] clonedIDs = new String[this.jointIDs.length];
-		for(int i = 0; i < clonedIDs.length; i++) clonedIDs[i] = new String(this.jointIDs[i]);
-		IFrame[] clonedFrames = new IFrame[this.frames.length];
-		for(int i = 0; i < clonedFrames.length; i++) clonedFrames[i] = this.frames[i].clone();
-		MD5Anim clone = new MD5Anim(new String(this.name), clonedIDs, clonedFrames, this.frameRate);
-		return clone;
+		return new MD5Anim(this.clip);
 	}
 }
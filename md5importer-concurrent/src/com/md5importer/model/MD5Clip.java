@@ -0,0 +1,210 @@
+package com.md5importer.model;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.jme.util.export.InputCapsule;
+import com.jme.util.export.JMEExporter;
+import com.jme.util.export.JMEImporter;
+import com.jme.util.export.OutputCapsule;
+import com.md5importer.interfaces.model.IMD5Clip;
+import com.md5importer.interfaces.model.anim.IFrame;
+import com.md5importer.model.anim.Frame;
+import com.md5importer.model.anim.FrameChannels;
+
+/**
+ * <code>MD5Clip</code> defines the concrete implementation of the
+ * immutable MD5 animation clip data.
+ * <p>
+ * <code>MD5Clip</code> stores the transforms of all frames in a single
+ * <code>FrameChannels</code> which only keeps the animated channels
+ * of each frame. Frames are reconstructed into packed arrays with
+ * seven values per joint when sampled.
+ * <p>
+ * <code>MD5Clip</code> locates the frame at a given time directly from
+ * the frame rate, and only falls back to a binary search over the frame
+ * times when they are not uniformly spaced.
+ * <p>
+ * <code>MD5Clip</code> defines the hash code of an instance to be the
+ * hash code of the <code>String</code> name. Two instances of
+ * <code>MD5Clip</code> are considered as equal if both of them have
+ * the same name.
+ */
+public class MD5Clip implements Serializable, IMD5Clip {
+	/**
+	 * Serial version.
+	 */
+	private static final long serialVersionUID = -6528734012973815276L;
+	/**
+	 * The <code>String</code> name of this clip.
+	 */
+	private String name;
+	/**
+	 * The <code>String</code> joint IDs.
+	 */
+	private String[] jointIDs;
+	/**
+	 * The <code>FrameChannels</code> of all frames.
+	 */
+	private FrameChannels channels;
+	/**
+	 * The <code>Float</code> frame rate.
+	 */
+	private float frameRate;
+	/**
+	 * The array of <code>Float</code> starting time of each frame.
+	 */
+	private float[] frameTimes;
+	/**
+	 * The <code>Float</code> total animation time.
+	 */
+	private float animationTime;
+
+	/**
+	 * Constructor of <code>MD5Clip</code>.
+	 */
+	public MD5Clip() {
+		super();
+	}
+
+	/**
+	 * Constructor of <code>MD5Clip</code>.
+	 * @param name The <code>String</code> name of this clip.
+	 * @param IDs The <code>String</code> joint IDs.
+	 * @param channels The <code>FrameChannels</code> of all frames.
+	 * @param framerate The <code>Float</code> frame rate.
+	 */
+	public MD5Clip(String name, String[] IDs, FrameChannels channels, float framerate) {
+		this(name, IDs, channels, framerate, null, (1.0f/framerate)*(float)channels.getFrameCount());
+		final float timeperframe = 1.0f/this.frameRate;
+		this.frameTimes = new float[this.channels.getFrameCount()];
+		for(int i = 0; i < this.frameTimes.length; i++) {
+			this.frameTimes[i] = (float)i * timeperframe;
+		}
+	}
+
+	/**
+	 * Constructor of <code>MD5Clip</code>.
+	 * @param name The <code>String</code> name of this clip.
+	 * @param IDs The <code>String</code> joint IDs.
+	 * @param channels The <code>FrameChannels</code> of all frames.
+	 * @param framerate The <code>Float</code> frame rate.
+	 * @param frameTimes The array of <code>Float</code> starting time of each frame.
+	 * @param animationTime The <code>Float</code> total animation time.
+	 */
+	MD5Clip(String name, String[] IDs, FrameChannels channels, float framerate, float[] frameTimes, float animationTime) {
+		this.name = name;
+		this.jointIDs = IDs;
+		this.channels = channels;
+		this.frameRate = framerate;
+		this.frameTimes = frameTimes;
+		this.animationTime = animationTime;
+	}
+
+	@Override
+	public float getAnimationTime() {
+		return this.animationTime;
+	}
+
+	@Override
+	public int getFrameCount() {
+		return this.channels.getFrameCount();
+	}
+
+	@Override
+	public float getFrameRate() {
+		return this.frameRate;
+	}
+
+	@Override
+	public float getFrameTime(int index) {
+		if(this.frameTimes != null) return this.frameTimes[index];
+		return ((float)index) * (1.0f/this.frameRate);
+	}
+
+	@Override
+	public int getFrameIndex(float time) {
+		final int last = this.getFrameCount() - 1;
+		if(last <= 0 || time <= this.getFrameTime(0)) return 0;
+		if(time >= this.getFrameTime(last)) return last;
+		// Guess based on the frame rate and verify against the frame times.
+		int index = (int)(time * this.frameRate);
+		if(index >= 0 && index < last && this.getFrameTime(index) <= time && time < this.getFrameTime(index + 1)) return index;
+		int low = 0;
+		int high = last;
+		while(high - low > 1) {
+			index = (low + high) >>> 1;
+			if(this.getFrameTime(index) <= time) low = index;
+			else high = index;
+		}
+		return low;
+	}
+
+	@Override
+	public IFrame getFrame(int index) {
+		final int numJoints = this.jointIDs.length;
+		return new Frame(this.channels.decode(index, new float[numJoints * Frame.stride]), 0, numJoints);
+	}
+
+	@Override
+	public float[] getTransforms(int index, float[] store) {
+		return this.channels.decode(index, store);
+	}
+
+	@Override
+	public String[] getJointIDs() {
+		return this.jointIDs;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Class<MD5Clip> getClassTag() {
+		return MD5Clip.class;
+	}
+
+	@Override
+	public void write(JMEExporter ex) throws IOException {
+		OutputCapsule oc = ex.getCapsule(this);
+		oc.write(this.name, "Name", null);
+		oc.write(this.jointIDs, "JointIDs", null);
+		oc.write(this.channels, "Channels", null);
+		oc.write(this.frameRate, "FrameRate", 0);
+		oc.write(this.frameTimes, "FrameTimes", null);
+		oc.write(this.animationTime, "AnimationTime", 0);
+	}
+
+	@Override
+	public void read(JMEImporter im) throws IOException {
+		InputCapsule ic = im.getCapsule(this);
+		this.name = ic.readString("Name", null);
+		this.jointIDs = ic.readStringArray("JointIDs", null);
+		this.channels = (FrameChannels)ic.readSavable("Channels", null);
+		this.frameRate = ic.readFloat("FrameRate", 0);
+		this.frameTimes = ic.readFloatArray("FrameTimes", null);
+		this.animationTime = ic.readFloat("AnimationTime", 0);
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if(object == this) return true;
+		if(object instanceof MD5Clip) {
+			MD5Clip given = (MD5Clip)object;
+			return given.name.equals(this.name);
+		}
+		return false;
+	}
+}
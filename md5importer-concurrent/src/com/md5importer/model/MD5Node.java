@@ -1,10 +1,11 @@
 package com.md5importer.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.jme.scene.Node;
 import com.jme.scene.Spatial;
@@ -16,6 +17,9 @@ import com.jme.util.export.Savable;
 import com.md5importer.interfaces.model.IMD5Node;
 import com.md5importer.interfaces.model.mesh.IJoint;
 import com.md5importer.interfaces.model.mesh.IMesh;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
+import com.md5importer.model.mesh.Mesh;
+import com.md5importer.model.mesh.Skeleton;
 
 /**
  * <code>MD5Node</code> is the final product of MD5 loading process.
@@ -26,7 +30,37 @@ import com.md5importer.interfaces.model.mesh.IMesh;
  * <code>MD5Node</code> provides the cloning functionality so that
  * users can fast clone model nodes that may be used by multiple
  * entities. The newly cloned <code>MD5Node</code> is already
- * initialized and ready to be used.
+ * initialized and ready to be used. A clone only allocates its own
+ * joint poses and mesh buffers, and shares all immutable model data
+ * with the original.
+ * <p>
+ * <code>MD5Node</code> triple buffers the vertex information of its
+ * meshes. The updating thread owns the back buffer set and the render
+ * thread owns the front buffer set. A completed update is published by
+ * atomically exchanging the back buffer set with the ready one, and a
+ * swap atomically exchanges the front buffer set with the ready one if
+ * it contains a newer update. Neither thread ever blocks, and the render
+ * thread always presents the latest completed update. Dependent children
+ * use the buffer sets selected by their parent node, and start out
+ * presenting the buffer set their parent presents when attached.
+ * <p>
+ * <code>MD5Node</code> may be constructed without any meshes when it is
+ * loaded in headless mode. Such a node only maintains the skeleton, which
+ * is still updated by the node controllers, and does not require a display.
+ * <p>
+ * <code>MD5Node</code> evaluates its joints with a flattened
+ * <code>ISkeleton</code> in a single batched pass. Dependent children
+ * share the skeleton of their parent node. Once the skeleton is
+ * evaluated, the meshes of the node and all its dependent children only
+ * read the shared joint matrices and write their own buffers. They are
+ * therefore skinned concurrently on the shared mesh update pool, and
+ * the update is only published after all of them are completed.
+ * <p>
+ * <code>MD5Node</code> records the pose version of its skeleton with
+ * every mesh update. If the skeleton has not changed since the latest
+ * update, such as with a completed clamped animation, the meshes are
+ * neither skinned nor published again and the current buffer set keeps
+ * being presented.
  *
  * @author Yi Wang (Neakor)
  * @version Modified date: 06-21-2009 19:19 PST
@@ -37,21 +71,45 @@ public class MD5Node extends Node implements IMD5Node {
 	 */
 	private static final long serialVersionUID = -2799207065296472869L;
 	/**
-	 * The update <code>Semaphore</code>.
+	 * The <code>Integer</code> mask of the buffer set index in the ready state.
+	 */
+	private static final int mask = 3;
+	/**
+	 * The <code>Integer</code> flag of the ready state indicating a newer update.
+	 */
+	private static final int fresh = 4;
+	/**
+	 * The <code>AtomicInteger</code> ready buffer set index and fresh flag.
 	 */
-	private final Semaphore updateSem;
+	private final AtomicInteger ready;
 	/**
-	 * The swap <code>Semaphore</code>.
+	 * The <code>Integer</code> index of the buffer set being updated.
 	 */
-	private final Semaphore swapSem;
+	private int back;
+	/**
+	 * The <code>Integer</code> index of the buffer set being presented.
+	 */
+	private int front;
+	/**
+	 * The <code>Integer</code> skeleton pose version of the latest mesh update.
+	 */
+	private int version;
 	/**
 	 * The flag indicates if model node shares skeleton with its parent.
 	 */
 	private volatile boolean dependent;
+	/**
+	 * The flag indicates if meshes are updated in parallel.
+	 */
+	private volatile boolean parallel;
 	/**
 	 * The array of <code>IJoint</code> skeleton.
 	 */
 	private IJoint[] joints;
+	/**
+	 * The flattened <code>ISkeleton</code> of the joints.
+	 */
+	private ISkeleton skeleton;
 	/**
 	 * The array of <code>IMesh</code> instances.
 	 */
@@ -66,8 +124,10 @@ public class MD5Node extends Node implements IMD5Node {
 	 */
 	public MD5Node() {
 		super();
-		this.updateSem = new Semaphore(0);
-		this.swapSem = new Semaphore(1);
+		this.ready = new AtomicInteger(1);
+		this.back = 2;
+		this.front = 0;
+		this.parallel = true;
 		this.dependents = new CopyOnWriteArrayList<IMD5Node>();
 	}
 
@@ -78,9 +138,13 @@ public class MD5Node extends Node implements IMD5Node {
 	public MD5Node(String name, IJoint[] joints, IMesh[] meshes) {
 		super(name);
 		this.joints = joints;
+		this.skeleton = new Skeleton(joints);
 		this.meshes = meshes;
-		this.updateSem = new Semaphore(0);
-		this.swapSem = new Semaphore(1);
+		for(IMesh mesh : this.meshes) mesh.setSkeleton(this.skeleton);
+		this.ready = new AtomicInteger(1);
+		this.back = 2;
+		this.front = 0;
+		this.parallel = true;
 		this.dependents = new CopyOnWriteArrayList<IMD5Node>();
 	}
 
@@ -92,62 +156,76 @@ public class MD5Node extends Node implements IMD5Node {
 			}
 		}
 		if(!this.dependent) {
-			for(IJoint joint : this.joints) {
-				joint.processRelative();
-			}
+			this.skeleton.processLocals();
+			this.skeleton.process();
 		}
 		for(int i = 0; i < this.meshes.length; i++) {
 			this.meshes[i].initialize(this.name);
 			this.attachChild((Spatial)this.meshes[i]);
 		}
-		// Populate both back and front buffers with bind pose data.
-		this.swapBuffers();
-		this.updateMeshes();
-		// Ensure update ready.
-		this.swapSem.drainPermits();
-		if(this.updateSem.availablePermits() <= 0) this.updateSem.release();
+		// Present bind pose data and discard any pending update.
+		for(int i = 0; i < this.meshes.length; i++) this.meshes[i].swapBuffer(this.front);
+		this.ready.set(this.ready.get() & MD5Node.mask);
+		this.version = this.skeleton.getVersion();
 	}
 
 	@Override
 	public void updateMeshes() {
-		// Try to acquire update permit and wait for 1 millisecond before giving up.
-		// Cannot unconditionally acquire since if the render thread is invoking
-		// any operations that affect the thread invoking update meshes, an out-of-
-		// order locking can occur causing deadlock.
-		if(!this.dependent) {
-			try {
-				if(!this.updateSem.tryAcquire(1, TimeUnit.MILLISECONDS)) return;
-			} catch (InterruptedException e) {
-				throw new RuntimeException("Acquiring update permit interrupted.");
-			}
+		if(this.dependent) return;
+		// Skip the update if the pose has not changed.
+		final int version = this.skeleton.getVersion();
+		if(version == this.version) return;
+		this.version = version;
+		this.updateMeshes(this.back);
+		// Publish the updated buffer set and take over the ready one.
+		this.back = this.ready.getAndSet(this.back | MD5Node.fresh) & MD5Node.mask;
+	}
+
+	/**
+	 * Update all the meshes including meshes maintained by dependent
+	 * children into the buffer set with given index.
+	 * @param buffer The <code>Integer</code> index of the buffer set.
+	 */
+	protected void updateMeshes(int buffer) {
+		if(this.parallel && (this.meshes.length > 1 || !this.dependents.isEmpty())) {
+			Mesh.getPool().invoke(new UpdateTask(this, null, buffer));
+			return;
 		}
 		// Update mesh geometric information.
-		for(int i = 0; i < this.meshes.length; i++) this.meshes[i].updateMesh();
+		for(int i = 0; i < this.meshes.length; i++) this.meshes[i].updateMesh(buffer);
 		// Update dependent children.
-		for(final IMD5Node child : this.dependents) child.updateMeshes();
-		// Release swap permit.
-		if(!this.dependent) {
-			if(this.swapSem.availablePermits() <= 0) this.swapSem.release();
-		}
+		for(final IMD5Node child : this.dependents) ((MD5Node)child).updateMeshes(buffer);
+	}
+
+	/**
+	 * Update all the meshes including meshes maintained by dependent
+	 * children concurrently within the current pool task.
+	 * @param buffer The <code>Integer</code> index of the buffer set.
+	 */
+	private void forkMeshes(int buffer) {
+		final List<UpdateTask> tasks = new ArrayList<UpdateTask>(this.meshes.length + 4);
+		for(int i = 0; i < this.meshes.length; i++) tasks.add(new UpdateTask(null, this.meshes[i], buffer));
+		for(final IMD5Node child : this.dependents) tasks.add(new UpdateTask((MD5Node)child, null, buffer));
+		RecursiveAction.invokeAll(tasks);
 	}
 
 	@Override
 	public void swapBuffers() {
-		// Try to acquire swap permit and wait for 1 microsecond before giving up.
-		if(!this.dependent) {
-			try {
-				if(!this.swapSem.tryAcquire(1, TimeUnit.MICROSECONDS)) return;
-			} catch (InterruptedException e) {
-				throw new RuntimeException("Acquiring buffer swap permit interrupted.");
-			}
-		}
-		// Swap buffers.
-		for(int i = 0; i < this.meshes.length; i++) this.meshes[i].swapBuffer();
-		for(final IMD5Node child : this.dependents) child.swapBuffers();
-		// Release update permit.
-		if(!this.dependent) {
-			if(this.updateSem.availablePermits() <= 0) this.updateSem.release();
-		}
+		if(this.dependent) return;
+		// Keep presenting the current buffer set if there is no newer update.
+		if((this.ready.get() & MD5Node.fresh) == 0) return;
+		this.front = this.ready.getAndSet(this.front) & MD5Node.mask;
+		this.swapBuffers(this.front);
+	}
+
+	/**
+	 * Present the buffer set with given index of all the meshes including
+	 * meshes maintained by dependent children.
+	 * @param buffer The <code>Integer</code> index of the buffer set.
+	 */
+	protected void swapBuffers(int buffer) {
+		for(int i = 0; i < this.meshes.length; i++) this.meshes[i].swapBuffer(buffer);
+		for(final IMD5Node child : this.dependents) ((MD5Node)child).swapBuffers(buffer);
 	}
 
 	@Override
@@ -188,7 +266,7 @@ public class MD5Node extends Node implements IMD5Node {
 	@Override
 	public void detachDependent(IMD5Node node) {
 		this.dependents.remove(node);
-		this.setDependent(false, this);
+		((MD5Node)node).setDependent(false, this);
 		this.detachChild((Spatial)node);
 		node.initialize();
 	}
@@ -202,22 +280,26 @@ public class MD5Node extends Node implements IMD5Node {
 	protected void setDependent(boolean dependent, IMD5Node parent) {
 		this.dependent = dependent;
 		if(this.dependent) {
+			// Present the buffer set currently presented by the parent.
+			this.front = ((MD5Node)parent).front;
 			this.joints = parent.getJoints();
+			this.skeleton = parent.getSkeleton();
 			for(IMesh mesh : this.meshes) {
-				mesh.setJoints(this.joints);
+				mesh.setSkeleton(this.skeleton);
 			}
-			this.updateSem.drainPermits();
-			this.swapSem.drainPermits();
 		} else {
+			// Restore an independent set of buffer set indices.
+			this.ready.set(1);
+			this.back = 2;
+			this.front = 0;
 			for(int i = 0; i < this.joints.length; i++) {
 				IJoint clone = this.joints[i].clone();
 				this.joints[i] = clone;
 			}
+			this.skeleton = new Skeleton(this.joints);
 			for(IMesh mesh : this.meshes) {
-				mesh.setJoints(this.joints);
+				mesh.setSkeleton(this.skeleton);
 			}
-			this.updateSem.release();
-			this.swapSem.drainPermits();
 		}
 	}
 
@@ -226,6 +308,11 @@ public class MD5Node extends Node implements IMD5Node {
 		return this.joints;
 	}
 
+	@Override
+	public ISkeleton getSkeleton() {
+		return this.skeleton;
+	}
+
 	@Override
 	public IJoint getJoint(int index) {
 		return this.joints[index];
@@ -268,6 +355,16 @@ public class MD5Node extends Node implements IMD5Node {
 		return this.dependent;
 	}
 
+	@Override
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	@Override
+	public boolean isParallel() {
+		return this.parallel;
+	}
+
 	@Override
 	public void write(JMEExporter ex) throws IOException {
 		// Detach meshes before export.
@@ -303,16 +400,25 @@ public class MD5Node extends Node implements IMD5Node {
 		for(int i = 0; i < temp.length; i++) {
 			this.joints[i] = (IJoint)temp[i];
 		}
+		this.skeleton = new Skeleton(this.joints);
+		// Evaluate the shared joints until bound to the parent skeleton.
+		if(this.dependent) this.skeleton.process();
 		temp = ic.readSavableArray("Meshes", null);
 		this.meshes = new IMesh[temp.length];
 		for(int i = 0; i < temp.length; i++) {
 			this.meshes[i] = (IMesh)temp[i];
+			this.meshes[i].setSkeleton(this.skeleton);
 		}
 		Savable[] array = ic.readSavableArray("Dependents", null);
 		for(Savable child : array) {
 			this.dependents.add((IMD5Node)child);
 		}
 		this.initialize();
+		// Bind dependent children to the skeleton of this node.
+		for(IMD5Node child : this.dependents) {
+			((MD5Node)child).setDependent(true, this);
+			child.initialize();
+		}
 	}
 
 	@Override
@@ -354,9 +460,10 @@ public class MD5Node extends Node implements IMD5Node {
 		// The clone meshes based on cloned joints.
 		IMesh[] clonedMeshes = new IMesh[this.meshes.length];
 		for(int i = 0; i < clonedMeshes.length; i++) clonedMeshes[i] = this.meshes[i].clone(clonedJoints);
-		MD5Node clone = new MD5Node(new String(this.name), clonedJoints, clonedMeshes);	
+		MD5Node clone = new MD5Node(this.name, clonedJoints, clonedMeshes);	
 		// Attach the dependent children.
 		clone.dependent = this.dependent;
+		clone.parallel = this.parallel;
 		for(IMD5Node dependent : this.dependents) clone.attachDependent(dependent.clone());
 		// Initialize the clone.
 		clone.initialize();
@@ -372,4 +479,45 @@ public class MD5Node extends Node implements IMD5Node {
 		clone.setZOrder(this.getZOrder());
 		return clone;
 	}
+
+	/**
+	 * <code>UpdateTask</code> updates a single mesh, or all the meshes
+	 * of a node and its dependent children concurrently.
+	 */
+	private static class UpdateTask extends RecursiveAction {
+		/**
+		 * Serial version.
+		 */
+		private static final long serialVersionUID = -3215716237146280543L;
+		/**
+		 * The <code>MD5Node</code> to update. <code>null</code> if updating a single mesh.
+		 */
+		private final MD5Node node;
+		/**
+		 * The <code>IMesh</code> to update. <code>null</code> if updating a node.
+		 */
+		private final IMesh mesh;
+		/**
+		 * The <code>Integer</code> index of the buffer set.
+		 */
+		private final int buffer;
+
+		/**
+		 * Constructor of <code>UpdateTask</code>.
+		 * @param node The <code>MD5Node</code> to update.
+		 * @param mesh The <code>IMesh</code> to update.
+		 * @param buffer The <code>Integer</code> index of the buffer set.
+		 */
+		private UpdateTask(MD5Node node, IMesh mesh, int buffer) {
+			this.node = node;
+			this.mesh = mesh;
+			this.buffer = buffer;
+		}
+
+		@Override
+		protected void compute() {
+			if(this.mesh != null) this.mesh.updateMesh(this.buffer);
+			else this.node.forkMeshes(this.buffer);
+		}
+	}
 }
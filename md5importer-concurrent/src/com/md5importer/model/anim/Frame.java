@@ -16,6 +16,12 @@ import com.md5importer.interfaces.model.anim.IFrame;
 /**
  * <code>Frame</code> defines the concrete implementation of a frame.
  * <p>
+ * <code>Frame</code> is a view into a packed <code>Float</code> array
+ * that stores seven values per joint in the order of translation x, y,
+ * z and orientation x, y, z, w. The frames of a single animation share
+ * one array laid out frame after frame, so the entire clip is stored
+ * contiguously without any per joint objects.
+ * <p>
  * <code>Frame</code> should not be cloned directly. The cloning
  * process of a <code>Frame</code> should be initiated by the cloning
  * process of the parent* <code>IMD5Animation</code>.
@@ -31,13 +37,21 @@ public class Frame implements Serializable, IFrame {
 	 */
 	private static final long serialVersionUID = 8891271219195292580L;
 	/**
-	 * The array of <code>Vector3f</code> translations.
+	 * The <code>Integer</code> number of packed values per joint.
+	 */
+	public static final int stride = 7;
+	/**
+	 * The packed <code>Float</code> array of transforms.
 	 */
-	protected Vector3f[] translations;
+	protected float[] transforms;
 	/**
-	 * The array of <code>Quaternion</code> orientations.
+	 * The <code>Integer</code> offset of this frame in the array.
 	 */
-	protected Quaternion[] orientations;
+	protected int offset;
+	/**
+	 * The <code>Integer</code> number of joints.
+	 */
+	protected int numJoints;
 
 	/**
 	 * Constructor of <code>Frame</code>.
@@ -51,22 +65,22 @@ public class Frame implements Serializable, IFrame {
 	 * @param numJoints The <code>Integer</code> number of joints.
 	 */
 	public Frame(int numJoints) {
-		this.translations = new Vector3f[numJoints];
-		this.orientations = new Quaternion[numJoints];
-		for(int i = 0; i < this.translations.length && i < this.orientations.length; i++) {
-			this.translations[i] = new Vector3f();
-			this.orientations[i] = new Quaternion();
+		this(new float[numJoints * Frame.stride], 0, numJoints);
+		for(int i = 0; i < numJoints; i++) {
+			this.transforms[i * Frame.stride + 6] = 1;
 		}
 	}
 	
 	/**
 	 * Constructor of <code>Frame</code>.
-	 * @param translations The array of <code>Vector3f</code> translations.
-	 * @param orientations The array of <code>Quaternion</code> orientations.
+	 * @param transforms The packed <code>Float</code> array of transforms.
+	 * @param offset The <code>Integer</code> offset of this frame in the array.
+	 * @param numJoints The <code>Integer</code> number of joints.
 	 */
-	protected Frame(Vector3f[] translations, Quaternion[] orientations) {
-		this.translations = translations;
-		this.orientations = orientations;
+	public Frame(float[] transforms, int offset, int numJoints) {
+		this.transforms = transforms;
+		this.offset = offset;
+		this.numJoints = numJoints;
 	}
 	
 	/**
@@ -76,51 +90,69 @@ public class Frame implements Serializable, IFrame {
 	 * @param value The transform value to be set.
 	 */
 	public void setTransform(int jointIndex, int index, float value) {
-		switch(index) {
-		case 0: this.translations[jointIndex].x = value; break;
-		case 1: this.translations[jointIndex].y = value; break;
-		case 2: this.translations[jointIndex].z = value; break;
-		case 3: this.orientations[jointIndex].x = value; break;
-		case 4: this.orientations[jointIndex].y = value; break;
-		case 5:
-			this.orientations[jointIndex].z = value;
-			this.processOrientation(this.orientations[jointIndex]);
-			break;
-		}
+		final int base = this.offset + jointIndex * Frame.stride;
+		this.transforms[base + index] = value;
+		if(index == 5) Frame.processOrientation(this.transforms, base);
 	}
 	
 	/**
-	 * Process the orientation to finalize it.
-	 * @param raw The raw orientation value.
+	 * Set the orientation of the joint with given index.
+	 * @param jointIndex The <code>Integer</code> joint index.
+	 * @param orientation The <code>Quaternion</code> orientation value.
 	 */
-	private void processOrientation(Quaternion raw) {
-		float t = 1.0f - (raw.x * raw.x) - (raw.y * raw.y) - (raw.z * raw.z);
-		if (t < 0.0f) raw.w = 0.0f;
-		else raw.w = -(FastMath.sqrt(t));
+	public void setOrientation(int jointIndex, Quaternion orientation) {
+		final int base = this.offset + jointIndex * Frame.stride;
+		this.transforms[base + 3] = orientation.x;
+		this.transforms[base + 4] = orientation.y;
+		this.transforms[base + 5] = orientation.z;
+		this.transforms[base + 6] = orientation.w;
+	}
+	
+	/**
+	 * Process the orientation to finalize it by deriving the w component.
+	 * @param transforms The packed <code>Float</code> array of transforms.
+	 * @param base The <code>Integer</code> index of the joint in the array.
+	 */
+	public static void processOrientation(float[] transforms, int base) {
+		final float x = transforms[base + 3];
+		final float y = transforms[base + 4];
+		final float z = transforms[base + 5];
+		float t = 1.0f - (x * x) - (y * y) - (z * z);
+		if (t < 0.0f) transforms[base + 6] = 0.0f;
+		else transforms[base + 6] = -(FastMath.sqrt(t));
 	}
-
 
 	@Override
 	public Vector3f getTranslation(int jointIndex) {
-		return this.translations[jointIndex];
+		return this.getTranslation(jointIndex, new Vector3f());
+	}
+
+	@Override
+	public Vector3f getTranslation(int jointIndex, Vector3f store) {
+		final int base = this.offset + jointIndex * Frame.stride;
+		return store.set(this.transforms[base], this.transforms[base + 1], this.transforms[base + 2]);
 	}
 
 	@Override
 	public Quaternion getOrientation(int jointIndex) {
-		return this.orientations[jointIndex];
+		return this.getOrientation(jointIndex, new Quaternion());
+	}
+
+	@Override
+	public Quaternion getOrientation(int jointIndex, Quaternion store) {
+		final int base = this.offset + jointIndex * Frame.stride;
+		return store.set(this.transforms[base + 3], this.transforms[base + 4], this.transforms[base + 5], this.transforms[base + 6]);
 	}
 
 	@Override
 	public float getTransformValue(int jointIndex, int transIndex) {
-		switch(transIndex) {
-		case 0: return this.translations[jointIndex].x;
-		case 1: return this.translations[jointIndex].y;
-		case 2: return this.translations[jointIndex].z;
-		case 3: return this.orientations[jointIndex].x;
-		case 4: return this.orientations[jointIndex].y;
-		case 5: return this.orientations[jointIndex].z;
-		default: return 0;
-		}
+		if(transIndex < 0 || transIndex >= Frame.stride) return 0;
+		return this.transforms[this.offset + jointIndex * Frame.stride + transIndex];
+	}
+
+	@Override
+	public int getJointCount() {
+		return this.numJoints;
 	}
 
 	@Override
@@ -132,32 +164,42 @@ public class Frame implements Serializable, IFrame {
 	@Override
 	public void write(JMEExporter ex) throws IOException {
 		OutputCapsule oc = ex.getCapsule(this);
-		oc.write(this.translations, "Translations", null);
-		oc.write(this.orientations, "Orientations", null);
+		final Vector3f[] translations = new Vector3f[this.numJoints];
+		final Quaternion[] orientations = new Quaternion[this.numJoints];
+		for(int i = 0; i < this.numJoints; i++) {
+			translations[i] = this.getTranslation(i);
+			orientations[i] = this.getOrientation(i);
+		}
+		oc.write(translations, "Translations", null);
+		oc.write(orientations, "Orientations", null);
 	}
 
 	@Override
 	public void read(JMEImporter im) throws IOException {
-		Savable[] temp = null;
 		InputCapsule ic = im.getCapsule(this);
-		temp = ic.readSavableArray("Translations", null);
-		this.translations = new Vector3f[temp.length];
-		for(int i = 0; i < temp.length; i++) {
-			this.translations[i] = (Vector3f)temp[i];
-		}
-		temp = ic.readSavableArray("Orientations", null);
-		this.orientations = new Quaternion[temp.length];
-		for(int i = 0; i < temp.length; i++) {
-			this.orientations[i] = (Quaternion)temp[i];
+		final Savable[] translations = ic.readSavableArray("Translations", null);
+		final Savable[] orientations = ic.readSavableArray("Orientations", null);
+		this.offset = 0;
+		this.numJoints = translations.length;
+		this.transforms = new float[this.numJoints * Frame.stride];
+		for(int i = 0; i < this.numJoints; i++) {
+			final int base = i * Frame.stride;
+			final Vector3f translation = (Vector3f)translations[i];
+			final Quaternion orientation = (Quaternion)orientations[i];
+			this.transforms[base] = translation.x;
+			this.transforms[base + 1] = translation.y;
+			this.transforms[base + 2] = translation.z;
+			this.transforms[base + 3] = orientation.x;
+			this.transforms[base + 4] = orientation.y;
+			this.transforms[base + 5] = orientation.z;
+			this.transforms[base + 6] = orientation.w;
 		}
 	}
 
 	@Override
 	public IFrame clone() {
-		Vector3f[] clonedTranslations = new Vector3f[this.translations.length];
-		for(int i = 0; i < clonedTranslations.length; i++) clonedTranslations[i] = this.translations[i].clone();
-		Quaternion[] clonedOrientations = new Quaternion[this.orientations.length];
-		for(int i = 0; i < clonedOrientations.length; i++) clonedOrientations[i] = this.orientations[i].clone();
-		return new Frame(clonedTranslations, clonedOrientations);
+		final float[] cloned = new float[this.numJoints * Frame.stride];
+		System.arraycopy(this.transforms, this.offset, cloned, 0, cloned.length);
+		return new Frame(cloned, 0, this.numJoints);
 	}
 }
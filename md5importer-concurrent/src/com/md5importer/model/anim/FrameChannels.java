@@ -0,0 +1,190 @@
+package com.md5importer.model.anim;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import com.jme.util.export.InputCapsule;
+import com.jme.util.export.JMEExporter;
+import com.jme.util.export.JMEImporter;
+import com.jme.util.export.OutputCapsule;
+import com.jme.util.export.Savable;
+import com.md5importer.interfaces.model.anim.IFrame;
+
+/**
+ * <code>FrameChannels</code> defines the sparse storage of all frames
+ * of a single animation.
+ * <p>
+ * <code>FrameChannels</code> maintains a shared pose that contains the
+ * transforms of every joint with seven values per joint, and only stores
+ * the values of animated channels for each frame. Each channel maps to a
+ * single value of the pose. A frame is reconstructed by copying the pose
+ * and overwriting the animated values. The w component of orientations
+ * with animated channels is then derived from the x, y and z components.
+ * <p>
+ * <code>FrameChannels</code> stores every value as an animated channel
+ * when it is constructed from complete frames, in which case a frame is
+ * reconstructed by a single copy.
+ * <p>
+ * <code>FrameChannels</code> is immutable after construction, and can
+ * therefore be sampled by multiple threads concurrently.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class FrameChannels implements Serializable, Savable {
+	/**
+	 * Serial version.
+	 */
+	private static final long serialVersionUID = -3062947161392746011L;
+	/**
+	 * The <code>Integer</code> number of joints.
+	 */
+	private int numJoints;
+	/**
+	 * The <code>Integer</code> number of frames.
+	 */
+	private int numFrames;
+	/**
+	 * The shared pose <code>Float</code> array with seven values per joint.
+	 */
+	private float[] pose;
+	/**
+	 * The <code>Integer</code> array of pose indices of animated channels.
+	 * <code>null</code> if every value is animated.
+	 */
+	private int[] channels;
+	/**
+	 * The <code>Integer</code> array of pose indices of derived orientations.
+	 */
+	private int[] derived;
+	/**
+	 * The <code>Float</code> array of channel values of all frames.
+	 */
+	private float[] samples;
+
+	/**
+	 * Constructor of <code>FrameChannels</code>.
+	 */
+	public FrameChannels() {
+		super();
+	}
+
+	/**
+	 * Constructor of <code>FrameChannels</code>.
+	 * @param numJoints The <code>Integer</code> number of joints.
+	 * @param numFrames The <code>Integer</code> number of frames.
+	 * @param pose The shared pose <code>Float</code> array with seven values per joint.
+	 * @param channels The <code>Integer</code> array of pose indices of animated channels.
+	 * @param derived The <code>Integer</code> array of pose indices of derived orientations.
+	 * @param samples The <code>Float</code> array of channel values of all frames.
+	 */
+	public FrameChannels(int numJoints, int numFrames, float[] pose, int[] channels, int[] derived, float[] samples) {
+		this.numJoints = numJoints;
+		this.numFrames = numFrames;
+		this.pose = pose;
+		this.channels = channels;
+		this.derived = derived;
+		this.samples = samples;
+	}
+
+	/**
+	 * Create the channels that store every value of the given frames.
+	 * @param transforms The packed <code>Float</code> array of transforms of all frames.
+	 * @param numJoints The <code>Integer</code> number of joints.
+	 * @return The <code>FrameChannels</code> instance.
+	 */
+	public static FrameChannels dense(float[] transforms, int numJoints) {
+		final int size = numJoints * Frame.stride;
+		final int numFrames = (size == 0) ? 0 : transforms.length / size;
+		return new FrameChannels(numJoints, numFrames, new float[size], null, new int[0], transforms);
+	}
+
+	/**
+	 * Create the channels that store every value of the given frames.
+	 * @param frames The array of <code>IFrame</code> to store.
+	 * @param numJoints The <code>Integer</code> number of joints.
+	 * @return The <code>FrameChannels</code> instance.
+	 */
+	public static FrameChannels dense(IFrame[] frames, int numJoints) {
+		final float[] transforms = new float[frames.length * numJoints * Frame.stride];
+		int index = 0;
+		for(IFrame frame : frames) {
+			for(int i = 0; i < numJoints; i++) {
+				for(int j = 0; j < Frame.stride; j++) {
+					transforms[index++] = frame.getTransformValue(i, j);
+				}
+			}
+		}
+		return FrameChannels.dense(transforms, numJoints);
+	}
+
+	/**
+	 * Reconstruct the frame with given index.
+	 * @param index The <code>Integer</code> index of the frame.
+	 * @param store The <code>Float</code> array to store the seven values per joint in.
+	 * @return The given store array.
+	 */
+	public float[] decode(int index, float[] store) {
+		if(this.channels == null) {
+			System.arraycopy(this.samples, index * this.pose.length, store, 0, this.pose.length);
+			return store;
+		}
+		System.arraycopy(this.pose, 0, store, 0, this.pose.length);
+		int sample = index * this.channels.length;
+		for(int i = 0; i < this.channels.length; i++) {
+			store[this.channels[i]] = this.samples[sample++];
+		}
+		for(int i = 0; i < this.derived.length; i++) {
+			Frame.processOrientation(store, this.derived[i]);
+		}
+		return store;
+	}
+
+	/**
+	 * Retrieve the number of joints.
+	 * @return The <code>Integer</code> number of joints.
+	 */
+	public int getJointCount() {
+		return this.numJoints;
+	}
+
+	/**
+	 * Retrieve the number of frames.
+	 * @return The <code>Integer</code> number of frames.
+	 */
+	public int getFrameCount() {
+		return this.numFrames;
+	}
+
+	@Override
+	public Class<FrameChannels> getClassTag() {
+		return FrameChannels.class;
+	}
+
+	@Override
+	public void write(JMEExporter ex) throws IOException {
+		OutputCapsule oc = ex.getCapsule(this);
+		oc.write(this.numJoints, "NumJoints", 0);
+		oc.write(this.numFrames, "NumFrames", 0);
+		oc.write(this.pose, "Pose", null);
+		oc.write(this.channels, "Channels", null);
+		oc.write(this.derived, "Derived", null);
+		oc.write(this.samples, "Samples", null);
+	}
+
+	@Override
+	public void read(JMEImporter im) throws IOException {
+		InputCapsule ic = im.getCapsule(this);
+		this.numJoints = ic.readInt("NumJoints", 0);
+		this.numFrames = ic.readInt("NumFrames", 0);
+		this.pose = ic.readFloatArray("Pose", null);
+		this.channels = ic.readIntArray("Channels", null);
+		this.derived = ic.readIntArray("Derived", new int[0]);
+		this.samples = ic.readFloatArray("Samples", null);
+	}
+
+	@Override
+	public FrameChannels clone() {
+		final int[] clonedChannels = (this.channels == null) ? null : this.channels.clone();
+		return new FrameChannels(this.numJoints, this.numFrames, this.pose.clone(), clonedChannels, this.derived.clone(), this.samples.clone());
+	}
+}
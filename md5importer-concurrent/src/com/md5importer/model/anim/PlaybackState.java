@@ -0,0 +1,57 @@
+package com.md5importer.model.anim;
+
+import java.io.Serializable;
+
+import com.md5importer.interfaces.model.anim.IPlaybackState;
+
+/**
+ * <code>PlaybackState</code> defines the concrete implementation of
+ * an immutable animation playback snapshot.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public final class PlaybackState implements Serializable, IPlaybackState {
+	/**
+	 * Serial version.
+	 */
+	private static final long serialVersionUID = 2874931205574326181L;
+	/**
+	 * The index of the previous frame.
+	 */
+	private final int prev;
+	/**
+	 * The index of the next frame.
+	 */
+	private final int next;
+	/**
+	 * The time elapsed since last change in key frame.
+	 */
+	private final float time;
+
+	/**
+	 * Constructor of <code>PlaybackState</code>.
+	 * @param prev The <code>Integer</code> previous frame index.
+	 * @param next The <code>Integer</code> next frame index.
+	 * @param time The <code>Float</code> elapsed time since last change.
+	 */
+	public PlaybackState(int prev, int next, float time) {
+		this.prev = prev;
+		this.next = next;
+		this.time = time;
+	}
+
+	@Override
+	public int getPreviousIndex() {
+		return this.prev;
+	}
+
+	@Override
+	public int getNextIndex() {
+		return this.next;
+	}
+
+	@Override
+	public float getTime() {
+		return this.time;
+	}
+}
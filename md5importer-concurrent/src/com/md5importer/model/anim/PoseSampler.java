@@ -0,0 +1,162 @@
+package com.md5importer.model.anim;
+
+import com.jme.math.FastMath;
+import com.md5importer.enumn.ERepeatType;
+import com.md5importer.interfaces.model.IMD5Clip;
+
+/**
+ * <code>PoseSampler</code> defines the utility unit that evaluates the
+ * interpolated local joint transforms of an <code>IMD5Clip</code> at an
+ * arbitrary time.
+ * <p>
+ * <code>PoseSampler</code> locates the previous and next frames directly
+ * from the given time instead of stepping through the frames, so seeking
+ * to any time takes constant time.
+ * <p>
+ * The sampled pose is written into a caller supplied array joint after
+ * joint, with seven values per joint in the order of translation x, y,
+ * z and orientation x, y, z, w. Translations are linearly interpolated
+ * and orientations are spherically interpolated, with the same
+ * arithmetic as <code>Vector3f.interpolate</code> and
+ * <code>Quaternion.slerp</code> used by the
+ * <code>MD5NodeController</code>.
+ * <p>
+ * <code>PoseSampler</code> is stateless. It only writes into the arrays
+ * supplied by the caller and never modifies the clip, so any number of
+ * threads can sample the same clip concurrently.
+ */
+public final class PoseSampler {
+
+	/**
+	 * Constructor of <code>PoseSampler</code>.
+	 */
+	private PoseSampler() {}
+
+	/**
+	 * Sample the given clip at the given time. The time is clamped
+	 * between the start of the first frame and the start of the last
+	 * frame. A temporary array for the next frame is allocated if the
+	 * time lies between two frames.
+	 * @param clip The <code>IMD5Clip</code> to sample.
+	 * @param time The <code>Float</code> time in the clip.
+	 * @param store The <code>Float</code> array to store the pose in.
+	 * @return The given store array.
+	 */
+	public static float[] sample(IMD5Clip clip, float time, float[] store) {
+		return PoseSampler.sample(clip, time, store, null);
+	}
+
+	/**
+	 * Sample the given clip at the given time. The time is clamped
+	 * between the start of the first frame and the start of the last
+	 * frame.
+	 * @param clip The <code>IMD5Clip</code> to sample.
+	 * @param time The <code>Float</code> time in the clip.
+	 * @param store The <code>Float</code> array to store the pose in.
+	 * @param temp The <code>Float</code> array of the same size to decode the next frame into.
+	 * <code>null</code> to allocate one when required.
+	 * @return The given store array.
+	 */
+	public static float[] sample(IMD5Clip clip, float time, float[] store, float[] temp) {
+		final int prev = clip.getFrameIndex(time);
+		final int next = (prev < clip.getFrameCount() - 1) ? prev + 1 : prev;
+		clip.getTransforms(prev, store);
+		if(next == prev) return store;
+		final float prevTime = clip.getFrameTime(prev);
+		final float nextTime = clip.getFrameTime(next);
+		float interpolation = (nextTime == prevTime) ? 0.0f : (time - prevTime) / (nextTime - prevTime);
+		if(interpolation <= 0.0f) return store;
+		else if(interpolation > 1.0f) interpolation = 1.0f;
+		final int size = clip.getJointIDs().length * Frame.stride;
+		final float[] nexts = (temp != null && temp.length >= size) ? temp : new float[size];
+		clip.getTransforms(next, nexts);
+		PoseSampler.interpolate(store, nexts, size, interpolation);
+		return store;
+	}
+
+	/**
+	 * Sample the given clip at the given playback time, which is mapped
+	 * into the clip based on the given repeat type. A complete cycle ends
+	 * at the start of the last frame. A temporary array for the next
+	 * frame is allocated if the time lies between two frames.
+	 * @param clip The <code>IMD5Clip</code> to sample.
+	 * @param time The <code>Float</code> playback time.
+	 * @param repeat The <code>ERepeatType</code> enumeration.
+	 * @param store The <code>Float</code> array to store the pose in.
+	 * @return The given store array.
+	 */
+	public static float[] sample(IMD5Clip clip, float time, ERepeatType repeat, float[] store) {
+		return PoseSampler.sample(clip, time, repeat, store, null);
+	}
+
+	/**
+	 * Sample the given clip at the given playback time, which is mapped
+	 * into the clip based on the given repeat type. A complete cycle ends
+	 * at the start of the last frame.
+	 * @param clip The <code>IMD5Clip</code> to sample.
+	 * @param time The <code>Float</code> playback time.
+	 * @param repeat The <code>ERepeatType</code> enumeration.
+	 * @param store The <code>Float</code> array to store the pose in.
+	 * @param temp The <code>Float</code> array of the same size to decode the next frame into.
+	 * <code>null</code> to allocate one when required.
+	 * @return The given store array.
+	 */
+	public static float[] sample(IMD5Clip clip, float time, ERepeatType repeat, float[] store, float[] temp) {
+		final float cycle = clip.getFrameTime(clip.getFrameCount() - 1);
+		if(cycle <= 0.0f || repeat == ERepeatType.Clamp) return PoseSampler.sample(clip, time, store, temp);
+		switch(repeat) {
+		case Wrap:
+			time = time % cycle;
+			if(time < 0.0f) time += cycle;
+			break;
+		case Cycle:
+			time = time % (cycle * 2.0f);
+			if(time < 0.0f) time += cycle * 2.0f;
+			if(time > cycle) time = cycle * 2.0f - time;
+			break;
+		}
+		return PoseSampler.sample(clip, time, store, temp);
+	}
+
+	/**
+	 * Interpolate the given previous transforms towards the given next
+	 * transforms in place.
+	 * @param prevs The packed <code>Float</code> array of the previous frame.
+	 * @param nexts The packed <code>Float</code> array of the next frame.
+	 * @param size The <code>Integer</code> number of values to interpolate.
+	 * @param interpolation The <code>Float</code> interpolation value.
+	 */
+	private static void interpolate(float[] prevs, float[] nexts, int size, float interpolation) {
+		final float inverse = 1.0f - interpolation;
+		for(int base = 0; base < size; base += Frame.stride) {
+			// Linear translation.
+			prevs[base] = inverse * prevs[base] + interpolation * nexts[base];
+			prevs[base + 1] = inverse * prevs[base + 1] + interpolation * nexts[base + 1];
+			prevs[base + 2] = inverse * prevs[base + 2] + interpolation * nexts[base + 2];
+			// Spherical orientation.
+			final float x1 = prevs[base + 3], y1 = prevs[base + 4], z1 = prevs[base + 5], w1 = prevs[base + 6];
+			float x2 = nexts[base + 3], y2 = nexts[base + 4], z2 = nexts[base + 5], w2 = nexts[base + 6];
+			if(x1 == x2 && y1 == y2 && z1 == z2 && w1 == w2) continue;
+			float dot = (x1 * x2) + (y1 * y2) + (z1 * z2) + (w1 * w2);
+			if(dot < 0.0f) {
+				x2 = -x2;
+				y2 = -y2;
+				z2 = -z2;
+				w2 = -w2;
+				dot = -dot;
+			}
+			float scale0 = 1 - interpolation;
+			float scale1 = interpolation;
+			if((1 - dot) > 0.1f) {
+				final float theta = FastMath.acos(dot);
+				final float invSinTheta = 1f / FastMath.sin(theta);
+				scale0 = FastMath.sin((1 - interpolation) * theta) * invSinTheta;
+				scale1 = FastMath.sin((interpolation * theta)) * invSinTheta;
+			}
+			prevs[base + 3] = (scale0 * x1) + (scale1 * x2);
+			prevs[base + 4] = (scale0 * y1) + (scale1 * y2);
+			prevs[base + 5] = (scale0 * z1) + (scale1 * z2);
+			prevs[base + 6] = (scale0 * w1) + (scale1 * w2);
+		}
+	}
+}
@@ -246,7 +246,7 @@ public class Joint implements Serializable, IJoint {
 
 	@Override
 	public IJoint clone() {
-		return new Joint(this.index, new String(this.name), this.translation.clone(), this.orientation.clone(), this.transform.clone());
+		return new Joint(this.index, this.name, this.translation.clone(), this.orientation.clone(), this.transform.clone());
 	}
 	
 	@Override
@@ -0,0 +1,110 @@
+package com.md5importer.model.mesh;
+
+/**
+ * <code>JointBounds</code> defines the immutable bind space bounds of
+ * the weights of a mesh per joint.
+ * <p>
+ * <code>JointBounds</code> maintains an axis aligned box around the
+ * positions of the weights of each joint, in the space of that joint.
+ * A single transformed joint box does not contain the vertices, and
+ * neither does the union of the boxes, since a vertex blended from
+ * several joints generally lies between their boxes. Only the model
+ * space axis aligned box enclosing all the transformed joint boxes,
+ * which is what <code>process</code> calculates, contains every skinned
+ * vertex. This assumes that the weight values of each vertex are non
+ * negative and sum to one, so that each vertex is a convex combination
+ * of its transformed weight positions. The enclosing box is calculated
+ * in time linear to the number of joints instead of the number of
+ * vertices.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class JointBounds {
+	/**
+	 * The <code>Integer</code> array of indices of the joints with at least one weight.
+	 */
+	private final int[] joints;
+	/**
+	 * The <code>Float</code> array of box centers and extents, six values per used joint.
+	 */
+	private final float[] boxes;
+
+	/**
+	 * Constructor of <code>JointBounds</code>.
+	 * @param data The <code>MeshData</code> of the weights.
+	 */
+	public JointBounds(MeshData data) {
+		final int[] weightJoints = data.getWeightJoints();
+		final float[] weightPositions = data.getWeightPositions();
+		int numJoints = 0;
+		for(int joint : weightJoints) numJoints = Math.max(numJoints, joint + 1);
+		// Calculate the minimum and maximum of each joint.
+		final float[] min = new float[numJoints * 3];
+		final float[] max = new float[numJoints * 3];
+		final boolean[] used = new boolean[numJoints];
+		int numUsed = 0;
+		for(int i = 0; i < weightJoints.length; i++) {
+			final int joint = weightJoints[i];
+			if(!used[joint]) {
+				used[joint] = true;
+				numUsed++;
+				System.arraycopy(weightPositions, i * 3, min, joint * 3, 3);
+				System.arraycopy(weightPositions, i * 3, max, joint * 3, 3);
+			}
+			for(int j = 0; j < 3; j++) {
+				min[joint * 3 + j] = Math.min(min[joint * 3 + j], weightPositions[i * 3 + j]);
+				max[joint * 3 + j] = Math.max(max[joint * 3 + j], weightPositions[i * 3 + j]);
+			}
+		}
+		// Store the used joints as centers and extents.
+		this.joints = new int[numUsed];
+		this.boxes = new float[numUsed * 6];
+		for(int i = 0, pointer = 0; i < numJoints; i++) {
+			if(!used[i]) continue;
+			this.joints[pointer] = i;
+			for(int j = 0; j < 3; j++) {
+				this.boxes[pointer * 6 + j] = (min[i * 3 + j] + max[i * 3 + j]) * 0.5f;
+				this.boxes[pointer * 6 + 3 + j] = (max[i * 3 + j] - min[i * 3 + j]) * 0.5f;
+			}
+			pointer++;
+		}
+	}
+
+	/**
+	 * Calculate the model space axis aligned box containing all the joint
+	 * boxes transformed by the given joint matrices.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices.
+	 * @param store The <code>Float</code> array to store the minimum and maximum in, six values.
+	 * @return True if there is at least one joint box. False otherwise.
+	 */
+	public boolean process(float[] matrices, float[] store) {
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		for(int i = 0; i < this.joints.length; i++) {
+			final int m = this.joints[i] * Skeleton.stride;
+			final int b = i * 6;
+			final float cx = this.boxes[b], cy = this.boxes[b + 1], cz = this.boxes[b + 2];
+			final float ex = this.boxes[b + 3], ey = this.boxes[b + 4], ez = this.boxes[b + 5];
+			// Transform the center and project the extents onto the model axes.
+			final float x = matrices[m] * cx + matrices[m + 1] * cy + matrices[m + 2] * cz + matrices[m + 3];
+			final float y = matrices[m + 4] * cx + matrices[m + 5] * cy + matrices[m + 6] * cz + matrices[m + 7];
+			final float z = matrices[m + 8] * cx + matrices[m + 9] * cy + matrices[m + 10] * cz + matrices[m + 11];
+			final float rx = Math.abs(matrices[m]) * ex + Math.abs(matrices[m + 1]) * ey + Math.abs(matrices[m + 2]) * ez;
+			final float ry = Math.abs(matrices[m + 4]) * ex + Math.abs(matrices[m + 5]) * ey + Math.abs(matrices[m + 6]) * ez;
+			final float rz = Math.abs(matrices[m + 8]) * ex + Math.abs(matrices[m + 9]) * ey + Math.abs(matrices[m + 10]) * ez;
+			minX = Math.min(minX, x - rx);
+			minY = Math.min(minY, y - ry);
+			minZ = Math.min(minZ, z - rz);
+			maxX = Math.max(maxX, x + rx);
+			maxY = Math.max(maxY, y + ry);
+			maxZ = Math.max(maxZ, z + rz);
+		}
+		store[0] = minX;
+		store[1] = minY;
+		store[2] = minZ;
+		store[3] = maxX;
+		store[4] = maxY;
+		store[5] = maxZ;
+		return this.joints.length > 0;
+	}
+}
@@ -6,18 +6,17 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.jme.bounding.BoundingBox;
 import com.jme.bounding.OrientedBoundingBox;
 import com.jme.image.Texture;
 import com.jme.image.Texture.MagnificationFilter;
 import com.jme.image.Texture.MinificationFilter;
+import com.jme.math.Vector2f;
 import com.jme.math.Vector3f;
 import com.jme.scene.Spatial;
-import com.jme.scene.TexCoords;
 import com.jme.scene.TriMesh;
 import com.jme.scene.state.TextureState;
 import com.jme.scene.state.RenderState.StateType;
@@ -31,20 +30,73 @@ import com.jme.util.export.Savable;
 import com.jme.util.geom.BufferUtils;
 import com.jme.util.resource.ResourceLocatorTool;
 import com.jme.util.resource.SimpleResourceLocator;
+import com.md5importer.enumn.EBoundingMode;
+import com.md5importer.enumn.ESkinningMode;
 import com.md5importer.interfaces.model.mesh.IJoint;
 import com.md5importer.interfaces.model.mesh.IMesh;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
+import com.md5importer.interfaces.model.mesh.ISkinningKernel;
 import com.md5importer.interfaces.model.mesh.primitive.ITriangle;
 import com.md5importer.interfaces.model.mesh.primitive.IVertex;
 import com.md5importer.interfaces.model.mesh.primitive.IWeight;
+import com.md5importer.model.mesh.primitive.Vertex;
+import com.md5importer.model.mesh.primitive.Weight;
 
 /**
  * <code>Mesh</code> defines the concrete implementation of a mesh.
- * It does not directly process any geometric information but
- * delegates the process down to the primitive elements it maintains.
+ * <p>
+ * <code>Mesh</code> separates the immutable model data from the per
+ * instance state. The weights, texture coordinates, topology, index
+ * buffer and texture state are maintained by a <code>MeshData</code>
+ * that is shared by all clones. Each <code>Mesh</code> only maintains
+ * the skeleton it is bound to, the skinned vertex positions and normals
+ * and its vertex and normal buffers.
+ * <p>
+ * <code>Mesh</code> skins its vertices with the <code>SkinningKernel</code>
+ * directly from the packed weights and the packed joint matrices of the
+ * <code>ISkeleton</code> it is bound to. The skinned positions are then
+ * copied into the vertex buffer in bulk. The vector kernel is used
+ * whenever the platform supports it, unless the scalar kernel is
+ * selected by the skinning mode.
+ * <p>
+ * <code>Mesh</code> splits the skinning and normal passes of large
+ * meshes into chunks that are processed on a shared
+ * <code>ForkJoinPool</code>. Meshes with fewer vertices than the
+ * parallel threshold are always updated on the calling thread. The
+ * normal of each vertex is gathered from the normals of its triangles
+ * through the shared vertex to triangle adjacency, and the normal of
+ * each group of vertices with the same position is gathered from its
+ * members the same way. Neither pass writes into shared state, so the
+ * results are identical in both cases.
+ * <p>
+ * <code>Mesh</code> can optionally skin its normals instead of
+ * recalculating them from the triangles on every update. The averaged
+ * normals of the initial pose are then rotated into the space of each
+ * weight joint once, and are skinned with the joint rotations along
+ * with the positions afterwards.
+ * <p>
+ * <code>Mesh</code> recalculates its bounding volume from all the
+ * skinned vertices on every update by default. In conservative bounding
+ * mode, an axis aligned bounding box is instead built from the bind
+ * space bounds of the joints transformed by the current joint matrices,
+ * which contains the vertices as long as the weight values of each
+ * vertex are non negative and sum to one, and only costs a pass over the
+ * joints.
+ * <p>
+ * <code>Mesh</code> maintains three sets of vertex and normal buffers
+ * that are indexed by the parent <code>IMD5Node</code>. Each update is
+ * written into the buffer set with the given index, and swapping only
+ * presents the buffer set with the given index without copying.
  * <p>
  * <code>Mesh</code> cannot be cloned directly. The cloning process
  * of a <code>Mesh</code> can only be initiated by the cloning process
- * of the parent <code>IIMD5Node</code>.
+ * of the parent <code>IIMD5Node</code>. A cloned <code>Mesh</code>
+ * shares the <code>MeshData</code> of the original.
+ * <p>
+ * <code>Mesh</code> exports its vertices, triangles and weights as
+ * packed <code>Float</code> and <code>Integer</code> arrays instead
+ * of individual primitives. Meshes exported with the previous layout
+ * can still be imported.
  * <p>
  * This class is used internally by <code>MD5Importer</code> only.
  * 
@@ -56,231 +108,536 @@ public class Mesh extends TriMesh implements IMesh {
 	 * Serial version.
 	 */
 	private static final long serialVersionUID = -6431941710991131243L;
+	/**
+	 * The <code>Integer</code> version of the packed export layout.
+	 */
+	private static final int version = 1;
+	/**
+	 * The <code>Integer</code> number of vertex and normal buffer sets.
+	 */
+	private static final int buffers = 3;
 	/**
 	 * The special <code>String</code> texture extension.
 	 */
 	private static String extension;
 	/**
-	 * The <code>String</code> color map file name.
+	 * The <code>Integer</code> minimum number of vertices to update a mesh in parallel.
+	 */
+	private static volatile int parallelThreshold = 8192;
+	/**
+	 * The <code>ForkJoinPool</code> used to update large meshes.
+	 */
+	private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+	/**
+	 * The shared <code>MeshData</code>.
+	 */
+	private MeshData data;
+	/**
+	 * The array of <code>IJoint</code> this mesh is bound to.
+	 */
+	private IJoint[] joints;
+	/**
+	 * The <code>ISkeleton</code> this mesh is skinned with.
+	 */
+	private ISkeleton skeleton;
+	/**
+	 * The <code>Float</code> array of skinned vertex positions, three values per vertex.
+	 */
+	private float[] positions;
+	/**
+	 * The <code>ISkinningKernel</code> transforming the weight batches. <code>null</code> for scalar skinning.
+	 */
+	private ISkinningKernel kernel;
+	/**
+	 * The <code>WeightBatches</code> for vector skinning. <code>null</code> for scalar skinning.
+	 */
+	private WeightBatches batches;
+	/**
+	 * The <code>Float</code> array of transformed weight x positions in batch order.
+	 */
+	private float[] transformedX;
+	/**
+	 * The <code>Float</code> array of transformed weight y positions in batch order.
+	 */
+	private float[] transformedY;
+	/**
+	 * The <code>Float</code> array of transformed weight z positions in batch order.
+	 */
+	private float[] transformedZ;
+	/**
+	 * The <code>Float</code> arrays of x, y and z weight normals in batch order.
+	 */
+	private float[][] batchNormals;
+	/**
+	 * The <code>Float</code> array of rotated weight x normals in batch order.
+	 */
+	private float[] rotatedX;
+	/**
+	 * The <code>Float</code> array of rotated weight y normals in batch order.
+	 */
+	private float[] rotatedY;
+	/**
+	 * The <code>Float</code> array of rotated weight z normals in batch order.
+	 */
+	private float[] rotatedZ;
+	/**
+	 * The flag indicates if the normals are skinned from the weight normals.
+	 */
+	private boolean skinNormals;
+	/**
+	 * The <code>TriangleAdjacency</code> of the vertices.
 	 */
-	private String color;
+	private TriangleAdjacency adjacency;
 	/**
-	 * The <code>String</code> normal map file name.
+	 * The <code>JointBounds</code> for conservative bounding. <code>null</code> for tight bounding.
 	 */
-	private String normal;
+	private JointBounds jointBounds;
 	/**
-	 * The <code>String</code> specular map file name.
+	 * The <code>Float</code> array of the minimum and maximum of the conservative bounds.
 	 */
-	private String specular;
+	private float[] bounds;
 	/**
-	 * The array of <code>IVertex</code> in this mesh.
+	 * The <code>Float</code> array of vertex normals before averaging, three values per vertex.
 	 */
-	private IVertex[] vertices;
+	private float[] normals;
 	/**
-	 * The array of <code>ITriangle</code> in this mesh.
+	 * The <code>Float</code> array of triangle normals, three values per triangle.
 	 */
-	private ITriangle[] triangles;
+	private float[] faceNormals;
 	/**
-	 * The array of <code>IWeight</code> in this mesh.
+	 * The <code>Integer</code> array of normal group index of each vertex.
+	 * <code>null</code> before the normals are averaged.
 	 */
-	private IWeight[] weights;
+	private int[] groups;
 	/**
-	 * The <code>Integer</code> anisotropic level value.
+	 * The <code>Float</code> array of shared group normals, three values per group index.
 	 */
-	private int anisotropic;
+	private float[] groupNormals;
 	/**
-	 * The <code>MinificationFilter</code> enumeration.
+	 * The shared <code>PositionGroups</code> of the vertices.
 	 */
-	private MinificationFilter miniFilter;
+	private PositionGroups positionGroups;
 	/**
-	 * The <code>MagnificationFilter</code> enumeration.
+	 * The temporary <code>Vector3f</code> for normal averaging.
 	 */
-	private MagnificationFilter magFilter;
+	private final Vector3f temp;
 	/**
-	 * The flag indicates if oriented bounding should be used.
+	 * The first temporary <code>Vector3f</code> for normal calculation.
 	 */
-	private boolean orientedBounding;
+	private final Vector3f temp1;
 	/**
-	 * The temporary <code>List</code> of <code>IVertex</code>
-	 * with same positions to average normal.
+	 * The second temporary <code>Vector3f</code> for normal calculation.
 	 */
-	private final List<IVertex> tempVertices;
+	private final Vector3f temp2;
 	/**
-	 * The back vertex <code>FloatBuffer</code> for updating.
+	 * The array of vertex <code>FloatBuffer</code> indexed by buffer set.
 	 */
-	private FloatBuffer backVertexBuffer;
+	private FloatBuffer[] vertexBuffers;
 	/**
-	 * The back normal <code>FloatBuffer</code> for updating.
+	 * The array of normal <code>FloatBuffer</code> indexed by buffer set.
 	 */
-	private FloatBuffer backNormalBuffer;
+	private FloatBuffer[] normalBuffers;
 
 	/**
 	 * Constructor of <code>Mesh</code>.
 	 */
 	public Mesh() {
 		super();
-		this.tempVertices = new ArrayList<IVertex>(32);
+		this.temp = new Vector3f();
+		this.temp1 = new Vector3f();
+		this.temp2 = new Vector3f();
 	}
 
 	/**
 	 * Constructor of <code>Mesh</code>.
-	 * @param texture The <code>String</code> texture file name without extension.
-	 * @param vertices The array of <code>IVertex</code> in this mesh.
-	 * @param triangles The array of <code>ITriangle</code> in this mesh.
-	 * @param weights The array of <code>IWeight</code> in this mesh.
+	 * @param data The shared <code>MeshData</code>.
+	 * @param joints The array of <code>IJoint</code> this mesh is bound to.
 	 */
-	public Mesh(String texture, IVertex[] vertices, ITriangle[] triangles, IWeight[] weights, int anisotropic, MinificationFilter miniFilter,
-			MagnificationFilter magFilter, boolean orientedBounding) {
+	public Mesh(MeshData data, IJoint[] joints) {
 		this();
-		this.color = texture;
-		this.vertices = vertices;
-		this.triangles = triangles;
-		this.weights = weights;
-		this.anisotropic = anisotropic;
-		this.miniFilter = miniFilter;
-		this.magFilter = magFilter;
-		this.orientedBounding = orientedBounding;
+		this.data = data;
+		this.joints = joints;
 	}
 
 	@Override
 	public void initialize(String name) {
 		this.setName(name + "Mesh");
 		this.setNormalsMode(Spatial.NormalsMode.AlwaysNormalize);
+		this.processBuffers();
 		this.processIndex();
-		this.processVertex();
-		this.processNormal(true);
+		this.processAdjacency();
+		this.processKernel();
+		this.processVertex(0);
+		this.processNormal(true, 0);
+		this.processWeightNormals();
+		// Populate all buffer sets with bind pose data.
+		for(int i = 1; i < Mesh.buffers; i++) {
+			this.vertexBuffers[i].clear();
+			this.vertexBuffers[i].put(this.vertexBuffers[0]);
+			this.vertexBuffers[0].clear();
+			this.normalBuffers[i].clear();
+			this.normalBuffers[i].put(this.normalBuffers[0]);
+			this.normalBuffers[0].clear();
+		}
+		this.swapBuffer(0);
 		this.processTexture();
 		this.processBounding();
 	}
 
 	@Override
-	public void updateMesh() {
-		this.processVertex();
-		this.processNormal(false);
-		this.updateModelBound();
+	public void updateMesh(int buffer) {
+		this.processVertex(buffer);
+		if(this.skinNormals) this.writeSkinnedNormals(buffer);
+		else this.processNormal(false, buffer);
+		if(this.jointBounds != null) this.updateJointBound();
+		else this.updateModelBound();
 	}
 
 	/**
-	 * Process and setup the index buffer.
+	 * Create the vertex and normal buffer sets.
 	 */
-	private void processIndex() {
-		IntBuffer indexBuffer = BufferUtils.createIntBuffer(this.triangles.length*3);
-		indexBuffer.clear();
-		for(ITriangle triangle : this.triangles) {
-			for(int j = 0; j < 3; j++) {
-				indexBuffer.put(triangle.getVertex(j).getIndex());
+	private void processBuffers() {
+		if(this.vertexBuffers != null) return;
+		final int numVertices = this.data.getVertexCount();
+		this.vertexBuffers = new FloatBuffer[Mesh.buffers];
+		this.normalBuffers = new FloatBuffer[Mesh.buffers];
+		for(int i = 0; i < Mesh.buffers; i++) {
+			this.vertexBuffers[i] = BufferUtils.createVector3Buffer(numVertices);
+			this.normalBuffers[i] = BufferUtils.createVector3Buffer(numVertices);
+		}
+		this.setVertexBuffer(this.vertexBuffers[0]);
+		this.setNormalBuffer(this.normalBuffers[0]);
+	}
+
+	/**
+	 * Select the skinning kernel based on the current skinning mode.
+	 */
+	private void processKernel() {
+		// Normals are only skinned once the weight normals are available.
+		this.skinNormals = false;
+		this.batchNormals = null;
+		this.rotatedX = null;
+		this.rotatedY = null;
+		this.rotatedZ = null;
+		this.kernel = SkinningKernel.getBatchKernel(this.data.getSkinningMode());
+		if(this.kernel != null) {
+			this.batches = this.data.getWeightBatches();
+			final int numWeights = this.data.getWeightCount();
+			if(this.transformedX == null || this.transformedX.length != numWeights) {
+				this.transformedX = new float[numWeights];
+				this.transformedY = new float[numWeights];
+				this.transformedZ = new float[numWeights];
 			}
+		} else {
+			this.batches = null;
+			this.transformedX = null;
+			this.transformedY = null;
+			this.transformedZ = null;
 		}
-		indexBuffer.flip();
-		this.setIndexBuffer(indexBuffer);
+	}
+
+	/**
+	 * Setup the shared index buffer.
+	 */
+	private void processIndex() {
+		this.setIndexBuffer(this.data.getIndexBuffer());
+	}
+
+	/**
+	 * Setup the shared vertex to triangle adjacency.
+	 */
+	private void processAdjacency() {
+		this.adjacency = this.data.getAdjacency();
 	}
 
 	/**
 	 * Process and setup the vertex position buffer.
+	 * @param buffer The <code>Integer</code> index of the buffer set to write.
 	 */
-	private void processVertex() {
-		if(this.getVertexBuffer() == null) {
-			final FloatBuffer frontBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
-			this.setVertexBuffer(frontBuffer);
-			this.backVertexBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
+	private void processVertex(int buffer) {
+		final int numVertices = this.data.getVertexCount();
+		if(this.positions == null) this.positions = new float[numVertices * 3];
+		if(this.isParallel()) {
+			if(this.batches != null) Mesh.pool.invoke(new SkinTask(SkinTask.batches, 0, this.batches.getJointCount(), buffer));
+			Mesh.pool.invoke(new SkinTask(SkinTask.vertices, 0, numVertices, buffer));
+		} else {
+			if(this.batches != null) this.transformBatches(0, this.batches.getJointCount());
+			this.skinVertices(0, numVertices);
 		}
-		this.backVertexBuffer.clear();
-		for(int i = 0; i < this.vertices.length; i++) {
-			this.vertices[i].resetInformation();
-			this.vertices[i].processPosition();
-			BufferUtils.setInBuffer(this.vertices[i].getPosition(), this.backVertexBuffer, i);
+		final FloatBuffer vertexBuffer = this.vertexBuffers[buffer];
+		vertexBuffer.clear();
+		vertexBuffer.put(this.positions);
+		vertexBuffer.clear();
+	}
+
+	/**
+	 * Transform the weight batches of the joints within the given range.
+	 * @param from The <code>Integer</code> index of the first joint, inclusive.
+	 * @param to The <code>Integer</code> index of the last joint, exclusive.
+	 */
+	private void transformBatches(int from, int to) {
+		final float[] matrices = this.skeleton.getMatrices();
+		final int[] bounds = this.batches.getBatches();
+		final float[] values = this.batches.getValues();
+		this.kernel.transformPositions(matrices, bounds, this.batches.getXs(), this.batches.getYs(), this.batches.getZs(), values,
+				this.transformedX, this.transformedY, this.transformedZ, from, to);
+		if(this.skinNormals) {
+			this.kernel.transformNormals(matrices, bounds, this.batchNormals[0], this.batchNormals[1], this.batchNormals[2], values,
+					this.rotatedX, this.rotatedY, this.rotatedZ, from, to);
+		}
+	}
+
+	/**
+	 * Skin the positions of the vertices within the given range.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	private void skinVertices(int from, int to) {
+		if(this.batches == null) {
+			SkinningKernel.skinPositions(this.skeleton.getMatrices(), this.data, this.positions, from, to);
+			if(this.skinNormals) SkinningKernel.skinNormals(this.skeleton.getMatrices(), this.data, this.normals, from, to);
+		} else {
+			SkinningKernel.gatherPositions(this.data, this.batches, this.transformedX, this.transformedY, this.transformedZ, this.positions, from, to);
+			if(this.skinNormals) SkinningKernel.gatherNormals(this.data, this.batches, this.rotatedX, this.rotatedY, this.rotatedZ, this.normals, from, to);
 		}
 	}
 
+	/**
+	 * Calculate the shared weight normals from the averaged normals of the
+	 * current pose if normals should be skinned.
+	 */
+	private void processWeightNormals() {
+		if(!this.data.isSkinnedNormals()) return;
+		synchronized(this.data) {
+			if(this.data.getWeightNormals() == null) {
+				final int numVertices = this.data.getVertexCount();
+				final float[] resolved = new float[numVertices * 3];
+				for(int i = 0; i < numVertices; i++) {
+					System.arraycopy(this.groupNormals, this.groups[i] * 3, resolved, i * 3, 3);
+				}
+				this.data.setWeightNormals(SkinningKernel.bindNormals(this.skeleton.getMatrices(), this.data, resolved));
+			}
+		}
+		if(this.kernel != null) {
+			final int numWeights = this.data.getWeightCount();
+			this.batchNormals = this.data.getBatchNormals();
+			this.rotatedX = new float[numWeights];
+			this.rotatedY = new float[numWeights];
+			this.rotatedZ = new float[numWeights];
+		}
+		this.skinNormals = true;
+	}
+
+	/**
+	 * Write the normals skinned along with the positions into the normal
+	 * buffer of the given buffer set.
+	 * @param buffer The <code>Integer</code> index of the buffer set to write.
+	 */
+	private void writeSkinnedNormals(int buffer) {
+		final FloatBuffer normalBuffer = this.normalBuffers[buffer];
+		normalBuffer.clear();
+		normalBuffer.put(this.normals);
+		normalBuffer.clear();
+	}
+
 	/**
 	 * Process and setup the normal position buffer.
 	 * @param init The <code>Boolean</code> initialization flag.
+	 * @param buffer The <code>Integer</code> index of the buffer set to write.
 	 */
-	private void processNormal(boolean init) {
-		// Triangles have to process the normal first in case the vertices are not in order.
-		for(int i = 0; i < this.triangles.length; i++) {
-			this.triangles[i].processNormal();
+	private void processNormal(boolean init, int buffer) {
+		final int numVertices = this.data.getVertexCount();
+		final int numTriangles = this.data.getIndices().length / 3;
+		final boolean parallel = this.isParallel();
+		// Calculate the normal of each triangle.
+		if(this.faceNormals == null) this.faceNormals = new float[numTriangles * 3];
+		if(parallel) Mesh.pool.invoke(new SkinTask(SkinTask.faces, 0, numTriangles, buffer));
+		else this.processFaces(0, numTriangles, this.temp1, this.temp2);
+		// Gather the triangle normals of each vertex.
+		if(this.normals == null) this.normals = new float[numVertices * 3];
+		if(parallel) Mesh.pool.invoke(new SkinTask(SkinTask.gather, 0, numVertices, buffer));
+		else this.gatherNormals(0, numVertices);
+		// Gather the vertex normals of each group once grouped.
+		if(this.groups != null) {
+			final int numGroups = this.positionGroups.getGroupCount();
+			if(parallel) Mesh.pool.invoke(new SkinTask(SkinTask.groups, 0, numGroups, buffer));
+			else this.gatherGroups(0, numGroups);
 		}
 		// Average vertex normals with same vertex positions.
 		if(init) this.averageNormal();
 		// Put into buffer.
-		if(this.getNormalBuffer() == null) {
-			FloatBuffer frontBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
-			this.setNormalBuffer(frontBuffer);
-			this.backNormalBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
-		}
-		this.backNormalBuffer.clear();
-		for(int i = 0; i < this.vertices.length; i++) {
-			BufferUtils.setInBuffer(this.vertices[i].getNormal(), this.backNormalBuffer, i);
+		this.normalBuffers[buffer].clear();
+		if(parallel) Mesh.pool.invoke(new SkinTask(SkinTask.normals, 0, numVertices, buffer));
+		else this.writeNormals(buffer, 0, numVertices);
+	}
+
+	/**
+	 * Calculate the normals of the triangles within the given range.
+	 * @param from The <code>Integer</code> index of the first triangle, inclusive.
+	 * @param to The <code>Integer</code> index of the last triangle, exclusive.
+	 * @param temp1 The first temporary <code>Vector3f</code>.
+	 * @param temp2 The second temporary <code>Vector3f</code>.
+	 */
+	private void processFaces(int from, int to, Vector3f temp1, Vector3f temp2) {
+		final int[] indices = this.data.getIndices();
+		for(int i = from; i < to; i++) {
+			final int v1 = indices[i * 3] * 3;
+			final int v2 = indices[i * 3 + 1] * 3;
+			final int v3 = indices[i * 3 + 2] * 3;
+			temp1.set(this.positions[v2] - this.positions[v1], this.positions[v2 + 1] - this.positions[v1 + 1], this.positions[v2 + 2] - this.positions[v1 + 2]);
+			temp2.set(this.positions[v3] - this.positions[v2], this.positions[v3 + 1] - this.positions[v2 + 1], this.positions[v3 + 2] - this.positions[v2 + 2]);
+			temp1.crossLocal(temp2);
+			temp1.normalizeLocal();
+			this.faceNormals[i * 3] = temp1.x;
+			this.faceNormals[i * 3 + 1] = temp1.y;
+			this.faceNormals[i * 3 + 2] = temp1.z;
 		}
 	}
 
 	/**
-	 * Average normals for vertices with same position.
+	 * Gather the normals of the triangles using each vertex within the
+	 * given range into the vertex normals.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
 	 */
-	private void averageNormal() {
-		this.tempVertices.clear();
-		for(int i = 0; i < this.vertices.length; i++) {
-			final IVertex v1 = this.vertices[i];
-			this.tempVertices.add(v1);
-			// Find all vertices with same position.
-			for(int j = 0; j < this.vertices.length; j++) {
-				final IVertex v2 = this.vertices[j];
-				if(v1 != v2 && v2.getPosition().equals(v1.getPosition())) {
-					this.tempVertices.add(v2);
-				}
+	private void gatherNormals(int from, int to) {
+		final int[] starts = this.adjacency.getStarts();
+		final int[] triangles = this.adjacency.getTriangles();
+		final int[] usedTimes = this.data.getUsedTimes();
+		for(int i = from; i < to; i++) {
+			float x = 0;
+			float y = 0;
+			float z = 0;
+			final int end = starts[i + 1];
+			for(int j = starts[i]; j < end; j++) {
+				final int offset = triangles[j] * 3;
+				x += this.faceNormals[offset];
+				y += this.faceNormals[offset + 1];
+				z += this.faceNormals[offset + 2];
 			}
-			// Average vertices in list.
+			final float scale = (usedTimes[i] == 0) ? 0 : 1.0f/(float)usedTimes[i];
+			this.normals[i * 3] = x * scale;
+			this.normals[i * 3 + 1] = y * scale;
+			this.normals[i * 3 + 2] = z * scale;
+		}
+	}
+
+	/**
+	 * Gather the normals of the member vertices of the groups within the
+	 * given range into the group normals.
+	 * @param from The <code>Integer</code> index of the first group, inclusive.
+	 * @param to The <code>Integer</code> index of the last group, exclusive.
+	 */
+	private void gatherGroups(int from, int to) {
+		final int[] starts = this.positionGroups.getStarts();
+		final int[] members = this.positionGroups.getMembers();
+		for(int i = from; i < to; i++) {
 			float x = 0;
 			float y = 0;
 			float z = 0;
-			for(IVertex vertex : this.tempVertices) {
-				x += vertex.getNormal().getX();
-				y += vertex.getNormal().getY();
-				z += vertex.getNormal().getZ();
+			final int end = starts[i + 1];
+			for(int j = starts[i]; j < end; j++) {
+				final int offset = members[j] * 3;
+				x += this.normals[offset];
+				y += this.normals[offset + 1];
+				z += this.normals[offset + 2];
 			}
-			final int size = this.tempVertices.size();
-			x = x / size;
-			y = y / size;
-			z = z / size;
-			final Vector3f sharedNormal = new Vector3f(x, y, z);
-			sharedNormal.normalizeLocal();
-			for(IVertex vertex : this.tempVertices) {
-				vertex.setNormalReference(sharedNormal);
+			this.groupNormals[i * 3] = x;
+			this.groupNormals[i * 3 + 1] = y;
+			this.groupNormals[i * 3 + 2] = z;
+		}
+	}
+
+	/**
+	 * Write the normals of the vertices within the given range into the
+	 * normal buffer of the given buffer set.
+	 * @param buffer The <code>Integer</code> index of the buffer set to write.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	private void writeNormals(int buffer, int from, int to) {
+		final FloatBuffer normalBuffer = this.normalBuffers[buffer];
+		final float[] source = (this.groups == null) ? this.normals : this.groupNormals;
+		for(int i = from; i < to; i++) {
+			final int offset = (this.groups == null) ? i * 3 : this.groups[i] * 3;
+			normalBuffer.put(i * 3, source[offset]);
+			normalBuffer.put(i * 3 + 1, source[offset + 1]);
+			normalBuffer.put(i * 3 + 2, source[offset + 2]);
+		}
+	}
+
+	/**
+	 * Check if this mesh is large enough to be updated in parallel.
+	 * @return True if the update should be parallel. False otherwise.
+	 */
+	private boolean isParallel() {
+		return this.data.getVertexCount() >= Mesh.parallelThreshold;
+	}
+
+	/**
+	 * Average normals for vertices with same position. Each vertex
+	 * is then assigned to a group that shares a single normal. The
+	 * groups are found once and then shared by all clones.
+	 */
+	private void averageNormal() {
+		PositionGroups shared = null;
+		synchronized(this.data) {
+			shared = this.data.getPositionGroups();
+			if(shared == null) {
+				shared = new PositionGroups(this.positions, this.data.getWeldEpsilon());
+				this.data.setPositionGroups(shared);
 			}
-			// Clear out this group.
-			this.tempVertices.clear();
+		}
+		this.positionGroups = shared;
+		this.groups = shared.getGroups();
+		final int numGroups = shared.getGroupCount();
+		if(this.groupNormals == null || this.groupNormals.length != numGroups * 3) this.groupNormals = new float[numGroups * 3];
+		this.gatherGroups(0, numGroups);
+		for(int i = 0; i < numGroups; i++) {
+			this.temp.set(this.groupNormals[i * 3], this.groupNormals[i * 3 + 1], this.groupNormals[i * 3 + 2]).normalizeLocal();
+			this.groupNormals[i * 3] = this.temp.x;
+			this.groupNormals[i * 3 + 1] = this.temp.y;
+			this.groupNormals[i * 3 + 2] = this.temp.z;
 		}
 	}
 
 	/**
-	 * Process and setup the <code>TextureState</code> and texture UV buffer.
+	 * Setup the shared <code>TextureState</code> and texture UV buffer.
 	 */
 	private void processTexture() {
-		FloatBuffer textureBuffer = BufferUtils.createVector2Buffer(this.vertices.length);
-		float maxU = 1; float maxV = 1; float minU = 0; float minV = 0;
-		int index = 0;
-		for(IVertex vertex : this.vertices) {
-			BufferUtils.setInBuffer(vertex.getTextureCoords(), textureBuffer, index);
-			if(vertex.getTextureCoords().x > maxU) maxU = vertex.getTextureCoords().x;
-			else if(vertex.getTextureCoords().x < minU) minU = vertex.getTextureCoords().x;
-			if(vertex.getTextureCoords().y > maxV) maxV = vertex.getTextureCoords().y;
-			else if(vertex.getTextureCoords().y < minV) minV = vertex.getTextureCoords().y;
-			index++;
-		}
-		this.setTextureCoords(new TexCoords(textureBuffer));
+		this.setTextureCoords(this.data.getTexCoords());
+		TextureState state = null;
+		synchronized(this.data) {
+			state = this.data.getTextureState();
+			if(state == null) {
+				state = this.createTextureState();
+				this.data.setTextureState(state);
+			}
+		}
+		this.setRenderState(state);
+	}
+
+	/**
+	 * Create the <code>TextureState</code> with all the texture maps.
+	 * @return The created <code>TextureState</code>.
+	 */
+	private TextureState createTextureState() {
+		float maxU = 1; float maxV = 1;
+		final float[] textureCoords = this.data.getTextureCoords();
+		for(int i = 0; i < textureCoords.length; i += 2) {
+			if(textureCoords[i] > maxU) maxU = textureCoords[i];
+			if(textureCoords[i + 1] > maxV) maxV = textureCoords[i + 1];
+		}
 		// Get texture state.
 		TextureState state = (TextureState)this.getRenderState(StateType.Texture);
-		if(state == null) {
-			state= DisplaySystem.getDisplaySystem().getRenderer().createTextureState();
-			this.setRenderState(state);
-		}
+		if(state == null) state = DisplaySystem.getDisplaySystem().getRenderer().createTextureState();
 		// Set color map.
-		if(this.color != null) this.loadSetMap(this.color, state, maxU, maxV, 0);
+		if(this.data.getColorMap() != null) this.loadSetMap(this.data.getColorMap(), state, maxU, maxV, 0);
 		// Set normal map.
-		if(this.normal != null) this.loadSetMap(this.normal, state, maxU, maxV, 1);
+		if(this.data.getNormalMap() != null) this.loadSetMap(this.data.getNormalMap(), state, maxU, maxV, 1);
 		// Set specular map.
-		if(this.specular != null) this.loadSetMap(this.specular, state, maxU, maxV, 2);
+		if(this.data.getSpecularMap() != null) this.loadSetMap(this.data.getSpecularMap(), state, maxU, maxV, 2);
+		return state;
 	}
 	
 	/**
@@ -322,7 +679,7 @@ public class Mesh extends TriMesh implements IMesh {
 		URL url = ResourceLocatorTool.locateResource(ResourceLocatorTool.TYPE_TEXTURE, file);
 		if(url == null) return null;
 		// Load the texture and set the wrap mode.
-		Texture map = TextureManager.loadTexture(url, this.miniFilter, this.magFilter, this.anisotropic, true);
+		Texture map = TextureManager.loadTexture(url, this.data.getMiniFilter(), this.data.getMagFilter(), this.data.getAnisotropic(), true);
 		if(map != null) {
 			if(maxU > 1) map.setWrap(Texture.WrapAxis.S, Texture.WrapMode.Repeat);
 			else map.setWrap(Texture.WrapAxis.S, Texture.WrapMode.Clamp);
@@ -346,30 +703,51 @@ public class Mesh extends TriMesh implements IMesh {
 	 * Process and setup the bounding volume of the <code>Mesh</code>.
 	 */
 	private void processBounding() {
-		if(this.orientedBounding) this.setModelBound(new OrientedBoundingBox());
-		else this.setModelBound(new BoundingBox());
-		this.updateModelBound();
+		if(this.data.getBoundingMode() == EBoundingMode.Conservative) {
+			this.jointBounds = this.data.getJointBounds();
+			if(this.bounds == null) this.bounds = new float[6];
+			this.setModelBound(new BoundingBox());
+			this.updateJointBound();
+		} else {
+			this.jointBounds = null;
+			if(this.data.isOrientedBounding()) this.setModelBound(new OrientedBoundingBox());
+			else this.setModelBound(new BoundingBox());
+			this.updateModelBound();
+		}
 		this.updateGeometricState(0, true);
 	}
 
+	/**
+	 * Update the bounding box from the joint bounds transformed by the
+	 * current joint matrices.
+	 */
+	private void updateJointBound() {
+		if(!this.jointBounds.process(this.skeleton.getMatrices(), this.bounds)) {
+			this.updateModelBound();
+			return;
+		}
+		final BoundingBox box = (BoundingBox)this.getModelBound();
+		box.getCenter().set((this.bounds[0] + this.bounds[3]) * 0.5f, (this.bounds[1] + this.bounds[4]) * 0.5f, (this.bounds[2] + this.bounds[5]) * 0.5f);
+		box.xExtent = (this.bounds[3] - this.bounds[0]) * 0.5f;
+		box.yExtent = (this.bounds[4] - this.bounds[1]) * 0.5f;
+		box.zExtent = (this.bounds[5] - this.bounds[2]) * 0.5f;
+	}
+
 	@Override
-	public void swapBuffer() {
-		// Retrieve current front buffer.
-		final FloatBuffer oldFrontVertexBuffer = this.vertBuf;
-		final FloatBuffer oldFrontNormalBuffer = this.normBuf;
-		// Set back buffer to be front buffer.
-		this.vertBuf = this.backVertexBuffer;
-		this.normBuf = this.backNormalBuffer;
-		// Store old front buffer as back buffer.
-		this.backVertexBuffer = oldFrontVertexBuffer;
-		this.backNormalBuffer = oldFrontNormalBuffer;
+	public void swapBuffer(int buffer) {
+		this.vertBuf = this.vertexBuffers[buffer];
+		this.normBuf = this.normalBuffers[buffer];
 	}
 
 	@Override
 	public void setJoints(IJoint[] joints) {
-		for(IWeight weight : this.weights) {
-			weight.setJoint(joints[weight.getJoint().getIndex()]);
-		}
+		this.joints = joints;
+	}
+
+	@Override
+	public void setSkeleton(ISkeleton skeleton) {
+		this.skeleton = skeleton;
+		this.joints = skeleton.getJoints();
 	}
 	
 	/**
@@ -380,14 +758,58 @@ public class Mesh extends TriMesh implements IMesh {
 		Mesh.extension = extension;
 	}
 
+	/**
+	 * Set the minimum number of vertices to update a mesh in parallel.
+	 * @param threshold The <code>Integer</code> number of vertices.
+	 */
+	public static void setParallelThreshold(int threshold) {
+		Mesh.parallelThreshold = threshold;
+	}
+
+	/**
+	 * Set the pool used to update large meshes and the meshes of
+	 * dependent nodes in parallel.
+	 * @param pool The <code>ForkJoinPool</code> instance.
+	 */
+	public static void setPool(ForkJoinPool pool) {
+		if(pool != null) Mesh.pool = pool;
+	}
+
+	/**
+	 * Retrieve the pool used to update meshes in parallel.
+	 * @return The <code>ForkJoinPool</code> instance.
+	 */
+	public static ForkJoinPool getPool() {
+		return Mesh.pool;
+	}
+
 	@Override
 	public IVertex getVertex(int index) {
-		return this.vertices[index];
+		final int start = this.data.getWeightStarts()[index];
+		final IWeight[] weights = new IWeight[this.data.getWeightCounts()[index]];
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = this.getWeight(start + i);
+		}
+		final float[] textureCoords = this.data.getTextureCoords();
+		final Vector2f coords = new Vector2f(textureCoords[index * 2], textureCoords[index * 2 + 1]);
+		return new Vertex(index, coords, weights, this.data.getUsedTimes()[index]);
 	}
 
 	@Override
 	public IWeight getWeight(int index) {
-		return this.weights[index];
+		final float[] positions = this.data.getWeightPositions();
+		final Vector3f position = new Vector3f(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2]);
+		final IWeight weight = new Weight(index, this.data.getWeightValues()[index], position);
+		weight.setJoint(this.joints[this.data.getWeightJoints()[index]]);
+		return weight;
+	}
+
+	/**
+	 * Retrieve the shared model data.
+	 * @return The shared <code>MeshData</code>.
+	 */
+	public MeshData getData() {
+		return this.data;
 	}
 
 	@Override
@@ -417,63 +839,314 @@ public class Mesh extends TriMesh implements IMesh {
 			String specularRaw = specularMap.getImageLocation();
 			oc.write(specularRaw.substring(specularRaw.indexOf("/"), specularRaw.length()), "SpecularMap", null);
 		}
-		// Write out primitives.
-		oc.write(this.vertices, "Vertices", null);
-		oc.write(this.triangles, "Triangles", null);
-		oc.write(this.weights, "Weights", null);
+		// Write out packed primitives.
+		oc.write(Mesh.version, "Version", 0);
+		this.writePacked(oc);
 		// Write out settings.
-		oc.write(this.anisotropic, "Anisotropic", 0);
-		oc.write(this.miniFilter.name(), "MinFilter", null);
-		oc.write(this.magFilter.name(), "MagFilter", null);
-		oc.write(this.orientedBounding, "OrientedBounding", false);
+		oc.write(this.data.getAnisotropic(), "Anisotropic", 0);
+		oc.write(this.data.getMiniFilter().name(), "MinFilter", null);
+		oc.write(this.data.getMagFilter().name(), "MagFilter", null);
+		oc.write(this.data.isOrientedBounding(), "OrientedBounding", false);
 	}
 
 	@Override
 	public void read(JMEImporter im) throws IOException {
 		super.read(im);
-		Savable[] temp = null;
 		InputCapsule ic = im.getCapsule(this);
 		// Read in texture map locations.
-		this.color = ic.readString("ColorMap", null);
-		this.normal = ic.readString("NormalMap", null);
-		this.specular = ic.readString("SpecularMap", null);
+		final String color = ic.readString("ColorMap", null);
+		final String normal = ic.readString("NormalMap", null);
+		final String specular = ic.readString("SpecularMap", null);
 		// Read in primitives.
-		temp = ic.readSavableArray("Vertices", null);
-		this.vertices = new IVertex[temp.length];
-		for(int i = 0; i < temp.length; i++) {
-			this.vertices[i] = (IVertex)temp[i];
+		final PackedArrays arrays = (ic.readInt("Version", 0) >= Mesh.version) ? this.readPacked(ic) : this.readLegacy(ic);
+		// Read in settings.
+		final int anisotropic = ic.readInt("Anisotropic", 0);
+		final MinificationFilter miniFilter = MinificationFilter.valueOf(ic.readString("MinFilter", null));
+		final MagnificationFilter magFilter = MagnificationFilter.valueOf(ic.readString("MagFilter", null));
+		final boolean orientedBounding = ic.readBoolean("OrientedBounding", false);
+		this.data = new MeshData(color, normal, specular, arrays.textureCoords, arrays.usedTimes, arrays.weightStarts, arrays.weightCounts, arrays.indices,
+				arrays.weightJoints, arrays.weightValues, arrays.weightPositions, anisotropic, miniFilter, magFilter, orientedBounding,
+				ESkinningMode.Auto, false, 0, EBoundingMode.Tight);
+	}
+
+	/**
+	 * Write the vertices, triangles and weights as packed arrays.
+	 * @param oc The <code>OutputCapsule</code> to write to.
+	 * @throws IOException If writing is interrupted.
+	 */
+	private void writePacked(OutputCapsule oc) throws IOException {
+		// Weights with joint references.
+		final int[] weightJoints = this.data.getWeightJoints();
+		final Savable[] jointRefs = new Savable[weightJoints.length];
+		for(int i = 0; i < jointRefs.length; i++) {
+			jointRefs[i] = this.joints[weightJoints[i]];
 		}
-		temp = ic.readSavableArray("Triangles", null);
-		this.triangles = new ITriangle[temp.length];
-		for(int i = 0; i < temp.length; i++) {
-			this.triangles[i] = (ITriangle)temp[i];
+		// Vertices with weight indices.
+		final int[] weightStarts = this.data.getWeightStarts();
+		final int[] weightCounts = this.data.getWeightCounts();
+		int numVertexWeights = 0;
+		for(int count : weightCounts) numVertexWeights += count;
+		final int[] weightIndices = new int[numVertexWeights];
+		int pointer = 0;
+		for(int i = 0; i < weightStarts.length; i++) {
+			for(int j = 0; j < weightCounts[i]; j++) {
+				weightIndices[pointer] = weightStarts[i] + j;
+				pointer++;
+			}
 		}
-		temp = ic.readSavableArray("Weights", null);
-		this.weights = new IWeight[temp.length];
-		for(int i = 0; i < temp.length; i++) {
-			this.weights[i] = (IWeight)temp[i];
+		oc.write(this.data.getWeightValues(), "WeightValues", null);
+		oc.write(this.data.getWeightPositions(), "WeightPositions", null);
+		oc.write(jointRefs, "WeightJoints", null);
+		oc.write(this.data.getTextureCoords(), "TextureCoords", null);
+		oc.write(this.data.getUsedTimes(), "UsedTimes", null);
+		oc.write(weightCounts, "WeightCounts", null);
+		oc.write(weightIndices, "WeightIndices", null);
+		oc.write(this.data.getIndices(), "Indices", null);
+	}
+
+	/**
+	 * Read the vertices, triangles and weights from packed arrays.
+	 * @param ic The <code>InputCapsule</code> to read from.
+	 * @return The read <code>PackedArrays</code>.
+	 * @throws IOException If reading is interrupted.
+	 */
+	private PackedArrays readPacked(InputCapsule ic) throws IOException {
+		final float[] weightValues = ic.readFloatArray("WeightValues", null);
+		final float[] weightPositions = ic.readFloatArray("WeightPositions", null);
+		final Savable[] weightJoints = ic.readSavableArray("WeightJoints", null);
+		final float[] textureCoords = ic.readFloatArray("TextureCoords", null);
+		final int[] usedTimes = ic.readIntArray("UsedTimes", null);
+		final int[] weightCounts = ic.readIntArray("WeightCounts", null);
+		final int[] weightIndices = ic.readIntArray("WeightIndices", null);
+		final int[] indices = ic.readIntArray("Indices", null);
+		// Store the weights of each vertex contiguously.
+		final PackedArrays arrays = new PackedArrays(textureCoords, usedTimes, indices, weightIndices.length);
+		final IJoint[] refs = new IJoint[weightIndices.length];
+		int pointer = 0;
+		for(int i = 0; i < usedTimes.length; i++) {
+			arrays.weightStarts[i] = pointer;
+			arrays.weightCounts[i] = weightCounts[i];
+			for(int j = 0; j < weightCounts[i]; j++) {
+				final int weight = weightIndices[pointer];
+				arrays.weightValues[pointer] = weightValues[weight];
+				System.arraycopy(weightPositions, weight * 3, arrays.weightPositions, pointer * 3, 3);
+				refs[pointer] = (IJoint)weightJoints[weight];
+				pointer++;
+			}
 		}
-		// Read in settings.
-		this.anisotropic = ic.readInt("Anisotropic", 0);
-		this.miniFilter = MinificationFilter.valueOf(ic.readString("MinFilter", null));
-		this.magFilter = MagnificationFilter.valueOf(ic.readString("MagFilter", null));
-		this.orientedBounding = ic.readBoolean("OrientedBounding", false);
-		// Create back buffers.
-		this.backVertexBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
-		this.backNormalBuffer = BufferUtils.createVector3Buffer(this.vertices.length);
+		this.bindJoints(refs, arrays.weightJoints);
+		return arrays;
+	}
+
+	/**
+	 * Read the vertices, triangles and weights exported with the previous
+	 * layout of individual primitives.
+	 * @param ic The <code>InputCapsule</code> to read from.
+	 * @return The read <code>PackedArrays</code>.
+	 * @throws IOException If reading is interrupted.
+	 */
+	private PackedArrays readLegacy(InputCapsule ic) throws IOException {
+		final Savable[] vertices = ic.readSavableArray("Vertices", null);
+		final Savable[] triangles = ic.readSavableArray("Triangles", null);
+		int numWeights = 0;
+		for(Savable vertex : vertices) numWeights += ((IVertex)vertex).getWeights().length;
+		final float[] textureCoords = new float[vertices.length * 2];
+		final int[] usedTimes = new int[vertices.length];
+		final int[] indices = new int[triangles.length * 3];
+		final PackedArrays arrays = new PackedArrays(textureCoords, usedTimes, indices, numWeights);
+		final IJoint[] refs = new IJoint[numWeights];
+		int pointer = 0;
+		for(int i = 0; i < vertices.length; i++) {
+			final IVertex vertex = (IVertex)vertices[i];
+			textureCoords[i * 2] = vertex.getTextureCoords().x;
+			textureCoords[i * 2 + 1] = vertex.getTextureCoords().y;
+			usedTimes[i] = vertex.getUsedTimes();
+			arrays.weightStarts[i] = pointer;
+			arrays.weightCounts[i] = vertex.getWeights().length;
+			for(IWeight weight : vertex.getWeights()) {
+				arrays.weightValues[pointer] = weight.getWeightValue();
+				arrays.weightPositions[pointer * 3] = weight.getPosition().x;
+				arrays.weightPositions[pointer * 3 + 1] = weight.getPosition().y;
+				arrays.weightPositions[pointer * 3 + 2] = weight.getPosition().z;
+				refs[pointer] = weight.getJoint();
+				pointer++;
+			}
+		}
+		for(int i = 0; i < triangles.length; i++) {
+			for(int j = 0; j < 3; j++) {
+				indices[i * 3 + j] = ((ITriangle)triangles[i]).getVertex(j).getIndex();
+			}
+		}
+		this.bindJoints(refs, arrays.weightJoints);
+		return arrays;
+	}
+
+	/**
+	 * Bind this mesh to the joints referenced by the given weight joints.
+	 * @param refs The array of <code>IJoint</code> referenced by each weight.
+	 * @param weightJoints The <code>Integer</code> array to store the joint indices in.
+	 */
+	private void bindJoints(IJoint[] refs, int[] weightJoints) {
+		int numJoints = 0;
+		for(int i = 0; i < refs.length; i++) {
+			weightJoints[i] = refs[i].getIndex();
+			numJoints = Math.max(numJoints, weightJoints[i] + 1);
+		}
+		this.joints = new IJoint[numJoints];
+		for(IJoint joint : refs) this.joints[joint.getIndex()] = joint;
 	}
 
 	@Override
 	public IMesh clone(IJoint[] clonedJoints) {
-		// Weights need to be cloned first.
-		IWeight[] clonedWeights = new IWeight[this.weights.length];
-		for(int i = 0; i < clonedWeights.length; i++) clonedWeights[i] = this.weights[i].clone(clonedJoints);
-		// Then pass cloned weights to clone vertices.
-		IVertex[] clonedVertices = new IVertex[this.vertices.length];
-		for(int i = 0; i < clonedVertices.length; i++) clonedVertices[i] = this.vertices[i].clone(clonedWeights);
-		// Then pass cloned vertices to clone triangles.
-		ITriangle[] clonedTriangles = new ITriangle[this.triangles.length];
-		for(int i = 0; i < clonedTriangles.length; i++) clonedTriangles[i] = this.triangles[i].clone(clonedVertices);
-		return new Mesh(new String(this.color), clonedVertices, clonedTriangles, clonedWeights, this.anisotropic, this.miniFilter, this.magFilter, this.orientedBounding);
+		return new Mesh(this.data, clonedJoints);
+	}
+
+	/**
+	 * <code>SkinTask</code> processes a range of one stage of the mesh
+	 * update, splitting the range until it is small enough to process
+	 * directly.
+	 */
+	private class SkinTask extends RecursiveAction {
+		/**
+		 * Serial version.
+		 */
+		private static final long serialVersionUID = 6034971254106521871L;
+		/**
+		 * The <code>Integer</code> stage transforming a range of joint batches.
+		 */
+		private static final int batches = 0;
+		/**
+		 * The <code>Integer</code> stage skinning a range of vertices.
+		 */
+		private static final int vertices = 1;
+		/**
+		 * The <code>Integer</code> stage calculating a range of triangle normals.
+		 */
+		private static final int faces = 2;
+		/**
+		 * The <code>Integer</code> stage gathering a range of vertex normals.
+		 */
+		private static final int gather = 3;
+		/**
+		 * The <code>Integer</code> stage gathering a range of group normals.
+		 */
+		private static final int groups = 4;
+		/**
+		 * The <code>Integer</code> stage writing a range of vertex normals.
+		 */
+		private static final int normals = 5;
+		/**
+		 * The <code>Integer</code> number of vertices or triangles processed without splitting.
+		 */
+		private static final int threshold = 2048;
+		/**
+		 * The <code>Integer</code> number of joints processed without splitting.
+		 */
+		private static final int jointThreshold = 4;
+		/**
+		 * The <code>Integer</code> stage.
+		 */
+		private final int stage;
+		/**
+		 * The <code>Integer</code> first index.
+		 */
+		private final int start;
+		/**
+		 * The <code>Integer</code> exclusive last index.
+		 */
+		private final int end;
+		/**
+		 * The <code>Integer</code> index of the buffer set to write.
+		 */
+		private final int buffer;
+
+		/**
+		 * Constructor of <code>SkinTask</code>.
+		 * @param stage The <code>Integer</code> stage.
+		 * @param start The <code>Integer</code> first index.
+		 * @param end The <code>Integer</code> exclusive last index.
+		 * @param buffer The <code>Integer</code> index of the buffer set to write.
+		 */
+		private SkinTask(int stage, int start, int end, int buffer) {
+			this.stage = stage;
+			this.start = start;
+			this.end = end;
+			this.buffer = buffer;
+		}
+
+		@Override
+		protected void compute() {
+			final int limit = (this.stage == SkinTask.batches) ? SkinTask.jointThreshold : SkinTask.threshold;
+			if(this.end - this.start <= limit) {
+				switch(this.stage) {
+				case SkinTask.batches: transformBatches(this.start, this.end); break;
+				case SkinTask.vertices: skinVertices(this.start, this.end); break;
+				case SkinTask.faces: processFaces(this.start, this.end, new Vector3f(), new Vector3f()); break;
+				case SkinTask.gather: gatherNormals(this.start, this.end); break;
+				case SkinTask.groups: gatherGroups(this.start, this.end); break;
+				default: writeNormals(this.buffer, this.start, this.end); break;
+				}
+			} else {
+				final int middle = (this.start + this.end) >>> 1;
+				RecursiveAction.invokeAll(new SkinTask(this.stage, this.start, middle, this.buffer), new SkinTask(this.stage, middle, this.end, this.buffer));
+			}
+		}
+	}
+
+	/**
+	 * <code>PackedArrays</code> maintains the packed arrays read from
+	 * an export before they are handed to a new <code>MeshData</code>.
+	 */
+	private static class PackedArrays {
+		/**
+		 * The <code>Float</code> array of final texture coordinates.
+		 */
+		private final float[] textureCoords;
+		/**
+		 * The <code>Integer</code> array of used times.
+		 */
+		private final int[] usedTimes;
+		/**
+		 * The <code>Integer</code> array of triangle vertex indices.
+		 */
+		private final int[] indices;
+		/**
+		 * The <code>Integer</code> array of vertex first weight indices.
+		 */
+		private final int[] weightStarts;
+		/**
+		 * The <code>Integer</code> array of vertex weight counts.
+		 */
+		private final int[] weightCounts;
+		/**
+		 * The <code>Integer</code> array of weight joint indices.
+		 */
+		private final int[] weightJoints;
+		/**
+		 * The <code>Float</code> array of weight values.
+		 */
+		private final float[] weightValues;
+		/**
+		 * The <code>Float</code> array of weight positions.
+		 */
+		private final float[] weightPositions;
+
+		/**
+		 * Constructor of <code>PackedArrays</code>.
+		 * @param textureCoords The <code>Float</code> array of final texture coordinates.
+		 * @param usedTimes The <code>Integer</code> array of used times.
+		 * @param indices The <code>Integer</code> array of triangle vertex indices.
+		 * @param numWeights The <code>Integer</code> number of weights.
+		 */
+		private PackedArrays(float[] textureCoords, int[] usedTimes, int[] indices, int numWeights) {
+			this.textureCoords = textureCoords;
+			this.usedTimes = usedTimes;
+			this.indices = indices;
+			this.weightStarts = new int[usedTimes.length];
+			this.weightCounts = new int[usedTimes.length];
+			this.weightJoints = new int[numWeights];
+			this.weightValues = new float[numWeights];
+			this.weightPositions = new float[numWeights * 3];
+		}
 	}
 }
@@ -0,0 +1,491 @@
+package com.md5importer.model.mesh;
+
+import java.io.Serializable;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import com.jme.image.Texture.MagnificationFilter;
+import com.jme.image.Texture.MinificationFilter;
+import com.jme.scene.TexCoords;
+import com.jme.scene.state.TextureState;
+import com.jme.util.geom.BufferUtils;
+import com.md5importer.enumn.EBoundingMode;
+import com.md5importer.enumn.ESkinningMode;
+
+/**
+ * <code>MeshData</code> defines the immutable model data of a mesh that
+ * is shared by all the clones of the mesh.
+ * <p>
+ * <code>MeshData</code> maintains the weights, texture coordinates and
+ * triangle topology as packed arrays, along with the texture, skinning
+ * and bounding settings of the load that created it.
+ * The weights of each vertex are stored contiguously. The index buffer,
+ * texture coordinates buffer and <code>TextureState</code> are created
+ * once on first request and then shared by every <code>Mesh</code> that
+ * references this data. The joint major layout of the weights used by
+ * vector skinning, the vertex to triangle adjacency used by the
+ * normal pass and the joint bounds used by conservative bounding are
+ * created and shared the same way.
+ * <p>
+ * <code>MeshData</code> may also maintain a normal per weight in the
+ * space of its joint, which allows the vertex normals to be skinned
+ * along with the positions instead of being recalculated from the
+ * triangles. The weight normals are set once when the mesh is loaded.
+ * <p>
+ * <code>MeshData</code> also shares the groups of vertices with the same
+ * position, which are found once by the first mesh that averages its
+ * normals and then reused by all clones.
+ * <p>
+ * <code>MeshData</code> is never modified after construction except
+ * for the lazily created shared render data, which is guarded by the
+ * instance lock, the weight normals and the position groups.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class MeshData implements Serializable {
+	/**
+	 * Serial version.
+	 */
+	private static final long serialVersionUID = 5408317652218837092L;
+	/**
+	 * The <code>String</code> color map file name.
+	 */
+	private final String color;
+	/**
+	 * The <code>String</code> normal map file name.
+	 */
+	private final String normal;
+	/**
+	 * The <code>String</code> specular map file name.
+	 */
+	private final String specular;
+	/**
+	 * The <code>Float</code> array of final texture coordinates, two values per vertex.
+	 */
+	private final float[] textureCoords;
+	/**
+	 * The <code>Integer</code> array of number of triangles using each vertex.
+	 */
+	private final int[] usedTimes;
+	/**
+	 * The <code>Integer</code> array of vertex first weight indices.
+	 */
+	private final int[] weightStarts;
+	/**
+	 * The <code>Integer</code> array of vertex weight counts.
+	 */
+	private final int[] weightCounts;
+	/**
+	 * The <code>Integer</code> array of triangle vertex indices in winding order.
+	 */
+	private final int[] indices;
+	/**
+	 * The <code>Integer</code> array of weight joint indices.
+	 */
+	private final int[] weightJoints;
+	/**
+	 * The <code>Float</code> array of weight values.
+	 */
+	private final float[] weightValues;
+	/**
+	 * The <code>Float</code> array of weight positions, three values per weight.
+	 */
+	private final float[] weightPositions;
+	/**
+	 * The <code>Float</code> array of bind space weight normals, three values per weight.
+	 * <code>null</code> if the normals are calculated from the triangles.
+	 */
+	private volatile float[] weightNormals;
+	/**
+	 * The <code>Integer</code> anisotropic level value.
+	 */
+	private final int anisotropic;
+	/**
+	 * The <code>MinificationFilter</code> enumeration.
+	 */
+	private final MinificationFilter miniFilter;
+	/**
+	 * The <code>MagnificationFilter</code> enumeration.
+	 */
+	private final MagnificationFilter magFilter;
+	/**
+	 * The flag indicates if oriented bounding should be used.
+	 */
+	private final boolean orientedBounding;
+	/**
+	 * The <code>ESkinningMode</code> enumeration.
+	 */
+	private final ESkinningMode skinningMode;
+	/**
+	 * The flag indicates if the normals are skinned from the weight normals.
+	 */
+	private final boolean skinnedNormals;
+	/**
+	 * The <code>Float</code> position tolerance to group vertices with.
+	 */
+	private final float weldEpsilon;
+	/**
+	 * The <code>EBoundingMode</code> enumeration.
+	 */
+	private final EBoundingMode boundingMode;
+	/**
+	 * The shared index <code>IntBuffer</code>.
+	 */
+	private transient IntBuffer indexBuffer;
+	/**
+	 * The shared texture coordinates <code>TexCoords</code>.
+	 */
+	private transient TexCoords texCoords;
+	/**
+	 * The shared <code>TextureState</code>.
+	 */
+	private transient TextureState textureState;
+	/**
+	 * The shared joint major <code>WeightBatches</code>.
+	 */
+	private transient WeightBatches weightBatches;
+	/**
+	 * The <code>Float</code> arrays of x, y and z weight normals in batch order.
+	 */
+	private transient float[][] batchNormals;
+	/**
+	 * The shared vertex to triangle <code>TriangleAdjacency</code>.
+	 */
+	private transient TriangleAdjacency adjacency;
+	/**
+	 * The shared bind space <code>JointBounds</code>.
+	 */
+	private transient JointBounds jointBounds;
+	/**
+	 * The shared <code>PositionGroups</code>. <code>null</code> if not yet found.
+	 */
+	private transient PositionGroups positionGroups;
+
+	/**
+	 * Constructor of <code>MeshData</code>.
+	 * @param color The <code>String</code> color map file name.
+	 * @param normal The <code>String</code> normal map file name.
+	 * @param specular The <code>String</code> specular map file name.
+	 * @param textureCoords The <code>Float</code> array of final texture coordinates.
+	 * @param usedTimes The <code>Integer</code> array of number of triangles using each vertex.
+	 * @param weightStarts The <code>Integer</code> array of vertex first weight indices.
+	 * @param weightCounts The <code>Integer</code> array of vertex weight counts.
+	 * @param indices The <code>Integer</code> array of triangle vertex indices in winding order.
+	 * @param weightJoints The <code>Integer</code> array of weight joint indices.
+	 * @param weightValues The <code>Float</code> array of weight values.
+	 * @param weightPositions The <code>Float</code> array of weight positions.
+	 * @param anisotropic The <code>Integer</code> anisotropic level value.
+	 * @param miniFilter The <code>MinificationFilter</code> enumeration.
+	 * @param magFilter The <code>MagnificationFilter</code> enumeration.
+	 * @param orientedBounding The flag indicates if oriented bounding should be used.
+	 * @param skinningMode The <code>ESkinningMode</code> enumeration.
+	 * @param skinnedNormals The flag indicates if the normals are skinned from the weight normals.
+	 * @param weldEpsilon The <code>Float</code> position tolerance to group vertices with. Zero for exact positions.
+	 * @param boundingMode The <code>EBoundingMode</code> enumeration.
+	 */
+	public MeshData(String color, String normal, String specular, float[] textureCoords, int[] usedTimes, int[] weightStarts, int[] weightCounts,
+			int[] indices, int[] weightJoints, float[] weightValues, float[] weightPositions, int anisotropic, MinificationFilter miniFilter,
+			MagnificationFilter magFilter, boolean orientedBounding, ESkinningMode skinningMode, boolean skinnedNormals, float weldEpsilon,
+			EBoundingMode boundingMode) {
+		this.color = color;
+		this.normal = normal;
+		this.specular = specular;
+		this.textureCoords = textureCoords;
+		this.usedTimes = usedTimes;
+		this.weightStarts = weightStarts;
+		this.weightCounts = weightCounts;
+		this.indices = indices;
+		this.weightJoints = weightJoints;
+		this.weightValues = weightValues;
+		this.weightPositions = weightPositions;
+		this.anisotropic = anisotropic;
+		this.miniFilter = miniFilter;
+		this.magFilter = magFilter;
+		this.orientedBounding = orientedBounding;
+		this.skinningMode = skinningMode;
+		this.skinnedNormals = skinnedNormals;
+		this.weldEpsilon = weldEpsilon;
+		this.boundingMode = boundingMode;
+	}
+
+	/**
+	 * Retrieve the shared index buffer.
+	 * @return The <code>IntBuffer</code> of triangle vertex indices.
+	 */
+	public synchronized IntBuffer getIndexBuffer() {
+		if(this.indexBuffer == null) {
+			this.indexBuffer = BufferUtils.createIntBuffer(this.indices.length);
+			this.indexBuffer.clear();
+			this.indexBuffer.put(this.indices);
+			this.indexBuffer.flip();
+		}
+		return this.indexBuffer;
+	}
+
+	/**
+	 * Retrieve the shared texture coordinates.
+	 * @return The <code>TexCoords</code> of all vertices.
+	 */
+	public synchronized TexCoords getTexCoords() {
+		if(this.texCoords == null) {
+			final FloatBuffer buffer = BufferUtils.createVector2Buffer(this.usedTimes.length);
+			buffer.clear();
+			buffer.put(this.textureCoords);
+			buffer.flip();
+			this.texCoords = new TexCoords(buffer);
+		}
+		return this.texCoords;
+	}
+
+	/**
+	 * Retrieve the shared joint major layout of the weights.
+	 * @return The <code>WeightBatches</code> of all weights.
+	 */
+	public synchronized WeightBatches getWeightBatches() {
+		if(this.weightBatches == null) this.weightBatches = new WeightBatches(this);
+		return this.weightBatches;
+	}
+
+	/**
+	 * Retrieve the shared bind space weight normals in batch order.
+	 * @return The <code>Float</code> arrays of x, y and z normals. <code>null</code> if the weight normals are not set.
+	 */
+	public synchronized float[][] getBatchNormals() {
+		if(this.batchNormals == null && this.weightNormals != null) this.batchNormals = this.getWeightBatches().arrange(this.weightNormals);
+		return this.batchNormals;
+	}
+
+	/**
+	 * Retrieve the shared vertex to triangle adjacency.
+	 * @return The <code>TriangleAdjacency</code> of all vertices.
+	 */
+	public synchronized TriangleAdjacency getAdjacency() {
+		if(this.adjacency == null) this.adjacency = new TriangleAdjacency(this);
+		return this.adjacency;
+	}
+
+	/**
+	 * Retrieve the shared bind space bounds of the weights per joint.
+	 * @return The <code>JointBounds</code> of all weights.
+	 */
+	public synchronized JointBounds getJointBounds() {
+		if(this.jointBounds == null) this.jointBounds = new JointBounds(this);
+		return this.jointBounds;
+	}
+
+	/**
+	 * Set the shared texture state.
+	 * @param state The <code>TextureState</code> to share.
+	 */
+	public synchronized void setTextureState(TextureState state) {
+		this.textureState = state;
+	}
+
+	/**
+	 * Retrieve the shared texture state.
+	 * @return The <code>TextureState</code>. <code>null</code> if not yet created.
+	 */
+	public synchronized TextureState getTextureState() {
+		return this.textureState;
+	}
+
+	/**
+	 * Set the shared groups of vertices with the same position.
+	 * @param groups The <code>PositionGroups</code> to share.
+	 */
+	public synchronized void setPositionGroups(PositionGroups groups) {
+		this.positionGroups = groups;
+	}
+
+	/**
+	 * Retrieve the shared groups of vertices with the same position.
+	 * @return The <code>PositionGroups</code>. <code>null</code> if not yet found.
+	 */
+	public synchronized PositionGroups getPositionGroups() {
+		return this.positionGroups;
+	}
+
+	/**
+	 * Retrieve the color map file name.
+	 * @return The <code>String</code> color map file name.
+	 */
+	public String getColorMap() {
+		return this.color;
+	}
+
+	/**
+	 * Retrieve the normal map file name.
+	 * @return The <code>String</code> normal map file name.
+	 */
+	public String getNormalMap() {
+		return this.normal;
+	}
+
+	/**
+	 * Retrieve the specular map file name.
+	 * @return The <code>String</code> specular map file name.
+	 */
+	public String getSpecularMap() {
+		return this.specular;
+	}
+
+	/**
+	 * Retrieve the number of vertices.
+	 * @return The <code>Integer</code> number of vertices.
+	 */
+	public int getVertexCount() {
+		return this.usedTimes.length;
+	}
+
+	/**
+	 * Retrieve the number of weights.
+	 * @return The <code>Integer</code> number of weights.
+	 */
+	public int getWeightCount() {
+		return this.weightValues.length;
+	}
+
+	/**
+	 * Retrieve the final texture coordinates. The returned array should not be modified.
+	 * @return The <code>Float</code> array with two values per vertex.
+	 */
+	public float[] getTextureCoords() {
+		return this.textureCoords;
+	}
+
+	/**
+	 * Retrieve the number of triangles using each vertex. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of used times.
+	 */
+	public int[] getUsedTimes() {
+		return this.usedTimes;
+	}
+
+	/**
+	 * Retrieve the first weight index of each vertex. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of weight indices.
+	 */
+	public int[] getWeightStarts() {
+		return this.weightStarts;
+	}
+
+	/**
+	 * Retrieve the number of weights of each vertex. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of weight counts.
+	 */
+	public int[] getWeightCounts() {
+		return this.weightCounts;
+	}
+
+	/**
+	 * Retrieve the triangle vertex indices in winding order. The returned array should not be modified.
+	 * @return The <code>Integer</code> array with three values per triangle.
+	 */
+	public int[] getIndices() {
+		return this.indices;
+	}
+
+	/**
+	 * Retrieve the joint index of each weight. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of joint indices.
+	 */
+	public int[] getWeightJoints() {
+		return this.weightJoints;
+	}
+
+	/**
+	 * Retrieve the value of each weight. The returned array should not be modified.
+	 * @return The <code>Float</code> array of weight values.
+	 */
+	public float[] getWeightValues() {
+		return this.weightValues;
+	}
+
+	/**
+	 * Retrieve the position of each weight. The returned array should not be modified.
+	 * @return The <code>Float</code> array with three values per weight.
+	 */
+	public float[] getWeightPositions() {
+		return this.weightPositions;
+	}
+
+	/**
+	 * Set the bind space normal of each weight.
+	 * @param weightNormals The <code>Float</code> array with three values per weight.
+	 */
+	public void setWeightNormals(float[] weightNormals) {
+		this.weightNormals = weightNormals;
+	}
+
+	/**
+	 * Retrieve the bind space normal of each weight. The returned array should not be modified.
+	 * @return The <code>Float</code> array with three values per weight. <code>null</code> if not set.
+	 */
+	public float[] getWeightNormals() {
+		return this.weightNormals;
+	}
+
+	/**
+	 * Retrieve the anisotropic level.
+	 * @return The <code>Integer</code> anisotropic level.
+	 */
+	public int getAnisotropic() {
+		return this.anisotropic;
+	}
+
+	/**
+	 * Retrieve the minification texture filter.
+	 * @return The <code>MinificationFilter</code> enumeration.
+	 */
+	public MinificationFilter getMiniFilter() {
+		return this.miniFilter;
+	}
+
+	/**
+	 * Retrieve the magnification texture filter.
+	 * @return The <code>MagnificationFilter</code> enumeration.
+	 */
+	public MagnificationFilter getMagFilter() {
+		return this.magFilter;
+	}
+
+	/**
+	 * Check if oriented bounding should be used.
+	 * @return The <code>Boolean</code> oriented bounding flag.
+	 */
+	public boolean isOrientedBounding() {
+		return this.orientedBounding;
+	}
+
+	/**
+	 * Retrieve the skinning mode.
+	 * @return The <code>ESkinningMode</code> enumeration.
+	 */
+	public ESkinningMode getSkinningMode() {
+		return this.skinningMode;
+	}
+
+	/**
+	 * Check if the normals are skinned from the weight normals.
+	 * @return The <code>Boolean</code> skinned normals flag.
+	 */
+	public boolean isSkinnedNormals() {
+		return this.skinnedNormals;
+	}
+
+	/**
+	 * Retrieve the position tolerance to group vertices with.
+	 * @return The <code>Float</code> tolerance. Zero for exact positions.
+	 */
+	public float getWeldEpsilon() {
+		return this.weldEpsilon;
+	}
+
+	/**
+	 * Retrieve the bounding mode.
+	 * @return The <code>EBoundingMode</code> enumeration.
+	 */
+	public EBoundingMode getBoundingMode() {
+		return this.boundingMode;
+	}
+}
@@ -0,0 +1,157 @@
+package com.md5importer.model.mesh;
+
+import java.util.Arrays;
+
+/**
+ * <code>PositionGroups</code> defines the immutable grouping of the
+ * vertices of a mesh that share the same position.
+ * <p>
+ * <code>PositionGroups</code> welds the vertices with a spatial hash in
+ * linear time. Without a tolerance, the vertices are hashed by the bits
+ * of their exact positions. With a tolerance, the vertices are hashed by
+ * the cell of the tolerance sized grid they fall in, and each vertex
+ * joins the group of the first preceding vertex within the tolerance
+ * found in its own or any neighbouring cell.
+ * <p>
+ * The groups are numbered in the order of their first vertex. The
+ * member vertices of each group are stored in compressed rows in
+ * ascending order.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class PositionGroups {
+	/**
+	 * The <code>Integer</code> array of group index of each vertex.
+	 */
+	private final int[] groups;
+	/**
+	 * The <code>Integer</code> array of member boundaries indexed by group.
+	 */
+	private final int[] starts;
+	/**
+	 * The <code>Integer</code> array of vertex indices in group order.
+	 */
+	private final int[] members;
+
+	/**
+	 * Constructor of <code>PositionGroups</code>.
+	 * @param positions The <code>Float</code> array of vertex positions, three values per vertex.
+	 * @param epsilon The <code>Float</code> position tolerance. Zero for exact positions.
+	 */
+	public PositionGroups(float[] positions, float epsilon) {
+		final int numVertices = positions.length / 3;
+		final boolean exact = !(epsilon > 0);
+		// Hash the vertices into chained buckets by cell.
+		int size = 16;
+		while(size < numVertices * 2) size <<= 1;
+		final int mask = size - 1;
+		final int[] heads = new int[size];
+		Arrays.fill(heads, -1);
+		final int[] next = new int[numVertices];
+		final int[] cells = new int[numVertices * 3];
+		this.groups = new int[numVertices];
+		int numGroups = 0;
+		for(int i = 0; i < numVertices; i++) {
+			final float x = positions[i * 3];
+			final float y = positions[i * 3 + 1];
+			final float z = positions[i * 3 + 2];
+			final int cx = exact ? Float.floatToIntBits(x) : (int)Math.floor(x / epsilon);
+			final int cy = exact ? Float.floatToIntBits(y) : (int)Math.floor(y / epsilon);
+			final int cz = exact ? Float.floatToIntBits(z) : (int)Math.floor(z / epsilon);
+			// Find a preceding vertex in the same or a neighbouring cell.
+			final int range = exact ? 0 : 1;
+			int match = -1;
+			for(int dx = -range; dx <= range && match < 0; dx++) {
+				for(int dy = -range; dy <= range && match < 0; dy++) {
+					for(int dz = -range; dz <= range && match < 0; dz++) {
+						for(int j = heads[PositionGroups.hash(cx + dx, cy + dy, cz + dz) & mask]; j >= 0; j = next[j]) {
+							if(cells[j * 3] != cx + dx || cells[j * 3 + 1] != cy + dy || cells[j * 3 + 2] != cz + dz) continue;
+							if(exact || PositionGroups.isWithin(positions, i, j, epsilon)) {
+								match = j;
+								break;
+							}
+						}
+					}
+				}
+			}
+			this.groups[i] = (match < 0) ? numGroups++ : this.groups[match];
+			// Insert the vertex into its cell.
+			cells[i * 3] = cx;
+			cells[i * 3 + 1] = cy;
+			cells[i * 3 + 2] = cz;
+			final int bucket = PositionGroups.hash(cx, cy, cz) & mask;
+			next[i] = heads[bucket];
+			heads[bucket] = i;
+		}
+		// Store the members of each group in compressed rows.
+		this.starts = new int[numGroups + 1];
+		for(int group : this.groups) this.starts[group + 1]++;
+		for(int i = 0; i < numGroups; i++) this.starts[i + 1] += this.starts[i];
+		final int[] pointers = new int[numGroups];
+		System.arraycopy(this.starts, 0, pointers, 0, numGroups);
+		this.members = new int[numVertices];
+		for(int i = 0; i < numVertices; i++) {
+			this.members[pointers[this.groups[i]]++] = i;
+		}
+	}
+
+	/**
+	 * Hash the given cell coordinates.
+	 * @param x The <code>Integer</code> x cell coordinate.
+	 * @param y The <code>Integer</code> y cell coordinate.
+	 * @param z The <code>Integer</code> z cell coordinate.
+	 * @return The <code>Integer</code> hash value.
+	 */
+	private static int hash(int x, int y, int z) {
+		final int hash = x * 73856093 ^ y * 19349663 ^ z * 83492791;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Check if the vertices with given indices are within the given tolerance.
+	 * @param positions The <code>Float</code> array of vertex positions.
+	 * @param v1 The <code>Integer</code> index of the first vertex.
+	 * @param v2 The <code>Integer</code> index of the second vertex.
+	 * @param epsilon The <code>Float</code> position tolerance.
+	 * @return True if the vertices are within the tolerance.
+	 */
+	private static boolean isWithin(float[] positions, int v1, int v2, float epsilon) {
+		return Math.abs(positions[v1 * 3] - positions[v2 * 3]) <= epsilon
+			&& Math.abs(positions[v1 * 3 + 1] - positions[v2 * 3 + 1]) <= epsilon
+			&& Math.abs(positions[v1 * 3 + 2] - positions[v2 * 3 + 2]) <= epsilon;
+	}
+
+	/**
+	 * Retrieve the number of groups.
+	 * @return The <code>Integer</code> number of groups.
+	 */
+	public int getGroupCount() {
+		return this.starts.length - 1;
+	}
+
+	/**
+	 * Retrieve the group index of each vertex. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of group indices.
+	 */
+	public int[] getGroups() {
+		return this.groups;
+	}
+
+	/**
+	 * Retrieve the member boundaries. The members of group i occupy the
+	 * elements from element i inclusive to element i + 1 exclusive. The
+	 * returned array should not be modified.
+	 * @return The <code>Integer</code> array of member boundaries.
+	 */
+	public int[] getStarts() {
+		return this.starts;
+	}
+
+	/**
+	 * Retrieve the vertex indices in group order. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of vertex indices.
+	 */
+	public int[] getMembers() {
+		return this.members;
+	}
+}
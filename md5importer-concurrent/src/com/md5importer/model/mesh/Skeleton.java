@@ -0,0 +1,285 @@
+package com.md5importer.model.mesh;
+
+import com.jme.math.Matrix3f;
+import com.jme.math.Quaternion;
+import com.jme.math.TransformMatrix;
+import com.jme.math.Vector3f;
+import com.md5importer.interfaces.model.mesh.IJoint;
+import com.md5importer.interfaces.model.mesh.ISkeleton;
+import com.md5importer.model.anim.Frame;
+
+/**
+ * <code>Skeleton</code> defines the concrete implementation of a
+ * flattened skeleton.
+ * <p>
+ * <code>Skeleton</code> resolves the joint hierarchy into an array of
+ * parent indices and an evaluation order once at construction. Each
+ * pass then walks the order and multiplies the packed matrix of the
+ * parent with the local transform directly on float arrays, without
+ * any intermediate <code>TransformMatrix</code>. The arithmetic is
+ * performed in the same order as <code>Joint.processRelative</code>,
+ * so both paths produce identical transforms.
+ * <p>
+ * The root joints use the transform of their super parent joint as
+ * the base transform if they are attached to another model.
+ * <p>
+ * <code>Skeleton</code> increments its pose version whenever a pass
+ * changes the matrix of any joint, so unchanged poses can be detected
+ * without comparing the matrices again. The transforms of unchanged
+ * joints are not stored again either.
+ * <p>
+ * <code>Skeleton</code> is not thread safe. It should be updated by the
+ * thread that updates the owning <code>IMD5Node</code>.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class Skeleton implements ISkeleton {
+	/**
+	 * The <code>Integer</code> number of matrix values per joint.
+	 */
+	public static final int stride = 12;
+	/**
+	 * The array of <code>IJoint</code> of this skeleton.
+	 */
+	private final IJoint[] joints;
+	/**
+	 * The <code>Integer</code> array of parent indices.
+	 */
+	private final int[] parents;
+	/**
+	 * The <code>Integer</code> array of joint evaluation order.
+	 */
+	private final int[] order;
+	/**
+	 * The <code>Float</code> array of local transforms, seven values per joint.
+	 */
+	private final float[] locals;
+	/**
+	 * The <code>Float</code> array of model space matrices, twelve values per joint.
+	 */
+	private final float[] matrices;
+	/**
+	 * The <code>Float</code> array of the base matrix of root joints.
+	 */
+	private final float[] base;
+	/**
+	 * The <code>Integer</code> version of the evaluated pose.
+	 */
+	private volatile int version;
+	/**
+	 * The temporary <code>Matrix3f</code> for joint transform exchange.
+	 */
+	private final Matrix3f tempRotation;
+	/**
+	 * The temporary <code>Vector3f</code> for joint transform exchange.
+	 */
+	private final Vector3f tempTranslation;
+
+	/**
+	 * Constructor of <code>Skeleton</code>.
+	 * @param joints The array of <code>IJoint</code> ordered by index.
+	 */
+	public Skeleton(IJoint[] joints) {
+		this.joints = joints;
+		this.parents = new int[joints.length];
+		for(int i = 0; i < joints.length; i++) {
+			final IJoint parent = joints[i].getParent();
+			this.parents[i] = (parent == null) ? -1 : parent.getIndex();
+		}
+		this.order = Skeleton.buildOrder(this.parents);
+		this.locals = new float[joints.length * Frame.stride];
+		this.matrices = new float[joints.length * Skeleton.stride];
+		this.base = new float[Skeleton.stride];
+		this.tempRotation = new Matrix3f();
+		this.tempTranslation = new Vector3f();
+		this.processLocals();
+	}
+
+	/**
+	 * Build the evaluation order in which every parent precedes its children.
+	 * @param parents The <code>Integer</code> array of parent indices.
+	 * @return The <code>Integer</code> array of joint indices.
+	 */
+	private static int[] buildOrder(int[] parents) {
+		final int[] order = new int[parents.length];
+		final boolean[] placed = new boolean[parents.length];
+		int count = 0;
+		while(count < parents.length) {
+			final int last = count;
+			for(int i = 0; i < parents.length; i++) {
+				if(placed[i] || (parents[i] >= 0 && !placed[parents[i]])) continue;
+				placed[i] = true;
+				order[count] = i;
+				count++;
+			}
+			if(count == last) throw new IllegalArgumentException("Cyclic joint hierarchy.");
+		}
+		return order;
+	}
+
+	@Override
+	public void updateLocal(int index, Vector3f translation, Quaternion orientation) {
+		this.joints[index].updateTransform(translation, orientation);
+		final int offset = index * Frame.stride;
+		this.locals[offset] = translation.x;
+		this.locals[offset + 1] = translation.y;
+		this.locals[offset + 2] = translation.z;
+		this.locals[offset + 3] = orientation.x;
+		this.locals[offset + 4] = orientation.y;
+		this.locals[offset + 5] = orientation.z;
+		this.locals[offset + 6] = orientation.w;
+	}
+
+	@Override
+	public void processLocals() {
+		for(int i = 0, offset = 0; i < this.joints.length; i++, offset += Frame.stride) {
+			final Vector3f translation = this.joints[i].getTranslation();
+			final Quaternion orientation = this.joints[i].getOrientation();
+			this.locals[offset] = translation.x;
+			this.locals[offset + 1] = translation.y;
+			this.locals[offset + 2] = translation.z;
+			this.locals[offset + 3] = orientation.x;
+			this.locals[offset + 4] = orientation.y;
+			this.locals[offset + 5] = orientation.z;
+			this.locals[offset + 6] = orientation.w;
+		}
+	}
+
+	@Override
+	public void process() {
+		final float[] l = this.locals;
+		final float[] m = this.matrices;
+		boolean changed = false;
+		for(int k = 0; k < this.order.length; k++) {
+			final int i = this.order[k];
+			// Select the parent matrix.
+			final float[] p;
+			final int po;
+			if(this.parents[i] >= 0) {
+				p = m;
+				po = this.parents[i] * Skeleton.stride;
+			} else {
+				p = this.processBase(this.joints[i].getSuperParent());
+				po = 0;
+			}
+			// Local rotation matrix from the orientation.
+			final int lo = i * Frame.stride;
+			final float qx = l[lo + 3];
+			final float qy = l[lo + 4];
+			final float qz = l[lo + 5];
+			final float qw = l[lo + 6];
+			final float norm = qw * qw + qx * qx + qy * qy + qz * qz;
+			final float s = (norm == 1f) ? 2f : (norm > 0f) ? 2f / norm : 0;
+			final float xs = qx * s, ys = qy * s, zs = qz * s;
+			final float xx = qx * xs, xy = qx * ys, xz = qx * zs, xw = qw * xs;
+			final float yy = qy * ys, yz = qy * zs, yw = qw * ys;
+			final float zz = qz * zs, zw = qw * zs;
+			final float r00 = 1 - (yy + zz), r01 = (xy - zw), r02 = (xz + yw);
+			final float r10 = (xy + zw), r11 = 1 - (xx + zz), r12 = (yz - xw);
+			final float r20 = (xz - yw), r21 = (yz + xw), r22 = 1 - (xx + yy);
+			// Parent rotation and translation.
+			final float p00 = p[po], p01 = p[po + 1], p02 = p[po + 2], pt0 = p[po + 3];
+			final float p10 = p[po + 4], p11 = p[po + 5], p12 = p[po + 6], pt1 = p[po + 7];
+			final float p20 = p[po + 8], p21 = p[po + 9], p22 = p[po + 10], pt2 = p[po + 11];
+			final float tx = l[lo], ty = l[lo + 1], tz = l[lo + 2];
+			// Combine into the model space matrix.
+			final float m00 = p00 * r00 + p01 * r10 + p02 * r20;
+			final float m01 = p00 * r01 + p01 * r11 + p02 * r21;
+			final float m02 = p00 * r02 + p01 * r12 + p02 * r22;
+			final float m03 = pt0 + (p00 * tx + p01 * ty + p02 * tz);
+			final float m10 = p10 * r00 + p11 * r10 + p12 * r20;
+			final float m11 = p10 * r01 + p11 * r11 + p12 * r21;
+			final float m12 = p10 * r02 + p11 * r12 + p12 * r22;
+			final float m13 = pt1 + (p10 * tx + p11 * ty + p12 * tz);
+			final float m20 = p20 * r00 + p21 * r10 + p22 * r20;
+			final float m21 = p20 * r01 + p21 * r11 + p22 * r21;
+			final float m22 = p20 * r02 + p21 * r12 + p22 * r22;
+			final float m23 = pt2 + (p20 * tx + p21 * ty + p22 * tz);
+			// Only store the joints whose matrix has changed.
+			final int mo = i * Skeleton.stride;
+			if(m[mo] == m00 && m[mo + 1] == m01 && m[mo + 2] == m02 && m[mo + 3] == m03
+				&& m[mo + 4] == m10 && m[mo + 5] == m11 && m[mo + 6] == m12 && m[mo + 7] == m13
+				&& m[mo + 8] == m20 && m[mo + 9] == m21 && m[mo + 10] == m22 && m[mo + 11] == m23) continue;
+			m[mo] = m00; m[mo + 1] = m01; m[mo + 2] = m02; m[mo + 3] = m03;
+			m[mo + 4] = m10; m[mo + 5] = m11; m[mo + 6] = m12; m[mo + 7] = m13;
+			m[mo + 8] = m20; m[mo + 9] = m21; m[mo + 10] = m22; m[mo + 11] = m23;
+			this.storeTransform(i);
+			changed = true;
+		}
+		if(changed) this.version++;
+	}
+
+	/**
+	 * Retrieve the base matrix of a root joint.
+	 * @param superParent The super parent <code>IJoint</code>. <code>null</code> if there is none.
+	 * @return The <code>Float</code> array of the base matrix.
+	 */
+	private float[] processBase(IJoint superParent) {
+		final float[] b = this.base;
+		if(superParent == null) {
+			b[0] = 1; b[1] = 0; b[2] = 0; b[3] = 0;
+			b[4] = 0; b[5] = 1; b[6] = 0; b[7] = 0;
+			b[8] = 0; b[9] = 0; b[10] = 1; b[11] = 0;
+		} else {
+			final TransformMatrix transform = superParent.getTransform();
+			final Matrix3f r = transform.getRotation(this.tempRotation);
+			final Vector3f t = transform.getTranslation(this.tempTranslation);
+			b[0] = r.m00; b[1] = r.m01; b[2] = r.m02; b[3] = t.x;
+			b[4] = r.m10; b[5] = r.m11; b[6] = r.m12; b[7] = t.y;
+			b[8] = r.m20; b[9] = r.m21; b[10] = r.m22; b[11] = t.z;
+		}
+		return b;
+	}
+
+	/**
+	 * Store the evaluated matrix into the transform of the joint with given index.
+	 * @param index The <code>Integer</code> index of the joint.
+	 */
+	private void storeTransform(int index) {
+		final float[] m = this.matrices;
+		final int mo = index * Skeleton.stride;
+		final Matrix3f r = this.tempRotation;
+		r.m00 = m[mo]; r.m01 = m[mo + 1]; r.m02 = m[mo + 2];
+		r.m10 = m[mo + 4]; r.m11 = m[mo + 5]; r.m12 = m[mo + 6];
+		r.m20 = m[mo + 8]; r.m21 = m[mo + 9]; r.m22 = m[mo + 10];
+		this.tempTranslation.set(m[mo + 3], m[mo + 7], m[mo + 11]);
+		final TransformMatrix transform = this.joints[index].getTransform();
+		transform.setRotation(r);
+		transform.setTranslation(this.tempTranslation);
+	}
+
+	@Override
+	public int getVersion() {
+		return this.version;
+	}
+
+	@Override
+	public int getJointCount() {
+		return this.joints.length;
+	}
+
+	@Override
+	public int[] getParents() {
+		return this.parents;
+	}
+
+	@Override
+	public int[] getOrder() {
+		return this.order;
+	}
+
+	@Override
+	public float[] getLocals() {
+		return this.locals;
+	}
+
+	@Override
+	public float[] getMatrices() {
+		return this.matrices;
+	}
+
+	@Override
+	public IJoint[] getJoints() {
+		return this.joints;
+	}
+}
@@ -0,0 +1,261 @@
+package com.md5importer.model.mesh;
+
+import com.md5importer.enumn.ESkinningMode;
+import com.md5importer.interfaces.model.mesh.ISkinningKernel;
+
+/**
+ * <code>SkinningKernel</code> defines the utility unit that skins the
+ * vertices of a mesh directly from packed arrays.
+ * <p>
+ * <code>SkinningKernel</code> reads the weights of each vertex from the
+ * packed weight arrays of a <code>MeshData</code> and the model space
+ * joint matrices from the packed matrices of an <code>ISkeleton</code>.
+ * The positions are accumulated in local variables and written into a
+ * flat array, so a skinning pass neither allocates nor dereferences any
+ * joint, weight or vector object. The arithmetic is performed in the
+ * same order as <code>TransformMatrix.multPoint</code>, so the results
+ * are identical to skinning through the joint transforms.
+ * <p>
+ * <code>SkinningKernel</code> provides a scalar kernel that skins each
+ * vertex from its own weights. When the optional <code>VectorKernel</code>
+ * is on the class path and the <code>jdk.incubator.vector</code> module
+ * is available, <code>SkinningKernel</code> also loads it by name at
+ * startup. The vector kernel transforms the <code>WeightBatches</code>
+ * joint by joint with vector instructions before the transformed
+ * weights of each vertex are gathered. Both
+ * kernels sum the weights of a vertex in the same order and produce
+ * identical results. The vector kernel is selected automatically
+ * whenever it could be loaded, and the scalar kernel is used otherwise.
+ * <p>
+ * <code>SkinningKernel</code> also skins the vertex normals from the
+ * bind space weight normals with the joint rotations, which replaces
+ * the calculation of the normals from the skinned triangles.
+ * <p>
+ * <code>SkinningKernel</code> is stateless. Any number of threads may
+ * skin disjoint vertex ranges concurrently.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public final class SkinningKernel {
+	/**
+	 * The <code>ISkinningKernel</code> using vector instructions. <code>null</code> if not available.
+	 */
+	private static final ISkinningKernel vector = SkinningKernel.loadVector();
+
+	/**
+	 * Constructor of <code>SkinningKernel</code>.
+	 */
+	private SkinningKernel() {}
+
+	/**
+	 * Skin the positions of the vertices within the given range.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices.
+	 * @param data The <code>MeshData</code> of the weights.
+	 * @param store The <code>Float</code> array to store the positions in, three values per vertex.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	public static void skinPositions(float[] matrices, MeshData data, float[] store, int from, int to) {
+		final int[] weightStarts = data.getWeightStarts();
+		final int[] weightCounts = data.getWeightCounts();
+		final int[] weightJoints = data.getWeightJoints();
+		final float[] weightValues = data.getWeightValues();
+		final float[] weightPositions = data.getWeightPositions();
+		for(int i = from; i < to; i++) {
+			float x = 0;
+			float y = 0;
+			float z = 0;
+			final int end = weightStarts[i] + weightCounts[i];
+			for(int j = weightStarts[i]; j < end; j++) {
+				final int m = weightJoints[j] * Skeleton.stride;
+				final float px = weightPositions[j * 3];
+				final float py = weightPositions[j * 3 + 1];
+				final float pz = weightPositions[j * 3 + 2];
+				final float w = weightValues[j];
+				x += ((matrices[m] * px + matrices[m + 1] * py + matrices[m + 2] * pz) + matrices[m + 3]) * w;
+				y += ((matrices[m + 4] * px + matrices[m + 5] * py + matrices[m + 6] * pz) + matrices[m + 7]) * w;
+				z += ((matrices[m + 8] * px + matrices[m + 9] * py + matrices[m + 10] * pz) + matrices[m + 11]) * w;
+			}
+			store[i * 3] = x;
+			store[i * 3 + 1] = y;
+			store[i * 3 + 2] = z;
+		}
+	}
+
+	/**
+	 * Skin the normals of the vertices within the given range from the
+	 * bind space weight normals. The skinned normals are normalized.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices.
+	 * @param data The <code>MeshData</code> of the weights with weight normals.
+	 * @param store The <code>Float</code> array to store the normals in, three values per vertex.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	public static void skinNormals(float[] matrices, MeshData data, float[] store, int from, int to) {
+		final int[] weightStarts = data.getWeightStarts();
+		final int[] weightCounts = data.getWeightCounts();
+		final int[] weightJoints = data.getWeightJoints();
+		final float[] weightValues = data.getWeightValues();
+		final float[] weightNormals = data.getWeightNormals();
+		for(int i = from; i < to; i++) {
+			float x = 0;
+			float y = 0;
+			float z = 0;
+			final int end = weightStarts[i] + weightCounts[i];
+			for(int j = weightStarts[i]; j < end; j++) {
+				final int m = weightJoints[j] * Skeleton.stride;
+				final float nx = weightNormals[j * 3];
+				final float ny = weightNormals[j * 3 + 1];
+				final float nz = weightNormals[j * 3 + 2];
+				final float w = weightValues[j];
+				x += (matrices[m] * nx + matrices[m + 1] * ny + matrices[m + 2] * nz) * w;
+				y += (matrices[m + 4] * nx + matrices[m + 5] * ny + matrices[m + 6] * nz) * w;
+				z += (matrices[m + 8] * nx + matrices[m + 9] * ny + matrices[m + 10] * nz) * w;
+			}
+			final float length = x * x + y * y + z * z;
+			if(length != 0) {
+				final float scale = 1.0f / (float)Math.sqrt(length);
+				x *= scale;
+				y *= scale;
+				z *= scale;
+			}
+			store[i * 3] = x;
+			store[i * 3 + 1] = y;
+			store[i * 3 + 2] = z;
+		}
+	}
+
+	/**
+	 * Calculate the bind space weight normals from the given model space
+	 * vertex normals by rotating them into the space of each weight joint.
+	 * @param matrices The packed <code>Float</code> array of model space joint matrices the normals were calculated with.
+	 * @param data The <code>MeshData</code> of the weights.
+	 * @param normals The <code>Float</code> array of normalized vertex normals, three values per vertex.
+	 * @return The <code>Float</code> array of weight normals, three values per weight.
+	 */
+	public static float[] bindNormals(float[] matrices, MeshData data, float[] normals) {
+		final int[] weightStarts = data.getWeightStarts();
+		final int[] weightCounts = data.getWeightCounts();
+		final int[] weightJoints = data.getWeightJoints();
+		final float[] store = new float[data.getWeightCount() * 3];
+		for(int i = 0; i < weightStarts.length; i++) {
+			final float nx = normals[i * 3];
+			final float ny = normals[i * 3 + 1];
+			final float nz = normals[i * 3 + 2];
+			final int end = weightStarts[i] + weightCounts[i];
+			for(int j = weightStarts[i]; j < end; j++) {
+				// The inverse of the joint rotation is its transpose.
+				final int m = weightJoints[j] * Skeleton.stride;
+				store[j * 3] = matrices[m] * nx + matrices[m + 4] * ny + matrices[m + 8] * nz;
+				store[j * 3 + 1] = matrices[m + 1] * nx + matrices[m + 5] * ny + matrices[m + 9] * nz;
+				store[j * 3 + 2] = matrices[m + 2] * nx + matrices[m + 6] * ny + matrices[m + 10] * nz;
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Load the vector kernel if the platform supports it.
+	 * @return The <code>ISkinningKernel</code> using vector instructions. <code>null</code> if not available.
+	 */
+	private static ISkinningKernel loadVector() {
+		try {
+			final Class<?> type = Class.forName("com.md5importer.model.mesh.VectorKernel");
+			return (ISkinningKernel)type.getMethod("create").invoke(null);
+		} catch(LinkageError e) {
+			return null;
+		} catch(ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Check if the vector kernel is available on this platform.
+	 * @return True if the vector kernel is available. False otherwise.
+	 */
+	public static boolean isVectorAvailable() {
+		return SkinningKernel.vector != null;
+	}
+
+	/**
+	 * Retrieve the batch kernel to use for the given skinning mode.
+	 * @param mode The <code>ESkinningMode</code> enumeration.
+	 * @return The <code>ISkinningKernel</code> to transform the weight batches with. <code>null</code> for the scalar kernel.
+	 */
+	public static ISkinningKernel getBatchKernel(ESkinningMode mode) {
+		return (mode == ESkinningMode.Scalar) ? null : SkinningKernel.vector;
+	}
+
+	/**
+	 * Gather the transformed weights into the positions of the vertices
+	 * within the given range.
+	 * @param data The <code>MeshData</code> of the weights.
+	 * @param batches The <code>WeightBatches</code> of the weights.
+	 * @param xs The <code>Float</code> array of weighted x positions in batch order.
+	 * @param ys The <code>Float</code> array of weighted y positions in batch order.
+	 * @param zs The <code>Float</code> array of weighted z positions in batch order.
+	 * @param store The <code>Float</code> array to store the positions in, three values per vertex.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	public static void gatherPositions(MeshData data, WeightBatches batches, float[] xs, float[] ys, float[] zs, float[] store, int from, int to) {
+		final int[] weightStarts = data.getWeightStarts();
+		final int[] weightCounts = data.getWeightCounts();
+		final int[] slots = batches.getSlots();
+		for(int i = from; i < to; i++) {
+			float x = 0;
+			float y = 0;
+			float z = 0;
+			final int end = weightStarts[i] + weightCounts[i];
+			for(int j = weightStarts[i]; j < end; j++) {
+				final int slot = slots[j];
+				x += xs[slot];
+				y += ys[slot];
+				z += zs[slot];
+			}
+			store[i * 3] = x;
+			store[i * 3 + 1] = y;
+			store[i * 3 + 2] = z;
+		}
+	}
+
+	/**
+	 * Gather the transformed weight normals into the normals of the
+	 * vertices within the given range. The gathered normals are normalized.
+	 * @param data The <code>MeshData</code> of the weights.
+	 * @param batches The <code>WeightBatches</code> of the weights.
+	 * @param xs The <code>Float</code> array of weighted x normals in batch order.
+	 * @param ys The <code>Float</code> array of weighted y normals in batch order.
+	 * @param zs The <code>Float</code> array of weighted z normals in batch order.
+	 * @param store The <code>Float</code> array to store the normals in, three values per vertex.
+	 * @param from The <code>Integer</code> index of the first vertex, inclusive.
+	 * @param to The <code>Integer</code> index of the last vertex, exclusive.
+	 */
+	public static void gatherNormals(MeshData data, WeightBatches batches, float[] xs, float[] ys, float[] zs, float[] store, int from, int to) {
+		final int[] weightStarts = data.getWeightStarts();
+		final int[] weightCounts = data.getWeightCounts();
+		final int[] slots = batches.getSlots();
+		for(int i = from; i < to; i++) {
+			float x = 0;
+			float y = 0;
+			float z = 0;
+			final int end = weightStarts[i] + weightCounts[i];
+			for(int j = weightStarts[i]; j < end; j++) {
+				final int slot = slots[j];
+				x += xs[slot];
+				y += ys[slot];
+				z += zs[slot];
+			}
+			final float length = x * x + y * y + z * z;
+			if(length != 0) {
+				final float scale = 1.0f / (float)Math.sqrt(length);
+				x *= scale;
+				y *= scale;
+				z *= scale;
+			}
+			store[i * 3] = x;
+			store[i * 3 + 1] = y;
+			store[i * 3 + 2] = z;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.md5importer.model.mesh;
+
+/**
+ * <code>TriangleAdjacency</code> defines the immutable vertex to
+ * triangle adjacency of a mesh.
+ * <p>
+ * <code>TriangleAdjacency</code> stores the triangles using each vertex
+ * in compressed rows, so the triangles of each vertex form a contiguous
+ * range of a single array. This allows the normal of each vertex to be
+ * gathered from the normals of its triangles, which never writes into
+ * shared state and can be split across any number of threads.
+ * <p>
+ * The triangles of each vertex are kept in ascending order.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class TriangleAdjacency {
+	/**
+	 * The <code>Integer</code> array of row boundaries indexed by vertex.
+	 */
+	private final int[] starts;
+	/**
+	 * The <code>Integer</code> array of triangle indices in row order.
+	 */
+	private final int[] triangles;
+
+	/**
+	 * Constructor of <code>TriangleAdjacency</code>.
+	 * @param data The <code>MeshData</code> of the triangles.
+	 */
+	public TriangleAdjacency(MeshData data) {
+		final int[] indices = data.getIndices();
+		final int numVertices = data.getVertexCount();
+		// Count the triangles of each vertex into row boundaries.
+		this.starts = new int[numVertices + 1];
+		for(int index : indices) this.starts[index + 1]++;
+		for(int i = 0; i < numVertices; i++) this.starts[i + 1] += this.starts[i];
+		// Distribute the triangles into their rows.
+		final int[] pointers = new int[numVertices];
+		System.arraycopy(this.starts, 0, pointers, 0, numVertices);
+		this.triangles = new int[indices.length];
+		for(int i = 0; i < indices.length; i++) {
+			this.triangles[pointers[indices[i]]++] = i / 3;
+		}
+	}
+
+	/**
+	 * Retrieve the row boundaries. The triangles of vertex i occupy the
+	 * elements from element i inclusive to element i + 1 exclusive. The
+	 * returned array should not be modified.
+	 * @return The <code>Integer</code> array of row boundaries.
+	 */
+	public int[] getStarts() {
+		return this.starts;
+	}
+
+	/**
+	 * Retrieve the triangle indices in row order. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of triangle indices.
+	 */
+	public int[] getTriangles() {
+		return this.triangles;
+	}
+}
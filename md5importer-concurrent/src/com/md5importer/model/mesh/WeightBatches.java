@@ -0,0 +1,148 @@
+package com.md5importer.model.mesh;
+
+/**
+ * <code>WeightBatches</code> defines the immutable joint major layout
+ * of the weights of a mesh.
+ * <p>
+ * <code>WeightBatches</code> groups the weights by the joint they are
+ * bound to, so the weights of each joint form a contiguous batch. The
+ * positions and values are stored as separate arrays, one value per
+ * weight, which allows each batch to be transformed by a straight loop
+ * with a constant joint matrix on vector lanes. The batch slot of each
+ * weight in its original vertex order is kept to gather the transformed
+ * weights of each vertex afterwards.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public class WeightBatches {
+	/**
+	 * The <code>Integer</code> array of batch boundaries indexed by joint.
+	 */
+	private final int[] batches;
+	/**
+	 * The <code>Integer</code> array of batch slot of each weight.
+	 */
+	private final int[] slots;
+	/**
+	 * The <code>Float</code> array of weight x positions in batch order.
+	 */
+	private final float[] xs;
+	/**
+	 * The <code>Float</code> array of weight y positions in batch order.
+	 */
+	private final float[] ys;
+	/**
+	 * The <code>Float</code> array of weight z positions in batch order.
+	 */
+	private final float[] zs;
+	/**
+	 * The <code>Float</code> array of weight values in batch order.
+	 */
+	private final float[] values;
+
+	/**
+	 * Constructor of <code>WeightBatches</code>.
+	 * @param data The <code>MeshData</code> of the weights.
+	 */
+	public WeightBatches(MeshData data) {
+		final int[] weightJoints = data.getWeightJoints();
+		final float[] weightValues = data.getWeightValues();
+		final float[] weightPositions = data.getWeightPositions();
+		int numJoints = 0;
+		for(int joint : weightJoints) numJoints = Math.max(numJoints, joint + 1);
+		// Count the weights of each joint into batch boundaries.
+		this.batches = new int[numJoints + 1];
+		for(int joint : weightJoints) this.batches[joint + 1]++;
+		for(int i = 0; i < numJoints; i++) this.batches[i + 1] += this.batches[i];
+		// Distribute the weights into their batches.
+		final int[] pointers = new int[numJoints];
+		System.arraycopy(this.batches, 0, pointers, 0, numJoints);
+		this.slots = new int[weightJoints.length];
+		this.xs = new float[weightJoints.length];
+		this.ys = new float[weightJoints.length];
+		this.zs = new float[weightJoints.length];
+		this.values = new float[weightJoints.length];
+		for(int i = 0; i < weightJoints.length; i++) {
+			final int slot = pointers[weightJoints[i]]++;
+			this.slots[i] = slot;
+			this.xs[slot] = weightPositions[i * 3];
+			this.ys[slot] = weightPositions[i * 3 + 1];
+			this.zs[slot] = weightPositions[i * 3 + 2];
+			this.values[slot] = weightValues[i];
+		}
+	}
+
+	/**
+	 * Arrange the given vectors of the weights in batch order.
+	 * @param vectors The <code>Float</code> array of vectors in weight order, three values per weight.
+	 * @return The <code>Float</code> arrays of x, y and z values in batch order.
+	 */
+	public float[][] arrange(float[] vectors) {
+		final float[][] store = new float[3][this.slots.length];
+		for(int i = 0; i < this.slots.length; i++) {
+			final int slot = this.slots[i];
+			store[0][slot] = vectors[i * 3];
+			store[1][slot] = vectors[i * 3 + 1];
+			store[2][slot] = vectors[i * 3 + 2];
+		}
+		return store;
+	}
+
+	/**
+	 * Retrieve the number of joints covered by the batches.
+	 * @return The <code>Integer</code> number of joints.
+	 */
+	public int getJointCount() {
+		return this.batches.length - 1;
+	}
+
+	/**
+	 * Retrieve the batch boundaries. The weights of joint i occupy the
+	 * slots from element i inclusive to element i + 1 exclusive. The
+	 * returned array should not be modified.
+	 * @return The <code>Integer</code> array of batch boundaries.
+	 */
+	public int[] getBatches() {
+		return this.batches;
+	}
+
+	/**
+	 * Retrieve the batch slot of each weight. The returned array should not be modified.
+	 * @return The <code>Integer</code> array of slots.
+	 */
+	public int[] getSlots() {
+		return this.slots;
+	}
+
+	/**
+	 * Retrieve the weight x positions in batch order. The returned array should not be modified.
+	 * @return The <code>Float</code> array of x positions.
+	 */
+	public float[] getXs() {
+		return this.xs;
+	}
+
+	/**
+	 * Retrieve the weight y positions in batch order. The returned array should not be modified.
+	 * @return The <code>Float</code> array of y positions.
+	 */
+	public float[] getYs() {
+		return this.ys;
+	}
+
+	/**
+	 * Retrieve the weight z positions in batch order. The returned array should not be modified.
+	 * @return The <code>Float</code> array of z positions.
+	 */
+	public float[] getZs() {
+		return this.zs;
+	}
+
+	/**
+	 * Retrieve the weight values in batch order. The returned array should not be modified.
+	 * @return The <code>Float</code> array of weight values.
+	 */
+	public float[] getValues() {
+		return this.values;
+	}
+}
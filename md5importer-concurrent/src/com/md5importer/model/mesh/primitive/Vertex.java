@@ -80,6 +80,17 @@ public class Vertex implements Serializable, IVertex {
 		this.temp = new Vector3f();
 	}
 	
+	/**
+	 * Constructor of <code>Vertex</code>.
+	 * @param index The <code>Integer</code> index of this vertex.
+	 * @param textureCoords The <code>Vector2f</code> final texture coordinates.
+	 * @param weights The array of <code>IWeight</code> instances.
+	 * @param usedTimes The number of times this vertex has been used.
+	 */
+	public Vertex(int index, Vector2f textureCoords, IWeight[] weights, int usedTimes) {
+		this(index, textureCoords, weights, usedTimes, null, new Vector3f());
+	}
+	
 	/**
 	 * Constructor of <code>Vertex</code>.
 	 * @param index The <code>Integer</code> index of this vertex.
@@ -164,6 +175,11 @@ public class Vertex implements Serializable, IVertex {
 		return this.usedTimes;
 	}
 
+	@Override
+	public IWeight[] getWeights() {
+		return this.weights;
+	}
+
 	@Override
 	public Vector3f getPosition() {
 		return this.position;
@@ -0,0 +1,106 @@
+package com.md5importer.test.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.md5importer.MD5Importer;
+import com.md5importer.control.MD5AnimController;
+import com.md5importer.interfaces.model.IMD5Anim;
+import com.md5importer.interfaces.model.anim.IPlaybackState;
+
+/**
+ * Benchmark measuring the playback update throughput of many
+ * <code>MD5AnimController</code> instances driven by a single updater
+ * thread, while reader threads continuously sample the playback state
+ * of the same animations.
+ * <p>
+ * Usage: <code>TestPlaybackContention [controllers] [readers] [seconds]</code>.
+ * Readers also verify that every sampled state is consistent, which for
+ * wrapped playback means the next index directly follows the previous.
+ */
+public class TestPlaybackContention {
+
+	private final IMD5Anim[] anims;
+	private final MD5AnimController[] controllers;
+	private final int readers;
+	private final long duration;
+	private final AtomicBoolean running;
+	private final AtomicLong reads;
+	private final AtomicLong inconsistent;
+
+	public TestPlaybackContention(IMD5Anim origin, int count, int readers, int seconds) {
+		this.anims = new IMD5Anim[count];
+		this.controllers = new MD5AnimController[count];
+		for(int i = 0; i < count; i++) {
+			this.anims[i] = origin.clone();
+			this.controllers[i] = new MD5AnimController(this.anims[i]);
+			this.controllers[i].setActive(true);
+		}
+		this.readers = readers;
+		this.duration = seconds * 1000000000L;
+		this.running = new AtomicBoolean();
+		this.reads = new AtomicLong();
+		this.inconsistent = new AtomicLong();
+	}
+
+	public void run() throws InterruptedException {
+		this.running.set(true);
+		final Thread[] threads = new Thread[this.readers];
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Reader(i));
+			threads[i].start();
+		}
+		long updates = 0;
+		final long start = System.nanoTime();
+		while(System.nanoTime() - start < this.duration) {
+			for(MD5AnimController controller : this.controllers) controller.update(0.01f);
+			updates += this.controllers.length;
+		}
+		final long elapsed = System.nanoTime() - start;
+		this.running.set(false);
+		for(Thread thread : threads) thread.join();
+		final double seconds = elapsed / 1000000000.0;
+		System.out.println("Controller updates: " + (long)(updates / seconds) + " /s");
+		System.out.println("State reads:        " + (long)(this.reads.get() / seconds) + " /s");
+		System.out.println("Inconsistent reads: " + this.inconsistent.get());
+	}
+
+	private class Reader implements Runnable {
+
+		private int index;
+
+		private Reader(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			final IMD5Anim[] anims = TestPlaybackContention.this.anims;
+			long count = 0;
+			long errors = 0;
+			while(TestPlaybackContention.this.running.get()) {
+				for(int i = 0; i < 64; i++) {
+					this.index = (this.index + 1) % anims.length;
+					final IPlaybackState state = anims[this.index].getState();
+					if(state.getNextIndex() != state.getPreviousIndex() + 1) errors++;
+					count++;
+				}
+			}
+			TestPlaybackContention.this.reads.addAndGet(count);
+			TestPlaybackContention.this.inconsistent.addAndGet(errors);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final URL url = TestPlaybackContention.class.getClassLoader().getResource("com/md5importer/test/data/marine.md5anim");
+		final int count = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+		final int readers = (args.length > 1) ? Integer.parseInt(args[1]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		final int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+		final MD5Importer importer = new MD5Importer();
+		final IMD5Anim anim = importer.loadAnim(url, "Marine");
+		importer.cleanup();
+		new TestPlaybackContention(anim, count, readers, seconds).run();
+	}
+}
@@ -0,0 +1,164 @@
+package com.md5importer.test.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.FloatBuffer;
+
+import com.jme.util.geom.BufferUtils;
+import com.md5importer.MD5Importer;
+import com.md5importer.enumn.ESkinningMode;
+import com.md5importer.interfaces.model.IMD5Node;
+import com.md5importer.interfaces.model.mesh.IMesh;
+import com.md5importer.interfaces.model.mesh.ISkinningKernel;
+import com.md5importer.interfaces.model.mesh.primitive.IVertex;
+import com.md5importer.model.mesh.Mesh;
+import com.md5importer.model.mesh.MeshData;
+import com.md5importer.model.mesh.SkinningKernel;
+import com.md5importer.model.mesh.WeightBatches;
+
+/**
+ * Benchmark comparing the skinning throughput of the object path, which
+ * skins <code>IVertex</code> primitives through the weights and joint
+ * transforms, with the packed <code>SkinningKernel</code> that writes
+ * into a vertex <code>FloatBuffer</code>, using both its scalar and its
+ * vector kernel.
+ * <p>
+ * Usage: <code>TestSkinningThroughput [file] [iterations]</code>. The
+ * vector kernel is only measured when the compiled <code>vector</code>
+ * source folder is on the class path and the JVM is started with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ * Both paths skin the same pose, and the largest difference between
+ * their results is reported.
+ */
+public class TestSkinningThroughput {
+
+	private final IMD5Node node;
+	private final IVertex[][] vertices;
+	private final float[][] positions;
+	private final FloatBuffer[] buffers;
+	private final float[][][] transformed;
+	private final ISkinningKernel kernel;
+	private final int iterations;
+
+	public TestSkinningThroughput(IMD5Node node, int iterations) {
+		this.node = node;
+		final IMesh[] meshes = node.getMeshes();
+		this.vertices = new IVertex[meshes.length][];
+		this.positions = new float[meshes.length][];
+		this.buffers = new FloatBuffer[meshes.length];
+		this.transformed = new float[meshes.length][3][];
+		for(int i = 0; i < meshes.length; i++) {
+			final int count = ((Mesh)meshes[i]).getData().getVertexCount();
+			this.vertices[i] = new IVertex[count];
+			for(int j = 0; j < count; j++) this.vertices[i][j] = meshes[i].getVertex(j);
+			this.positions[i] = new float[count * 3];
+			this.buffers[i] = BufferUtils.createVector3Buffer(count);
+			for(int j = 0; j < 3; j++) this.transformed[i][j] = new float[((Mesh)meshes[i]).getData().getWeightCount()];
+		}
+		this.kernel = SkinningKernel.getBatchKernel(ESkinningMode.Auto);
+		this.iterations = iterations;
+	}
+
+	public void run() {
+		// Warm up both paths before measuring.
+		for(int i = 0; i < 200; i++) {
+			this.objectPath();
+			this.packedPath();
+			if(this.kernel != null) this.vectorPath();
+		}
+		long start = System.nanoTime();
+		double objectSum = 0;
+		for(int i = 0; i < this.iterations; i++) objectSum += this.objectPath();
+		final long objectTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		double packedSum = 0;
+		for(int i = 0; i < this.iterations; i++) packedSum += this.packedPath();
+		final long packedTime = System.nanoTime() - start;
+		final float packedError = this.maxError();
+		System.out.println("Object path: " + this.throughput(objectTime) + " vertices/s (checksum " + objectSum + ")");
+		System.out.println("Packed path: " + this.throughput(packedTime) + " vertices/s (checksum " + packedSum + ")");
+		System.out.println("Speedup:     " + ((double)objectTime / (double)packedTime) + "x scalar");
+		System.out.println("Max error:   " + packedError + " scalar");
+		if(this.kernel == null) {
+			System.out.println("Vector:      not available");
+			return;
+		}
+		start = System.nanoTime();
+		double vectorSum = 0;
+		for(int i = 0; i < this.iterations; i++) vectorSum += this.vectorPath();
+		final long vectorTime = System.nanoTime() - start;
+		final float vectorError = this.maxError();
+		System.out.println("Vector:      " + this.throughput(vectorTime) + " vertices/s (checksum " + vectorSum + ")");
+		System.out.println("Speedup:     " + ((double)objectTime / (double)vectorTime) + "x vector");
+		System.out.println("Max error:   " + vectorError + " vector");
+	}
+
+	private double objectPath() {
+		double sum = 0;
+		for(IVertex[] mesh : this.vertices) {
+			for(IVertex vertex : mesh) vertex.processPosition();
+			sum += mesh[0].getPosition().x;
+		}
+		return sum;
+	}
+
+	private double packedPath() {
+		final float[] matrices = this.node.getSkeleton().getMatrices();
+		final IMesh[] meshes = this.node.getMeshes();
+		double sum = 0;
+		for(int i = 0; i < meshes.length; i++) {
+			final MeshData data = ((Mesh)meshes[i]).getData();
+			SkinningKernel.skinPositions(matrices, data, this.positions[i], 0, data.getVertexCount());
+			this.buffers[i].clear();
+			this.buffers[i].put(this.positions[i]);
+			sum += this.buffers[i].get(0);
+		}
+		return sum;
+	}
+
+	private double vectorPath() {
+		final float[] matrices = this.node.getSkeleton().getMatrices();
+		final IMesh[] meshes = this.node.getMeshes();
+		double sum = 0;
+		for(int i = 0; i < meshes.length; i++) {
+			final MeshData data = ((Mesh)meshes[i]).getData();
+			final WeightBatches batches = data.getWeightBatches();
+			final float[][] weights = this.transformed[i];
+			this.kernel.transformPositions(matrices, batches.getBatches(), batches.getXs(), batches.getYs(), batches.getZs(), batches.getValues(),
+					weights[0], weights[1], weights[2], 0, batches.getJointCount());
+			SkinningKernel.gatherPositions(data, batches, weights[0], weights[1], weights[2], this.positions[i], 0, data.getVertexCount());
+			this.buffers[i].clear();
+			this.buffers[i].put(this.positions[i]);
+			sum += this.buffers[i].get(0);
+		}
+		return sum;
+	}
+
+	private float maxError() {
+		float error = 0;
+		for(int i = 0; i < this.vertices.length; i++) {
+			for(int j = 0; j < this.vertices[i].length; j++) {
+				error = Math.max(error, Math.abs(this.vertices[i][j].getPosition().x - this.positions[i][j * 3]));
+				error = Math.max(error, Math.abs(this.vertices[i][j].getPosition().y - this.positions[i][j * 3 + 1]));
+				error = Math.max(error, Math.abs(this.vertices[i][j].getPosition().z - this.positions[i][j * 3 + 2]));
+			}
+		}
+		return error;
+	}
+
+	private long throughput(long nanos) {
+		long count = 0;
+		for(IVertex[] mesh : this.vertices) count += mesh.length;
+		return (long)((count * (double)this.iterations) / (nanos / 1000000000.0));
+	}
+
+	public static void main(String[] args) throws IOException {
+		URL url = TestSkinningThroughput.class.getClassLoader().getResource("com/md5importer/test/data/marine.md5mesh");
+		if(args.length > 0) url = new java.io.File(args[0]).toURI().toURL();
+		final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5000;
+		final MD5Importer importer = new MD5Importer();
+		final IMD5Node node = importer.loadMesh(url, "Marine");
+		importer.cleanup();
+		new TestSkinningThroughput(node, iterations).run();
+	}
+}
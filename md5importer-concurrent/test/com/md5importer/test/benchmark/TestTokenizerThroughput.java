@@ -0,0 +1,100 @@
+package com.md5importer.test.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StreamTokenizer;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+import com.md5importer.loader.MD5Tokenizer;
+
+/**
+ * Benchmark comparing the tokenizing throughput of the previously used
+ * <code>StreamTokenizer</code> setup with <code>MD5Tokenizer</code>.
+ * <p>
+ * Usage: <code>TestTokenizerThroughput [file] [iterations]</code>.
+ * Both tokenizers read from memory so only tokenizing is measured.
+ */
+public class TestTokenizerThroughput {
+
+	private final byte[] data;
+	private final int iterations;
+
+	public TestTokenizerThroughput(byte[] data, int iterations) {
+		this.data = data;
+		this.iterations = iterations;
+	}
+
+	public void run() throws IOException {
+		// Warm up both paths before measuring.
+		for(int i = 0; i < 5; i++) {
+			this.streamTokenizer();
+			this.md5Tokenizer();
+		}
+		long start = System.nanoTime();
+		double streamSum = 0;
+		for(int i = 0; i < this.iterations; i++) streamSum += this.streamTokenizer();
+		final long streamTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		double md5Sum = 0;
+		for(int i = 0; i < this.iterations; i++) md5Sum += this.md5Tokenizer();
+		final long md5Time = System.nanoTime() - start;
+		System.out.println("StreamTokenizer: " + this.throughput(streamTime) + " MB/s (checksum " + streamSum + ")");
+		System.out.println("MD5Tokenizer:    " + this.throughput(md5Time) + " MB/s (checksum " + md5Sum + ")");
+		System.out.println("Speedup:         " + ((double)streamTime / (double)md5Time) + "x");
+	}
+
+	private double streamTokenizer() throws IOException {
+		final StreamTokenizer reader = new StreamTokenizer(new InputStreamReader(new ByteArrayInputStream(this.data)));
+		reader.quoteChar('"');
+		reader.ordinaryChar('{');
+		reader.ordinaryChar('}');
+		reader.ordinaryChar('(');
+		reader.ordinaryChar(')');
+		reader.parseNumbers();
+		reader.slashSlashComments(true);
+		reader.eolIsSignificant(true);
+		double sum = 0;
+		while(reader.nextToken() != StreamTokenizer.TT_EOF) {
+			if(reader.ttype == StreamTokenizer.TT_NUMBER) sum += (float)reader.nval;
+		}
+		return sum;
+	}
+
+	private double md5Tokenizer() {
+		final MD5Tokenizer reader = new MD5Tokenizer(ByteBuffer.wrap(this.data));
+		double sum = 0;
+		while(reader.nextToken() != MD5Tokenizer.TT_EOF) {
+			if(reader.getType() == MD5Tokenizer.TT_NUMBER) sum += reader.getNumber();
+		}
+		return sum;
+	}
+
+	private double throughput(long nanos) {
+		final double megabytes = ((double)this.data.length * this.iterations) / (1024 * 1024);
+		return megabytes / (nanos / 1000000000.0);
+	}
+
+	private static byte[] read(URL url) throws IOException {
+		final InputStream stream = url.openStream();
+		try {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int count = 0;
+			while((count = stream.read(buffer)) >= 0) output.write(buffer, 0, count);
+			return output.toByteArray();
+		} finally {
+			stream.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		URL url = TestTokenizerThroughput.class.getClassLoader().getResource("com/md5importer/test/data/marine.md5anim");
+		if(args.length > 0) url = new java.io.File(args[0]).toURI().toURL();
+		final int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+		new TestTokenizerThroughput(TestTokenizerThroughput.read(url), iterations).run();
+	}
+}
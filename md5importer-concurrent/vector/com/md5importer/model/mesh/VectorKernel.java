@@ -0,0 +1,113 @@
+package com.md5importer.model.mesh;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import com.md5importer.interfaces.model.mesh.ISkinningKernel;
+
+/**
+ * <code>VectorKernel</code> defines the <code>ISkinningKernel</code>
+ * that transforms the weight batches with the incubating vector API.
+ * <p>
+ * <code>VectorKernel</code> broadcasts the matrix of each joint into
+ * vectors and transforms as many weights of its batch per instruction
+ * as the preferred species has lanes. The remaining weights of each
+ * batch are transformed by a scalar tail. Both perform the arithmetic
+ * in the same order without fused multiply adds, so the results are
+ * identical to the scalar kernel of <code>SkinningKernel</code>.
+ * <p>
+ * <code>VectorKernel</code> requires the <code>jdk.incubator.vector</code>
+ * module. It therefore lives in the optional <code>vector</code> source
+ * folder, which is compiled separately against the main classes with
+ * <code>--add-modules jdk.incubator.vector</code>, so the default build
+ * never compiles the incubating API. It is never referenced directly,
+ * but created reflectively by <code>SkinningKernel</code>, so the
+ * importer still runs without the folder or without the module.
+ * <p>
+ * This class is used internally by <code>MD5Importer</code> only.
+ */
+public final class VectorKernel implements ISkinningKernel {
+	/**
+	 * The preferred <code>VectorSpecies</code> of the platform.
+	 */
+	private static final VectorSpecies<Float> species = FloatVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constructor of <code>VectorKernel</code>.
+	 */
+	private VectorKernel() {}
+
+	/**
+	 * Create the vector kernel if the platform provides vector lanes.
+	 * @return The <code>ISkinningKernel</code> instance. <code>null</code> if there is only a single lane.
+	 */
+	public static ISkinningKernel create() {
+		return (FloatVector.SPECIES_PREFERRED.length() < 2) ? null : new VectorKernel();
+	}
+
+	@Override
+	public void transformPositions(float[] matrices, int[] batches, float[] xs, float[] ys, float[] zs, float[] values,
+			float[] storeX, float[] storeY, float[] storeZ, int from, int to) {
+		for(int i = from; i < to; i++) {
+			final int m = i * Skeleton.stride;
+			final float m00 = matrices[m], m01 = matrices[m + 1], m02 = matrices[m + 2], m03 = matrices[m + 3];
+			final float m10 = matrices[m + 4], m11 = matrices[m + 5], m12 = matrices[m + 6], m13 = matrices[m + 7];
+			final float m20 = matrices[m + 8], m21 = matrices[m + 9], m22 = matrices[m + 10], m23 = matrices[m + 11];
+			final int start = batches[i];
+			final int end = batches[i + 1];
+			final int bound = start + VectorKernel.species.loopBound(end - start);
+			int j = start;
+			for(; j < bound; j += VectorKernel.species.length()) {
+				final FloatVector px = FloatVector.fromArray(VectorKernel.species, xs, j);
+				final FloatVector py = FloatVector.fromArray(VectorKernel.species, ys, j);
+				final FloatVector pz = FloatVector.fromArray(VectorKernel.species, zs, j);
+				final FloatVector w = FloatVector.fromArray(VectorKernel.species, values, j);
+				px.mul(m00).add(py.mul(m01)).add(pz.mul(m02)).add(m03).mul(w).intoArray(storeX, j);
+				px.mul(m10).add(py.mul(m11)).add(pz.mul(m12)).add(m13).mul(w).intoArray(storeY, j);
+				px.mul(m20).add(py.mul(m21)).add(pz.mul(m22)).add(m23).mul(w).intoArray(storeZ, j);
+			}
+			for(; j < end; j++) {
+				final float px = xs[j];
+				final float py = ys[j];
+				final float pz = zs[j];
+				final float w = values[j];
+				storeX[j] = ((m00 * px + m01 * py + m02 * pz) + m03) * w;
+				storeY[j] = ((m10 * px + m11 * py + m12 * pz) + m13) * w;
+				storeZ[j] = ((m20 * px + m21 * py + m22 * pz) + m23) * w;
+			}
+		}
+	}
+
+	@Override
+	public void transformNormals(float[] matrices, int[] batches, float[] xs, float[] ys, float[] zs, float[] values,
+			float[] storeX, float[] storeY, float[] storeZ, int from, int to) {
+		for(int i = from; i < to; i++) {
+			final int m = i * Skeleton.stride;
+			final float m00 = matrices[m], m01 = matrices[m + 1], m02 = matrices[m + 2];
+			final float m10 = matrices[m + 4], m11 = matrices[m + 5], m12 = matrices[m + 6];
+			final float m20 = matrices[m + 8], m21 = matrices[m + 9], m22 = matrices[m + 10];
+			final int start = batches[i];
+			final int end = batches[i + 1];
+			final int bound = start + VectorKernel.species.loopBound(end - start);
+			int j = start;
+			for(; j < bound; j += VectorKernel.species.length()) {
+				final FloatVector nx = FloatVector.fromArray(VectorKernel.species, xs, j);
+				final FloatVector ny = FloatVector.fromArray(VectorKernel.species, ys, j);
+				final FloatVector nz = FloatVector.fromArray(VectorKernel.species, zs, j);
+				final FloatVector w = FloatVector.fromArray(VectorKernel.species, values, j);
+				nx.mul(m00).add(ny.mul(m01)).add(nz.mul(m02)).mul(w).intoArray(storeX, j);
+				nx.mul(m10).add(ny.mul(m11)).add(nz.mul(m12)).mul(w).intoArray(storeY, j);
+				nx.mul(m20).add(ny.mul(m21)).add(nz.mul(m22)).mul(w).intoArray(storeZ, j);
+			}
+			for(; j < end; j++) {
+				final float nx = xs[j];
+				final float ny = ys[j];
+				final float nz = zs[j];
+				final float w = values[j];
+				storeX[j] = (m00 * nx + m01 * ny + m02 * nz) * w;
+				storeY[j] = (m10 * nx + m11 * ny + m12 * nz) * w;
+				storeZ[j] = (m20 * nx + m21 * ny + m22 * nz) * w;
+			}
+		}
+	}
+}